@@ -1,5 +1,9 @@
 package br.org.rh.config;
 
+import br.org.rh.config.audit.EntityAuditVersionSequencer;
+import br.org.rh.security.jwt.TokenRevocationList;
+
+import com.codahale.metrics.MetricRegistry;
 import com.hazelcast.config.Config;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
@@ -7,12 +11,15 @@ import com.hazelcast.instance.HazelcastInstanceFactory;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.EvictionPolicy;
 import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.InMemoryFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.*;
@@ -27,10 +34,27 @@ import javax.inject.Inject;
 @AutoConfigureAfter(value = { MetricsConfiguration.class, DatabaseConfiguration.class })
 public class CacheConfiguration {
 
+    /**
+     * Prefix of the caches of the entity pages returned by the services, evicted when an entity is saved or deleted.
+     */
+    public static final String PAGES_CACHE_PREFIX = "pages.";
+
+    /**
+     * Prefix of the caches of the search results, evicted when the search outbox has updated the index.
+     */
+    public static final String SEARCH_CACHE_PREFIX = "search.";
+
+    /**
+     * Natural id cache regions, named after the entity with a "##NaturalId" suffix by Hibernate.
+     */
+    private static final String NATURAL_ID_REGIONS = "br.org.rh.domain.*##NaturalId";
+
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
     private static HazelcastInstance hazelcastInstance;
 
+    private static MetricRegistry metricRegistry;
+
     @Inject
     private Environment env;
 
@@ -51,13 +75,16 @@ public class CacheConfiguration {
     @Bean
     public CacheManager cacheManager(HazelcastInstance hazelcastInstance) {
         log.debug("Starting HazelcastCacheManager");
-        cacheManager = new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance);
+        // Puts and evictions made in a transaction are only applied once it is committed
+        cacheManager = new TransactionAwareCacheManagerProxy(
+            new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance));
         return cacheManager;
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties, MetricRegistry metricRegistry) {
         log.debug("Configuring Hazelcast");
+        CacheConfiguration.metricRegistry = metricRegistry;
         Config config = new Config();
         config.setInstanceName("rh");
         // The serviceId is by default the application's name, see Spring Boot's eureka.instance.appname property
@@ -92,6 +119,19 @@ public class CacheConfiguration {
         
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
         config.getMapConfigs().put("br.org.rh.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        for (String entity : jHipsterProperties.getCache().getNearCache().getEntities()) {
+            String regionName = "br.org.rh.domain." + entity.trim();
+            log.debug("Configuring a near cache for the {} region", regionName);
+            config.getMapConfigs().put(regionName, initializeNearCachedDomainMapConfig(regionName, jHipsterProperties));
+        }
+        // The natural id regions resolve the natural ids of the entities to their ids, on each lookup by natural id
+        config.getMapConfigs().put(NATURAL_ID_REGIONS,
+            initializeNearCachedDomainMapConfig(NATURAL_ID_REGIONS, jHipsterProperties));
+        config.getMapConfigs().put(PAGES_CACHE_PREFIX + "*", initializeQueryCacheMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(SEARCH_CACHE_PREFIX + "*", initializeQueryCacheMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(EntityAuditVersionSequencer.COMMIT_VERSIONS,
+            initializeCommitVersionsMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(TokenRevocationList.REVOKED_TOKENS, initializeRevokedTokensMapConfig());
 
         hazelcastInstance = HazelcastInstanceFactory.newHazelcastInstance(config);
 
@@ -143,10 +183,83 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    /**
+     * Map of a region served by HazelcastCacheRegionFactory as a distributed map, with a near cache on each node.
+     */
+    private MapConfig initializeNearCachedDomainMapConfig(String regionName, JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = initializeDomainMapConfig(jHipsterProperties);
+        mapConfig.setName(regionName);
+        mapConfig.setBackupCount(jHipsterProperties.getCache().getHazelcast().getBackupCount());
+
+        JHipsterProperties.Cache.NearCache nearCache = jHipsterProperties.getCache().getNearCache();
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        nearCacheConfig.setMaxSize(nearCache.getMaxSize());
+        nearCacheConfig.setEvictionPolicy(EvictionPolicy.LRU.name());
+        nearCacheConfig.setTimeToLiveSeconds(nearCache.getTimeToLiveSeconds());
+        nearCacheConfig.setMaxIdleSeconds(nearCache.getMaxIdleSeconds());
+        /*
+            Entries are dropped from the near cache of every node when they are updated
+            in the map, and entries owned by this node are near cached as well.
+         */
+        nearCacheConfig.setInvalidateOnChange(true);
+        nearCacheConfig.setCacheLocalEntries(true);
+        nearCacheConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        mapConfig.setNearCacheConfig(nearCacheConfig);
+        return mapConfig;
+    }
+
+    private MapConfig initializeQueryCacheMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = new MapConfig();
+
+        /*
+            Cached pages can be computed again, and a bounded number of them
+            is kept on each node.
+         */
+        mapConfig.setBackupCount(0);
+        mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getQuery().getTimeToLiveSeconds());
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(jHipsterProperties.getCache().getQuery().getMaxSize(),
+            MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
+    private MapConfig initializeCommitVersionsMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = new MapConfig();
+
+        /*
+            Versions must survive the loss of a node: a lost entry would be seeded again
+            from the database, where the last versions may not be written yet.
+         */
+        mapConfig.setBackupCount(1);
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(jHipsterProperties.getAudit().getCommitVersionsSize(),
+            MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
+    private MapConfig initializeRevokedTokensMapConfig() {
+        MapConfig mapConfig = new MapConfig();
+
+        /*
+            Revoked tokens are never evicted, and must survive the loss of a node:
+            each entry expires with its token.
+         */
+        mapConfig.setBackupCount(1);
+        mapConfig.setEvictionPolicy(EvictionPolicy.NONE);
+        return mapConfig;
+    }
+
     /**
     * @return the unique instance.
     */
     public static HazelcastInstance getHazelcastInstance() {
         return hazelcastInstance;
     }
+
+    /**
+    * @return the registry of the second-level cache metrics.
+    */
+    public static MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
 }
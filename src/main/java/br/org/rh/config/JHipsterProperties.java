@@ -4,6 +4,9 @@ package br.org.rh.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Properties specific to JHipster.
@@ -33,6 +36,10 @@ public class JHipsterProperties {
 
     private final Ribbon ribbon = new Ribbon();
 
+    private final Search search = new Search();
+
+    private final Audit audit = new Audit();
+
     public Async getAsync() {
         return async;
     }
@@ -69,6 +76,14 @@ public class JHipsterProperties {
         return ribbon;
     }
 
+    public Search getSearch() {
+        return search;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
     public static class Async {
 
         private int corePoolSize = 2;
@@ -128,6 +143,8 @@ public class JHipsterProperties {
 
         private int timeToLiveSeconds = 3600;
         private final Hazelcast hazelcast = new Hazelcast();
+        private final NearCache nearCache = new NearCache();
+        private final Query query = new Query();
 
 
         public int getTimeToLiveSeconds() {
@@ -141,6 +158,14 @@ public class JHipsterProperties {
             return hazelcast;
         }
 
+        public NearCache getNearCache() {
+            return nearCache;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+
         public static class Hazelcast {
 
             private int backupCount = 1;
@@ -153,6 +178,72 @@ public class JHipsterProperties {
                 this.backupCount = backupCount;
             }
         }
+
+        public static class NearCache {
+
+            private List<String> entities = new ArrayList<>();
+
+            private int maxSize = 1000;
+
+            private int timeToLiveSeconds = 0;
+
+            private int maxIdleSeconds = 0;
+
+            public List<String> getEntities() {
+                return entities;
+            }
+
+            public void setEntities(List<String> entities) {
+                this.entities = entities;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public int getMaxIdleSeconds() {
+                return maxIdleSeconds;
+            }
+
+            public void setMaxIdleSeconds(int maxIdleSeconds) {
+                this.maxIdleSeconds = maxIdleSeconds;
+            }
+        }
+
+        public static class Query {
+
+            private int timeToLiveSeconds = 300;
+
+            private int maxSize = 1000;
+
+            public int getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+        }
     }
 
     public static class Mail {
@@ -191,6 +282,14 @@ public class JHipsterProperties {
                 private long tokenValidityInSeconds = 1800;
                 private long tokenValidityInSecondsForRememberMe = 2592000;
 
+                private int cacheMaxSize = 10000;
+
+                private String algorithm = "HS512";
+
+                private String keystore;
+
+                private long keystoreRefreshDelay = 60000;
+
                 public String getSecret() {
                     return secret;
                 }
@@ -214,6 +313,38 @@ public class JHipsterProperties {
                 public void setTokenValidityInSecondsForRememberMe(long tokenValidityInSecondsForRememberMe) {
                     this.tokenValidityInSecondsForRememberMe = tokenValidityInSecondsForRememberMe;
                 }
+
+                public int getCacheMaxSize() {
+                    return cacheMaxSize;
+                }
+
+                public void setCacheMaxSize(int cacheMaxSize) {
+                    this.cacheMaxSize = cacheMaxSize;
+                }
+
+                public String getAlgorithm() {
+                    return algorithm;
+                }
+
+                public void setAlgorithm(String algorithm) {
+                    this.algorithm = algorithm;
+                }
+
+                public String getKeystore() {
+                    return keystore;
+                }
+
+                public void setKeystore(String keystore) {
+                    this.keystore = keystore;
+                }
+
+                public long getKeystoreRefreshDelay() {
+                    return keystoreRefreshDelay;
+                }
+
+                public void setKeystoreRefreshDelay(long keystoreRefreshDelay) {
+                    this.keystoreRefreshDelay = keystoreRefreshDelay;
+                }
             }
         }
     }
@@ -512,6 +643,307 @@ public class JHipsterProperties {
         }
     }
 
+    public static class Search {
+
+        private final Outbox outbox = new Outbox();
+
+        private final Reindex reindex = new Reindex();
+
+        private final Suggest suggest = new Suggest();
+
+        private final Fallback fallback = new Fallback();
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public Reindex getReindex() {
+            return reindex;
+        }
+
+        public Suggest getSuggest() {
+            return suggest;
+        }
+
+        public Fallback getFallback() {
+            return fallback;
+        }
+
+        public static class Outbox {
+
+            private int batchSize = 500;
+
+            private long drainDelay = 500;
+
+            private long initialBackoff = 1000;
+
+            private long maxBackoff = 300000;
+
+            private int maxAttempts = 15;
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getDrainDelay() {
+                return drainDelay;
+            }
+
+            public void setDrainDelay(long drainDelay) {
+                this.drainDelay = drainDelay;
+            }
+
+            public long getInitialBackoff() {
+                return initialBackoff;
+            }
+
+            public void setInitialBackoff(long initialBackoff) {
+                this.initialBackoff = initialBackoff;
+            }
+
+            public long getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            public void setMaxBackoff(long maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+        }
+
+        public static class Reindex {
+
+            private boolean onStartup = false;
+
+            private int parallelism = 4;
+
+            private int bulkSize = 1000;
+
+            private int fetchSize = 1000;
+
+            private long sliceSize = 50000;
+
+            public boolean isOnStartup() {
+                return onStartup;
+            }
+
+            public void setOnStartup(boolean onStartup) {
+                this.onStartup = onStartup;
+            }
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getBulkSize() {
+                return bulkSize;
+            }
+
+            public void setBulkSize(int bulkSize) {
+                this.bulkSize = bulkSize;
+            }
+
+            public int getFetchSize() {
+                return fetchSize;
+            }
+
+            public void setFetchSize(int fetchSize) {
+                this.fetchSize = fetchSize;
+            }
+
+            public long getSliceSize() {
+                return sliceSize;
+            }
+
+            public void setSliceSize(long sliceSize) {
+                this.sliceSize = sliceSize;
+            }
+        }
+
+        public static class Suggest {
+
+            private int maxSize = 1000;
+
+            private int timeToLiveSeconds = 10;
+
+            private int maxResults = 20;
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public int getMaxResults() {
+                return maxResults;
+            }
+
+            public void setMaxResults(int maxResults) {
+                this.maxResults = maxResults;
+            }
+        }
+
+        public static class Fallback {
+
+            private int timeoutInMilliseconds = 1000;
+
+            private int threads = 10;
+
+            public int getTimeoutInMilliseconds() {
+                return timeoutInMilliseconds;
+            }
+
+            public void setTimeoutInMilliseconds(int timeoutInMilliseconds) {
+                this.timeoutInMilliseconds = timeoutInMilliseconds;
+            }
+
+            public int getThreads() {
+                return threads;
+            }
+
+            public void setThreads(int threads) {
+                this.threads = threads;
+            }
+        }
+    }
+
+    public static class Audit {
+
+        private final Archive archive = new Archive();
+
+        private int queueCapacity = 10000;
+
+        private int batchSize = 500;
+
+        private long flushInterval = 1000;
+
+        private long offerTimeout = 100;
+
+        private int commitVersionsSize = 100000;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(long flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public long getOfferTimeout() {
+            return offerTimeout;
+        }
+
+        public void setOfferTimeout(long offerTimeout) {
+            this.offerTimeout = offerTimeout;
+        }
+
+        public int getCommitVersionsSize() {
+            return commitVersionsSize;
+        }
+
+        public void setCommitVersionsSize(int commitVersionsSize) {
+            this.commitVersionsSize = commitVersionsSize;
+        }
+
+        public Archive getArchive() {
+            return archive;
+        }
+
+        public static class Archive {
+
+            private boolean enabled = false;
+
+            private String directory = "audit-archive";
+
+            private int horizonDays = 180;
+
+            private int batchSize = 1000;
+
+            private long delay = 3600000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public int getHorizonDays() {
+                return horizonDays;
+            }
+
+            public void setHorizonDays(int horizonDays) {
+                this.horizonDays = horizonDays;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getDelay() {
+                return delay;
+            }
+
+            public void setDelay(long delay) {
+                this.delay = delay;
+            }
+        }
+    }
+
     public static class Ribbon {
 
         private String[] displayOnActiveProfiles;
@@ -1,49 +1,266 @@
 package br.org.rh.config.audit;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import br.org.rh.config.JHipsterProperties;
 import br.org.rh.domain.AbstractAuditingEntity;
 import br.org.rh.domain.EntityAuditEvent;
-import br.org.rh.repository.EntityAuditEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Async Entity Audit Event writer
  * This is invoked by Hibernate entity listeners to write audit event for entitities
+ *
+ * <p>
+ * Events are captured in the calling thread, then buffered in a bounded queue. A dedicated thread writes them to the
+ * jhi_entity_audit_event table in JDBC batches, when the batch is full or when the flush interval has elapsed.
+ * When the queue is full, callers wait up to jhipster.audit.offerTimeout milliseconds, then the event is dropped.
+ *
+ * <p>
+ * Each batch is written in a single transaction, retried once on a transient error. When it still fails, its events
+ * are written one by one, so only the events rejected by the database are lost: they are logged as errors, with
+ * their content.
  */
 @Component
 public class AsyncEntityAuditEventWriter {
 
+    private static final String INSERT_SQL = "INSERT INTO jhi_entity_audit_event " +
+        "(entity_id, entity_type, action, entity_value, commit_version, modified_by, modified_date) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Maximum time the writer thread waits for events before checking whether it is stopped.
+     */
+    private static final long STOP_CHECK_INTERVAL = 100;
+
     private final Logger log = LoggerFactory.getLogger(AsyncEntityAuditEventWriter.class);
 
+    private final Map<Class<?>, Field> idFields = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedSinceLastFlush = new AtomicLong();
+
     @Inject
-    private EntityAuditEventRepository auditingEntityRepository;
+    private JdbcTemplate jdbcTemplate;
 
     @Inject
     private ObjectMapper objectMapper; //Jackson object mapper
 
+    @Inject
+    private EntityAuditVersionSequencer entityAuditVersionSequencer;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<EntityAuditEvent> queue;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    private Meter writtenMeter;
+
+    private Meter droppedMeter;
+
+    private Meter failedMeter;
+
+    private Meter backpressureMeter;
+
+    private Histogram batchSizeHistogram;
+
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(jHipsterProperties.getAudit().getQueueCapacity());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        writtenMeter = metricRegistry.meter("audit.events.written");
+        droppedMeter = metricRegistry.meter("audit.events.dropped");
+        failedMeter = metricRegistry.meter("audit.events.failed");
+        backpressureMeter = metricRegistry.meter("audit.events.backpressure");
+        batchSizeHistogram = metricRegistry.histogram("audit.batch.size");
+        flushTimer = metricRegistry.timer("audit.batch.flush");
+        metricRegistry.register("audit.queue.size", (Gauge<Integer>) () -> queue.size());
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "rh-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer thread, once the pending events are written.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
     /**
-     * Writes audit events to DB asynchronously in a new thread
+     * Capture an audit event and queue it, to be written to DB asynchronously.
      */
-    @Async
     public void writeAuditEvent(Object target, EntityAuditAction action) {
         log.debug("-------------- Post {} audit  --------------", action.value());
         try {
             EntityAuditEvent auditedEntity = prepareAuditEntity(target, action);
             if (auditedEntity != null) {
-                auditingEntityRepository.save(auditedEntity);
+                enqueue(auditedEntity);
             }
         } catch (Exception e) {
             log.error("Exception while persisting audit entity for {} error: {}", target, e);
         }
     }
 
+    /**
+     * Write all the queued audit events to DB, in the calling thread.
+     */
+    public synchronized void flush() {
+        int batchSize = jHipsterProperties.getAudit().getBatchSize();
+        List<EntityAuditEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void enqueue(EntityAuditEvent auditedEntity) throws InterruptedException {
+        if (queue.offer(auditedEntity)) {
+            return;
+        }
+        backpressureMeter.mark();
+        if (!queue.offer(auditedEntity, jHipsterProperties.getAudit().getOfferTimeout(), TimeUnit.MILLISECONDS)) {
+            droppedMeter.mark();
+            droppedSinceLastFlush.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        long flushInterval = jHipsterProperties.getAudit().getFlushInterval();
+        int batchSize = jHipsterProperties.getAudit().getBatchSize();
+        while (running) {
+            try {
+                EntityAuditEvent first = queue.poll(Math.min(flushInterval, STOP_CHECK_INTERVAL),
+                    TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    synchronized (this) {
+                        writeBatch(fillBatch(first, batchSize, System.currentTimeMillis() + flushInterval));
+                    }
+                }
+                long dropped = droppedSinceLastFlush.getAndSet(0);
+                if (dropped > 0) {
+                    log.warn("Audit queue is full, {} audit events were dropped", dropped);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Exception in audit writer thread", e);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Wait for the batch to fill up, unless the flush interval elapses.
+     */
+    private List<EntityAuditEvent> fillBatch(EntityAuditEvent first, int batchSize, long deadline)
+        throws InterruptedException {
+        List<EntityAuditEvent> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - batch.size());
+        long remaining;
+        while (running && batch.size() < batchSize && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            EntityAuditEvent next = queue.poll(Math.min(remaining, STOP_CHECK_INTERVAL), TimeUnit.MILLISECONDS);
+            if (next != null) {
+                batch.add(next);
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+        }
+        return batch;
+    }
+
+    private void writeBatch(List<EntityAuditEvent> batch) {
+        batchSizeHistogram.update(batch.size());
+        try (Timer.Context ignored = flushTimer.time()) {
+            entityAuditVersionSequencer.assignVersions(batch);
+            try {
+                insertBatch(batch);
+            } catch (TransientDataAccessException | RecoverableDataAccessException e) {
+                log.warn("Transient exception while persisting {} audit entities, retrying: {}", batch.size(),
+                    e.getMessage());
+                insertBatch(batch);
+            }
+            writtenMeter.mark(batch.size());
+        } catch (Exception e) {
+            log.warn("Exception while persisting {} audit entities, persisting them one by one: {}", batch.size(),
+                e.getMessage());
+            batch.forEach(this::insertOne);
+        }
+    }
+
+    private void insertBatch(List<EntityAuditEvent> batch) {
+        // The batch is rolled back as a whole, so that a failed row does not leave the previous ones written
+        transactionTemplate.execute(status ->
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::setValues));
+    }
+
+    private void insertOne(EntityAuditEvent auditedEntity) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> setValues(ps, auditedEntity));
+            writtenMeter.mark();
+        } catch (Exception e) {
+            failedMeter.mark();
+            log.error("Exception while persisting audit entity {}, error: {}", auditedEntity, e);
+        }
+    }
+
+    private void setValues(PreparedStatement ps, EntityAuditEvent auditedEntity) throws SQLException {
+        ps.setLong(1, auditedEntity.getEntityId());
+        ps.setString(2, auditedEntity.getEntityType());
+        ps.setString(3, auditedEntity.getAction());
+        ps.setString(4, auditedEntity.getEntityValue());
+        ps.setInt(5, auditedEntity.getCommitVersion());
+        ps.setString(6, auditedEntity.getModifiedBy());
+        ps.setTimestamp(7, Timestamp.from(auditedEntity.getModifiedDate().toInstant()));
+    }
+
     /**
      * Method to prepare auditing entity
      *
@@ -60,12 +277,9 @@ public class AsyncEntityAuditEventWriter {
         String entityData;
         log.trace("Getting Entity Id and Content");
         try {
-            Field privateLongField = entityClass.getDeclaredField("id");
-            privateLongField.setAccessible(true);
-            entityId = (Long) privateLongField.get(entity);
-            privateLongField.setAccessible(false);
+            entityId = (Long) idFields.computeIfAbsent(entityClass, this::getIdField).get(entity);
             entityData = objectMapper.writeValueAsString(entity);
-        } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException | SecurityException |
+        } catch (IllegalArgumentException | IllegalAccessException | IllegalStateException | SecurityException |
             IOException e) {
             log.error("Exception while getting entity ID and content {}", e);
             // returning null as we dont want to raise an application exception here
@@ -77,27 +291,26 @@ public class AsyncEntityAuditEventWriter {
         if (EntityAuditAction.CREATE.equals(action)) {
             auditedEntity.setModifiedBy(abstractAuditEntity.getCreatedBy());
             auditedEntity.setModifiedDate(abstractAuditEntity.getCreatedDate());
-            auditedEntity.setCommitVersion(1);
         } else {
             auditedEntity.setModifiedBy(abstractAuditEntity.getLastModifiedBy());
             auditedEntity.setModifiedDate(abstractAuditEntity.getLastModifiedDate());
-            calculateVersion(auditedEntity);
+        }
+        if (abstractAuditEntity.getVersion() != null) {
+            // The version starts at 0 and is incremented by each update, but not by the delete
+            long version = abstractAuditEntity.getVersion() + (EntityAuditAction.DELETE.equals(action) ? 2 : 1);
+            auditedEntity.setCommitVersion((int) version);
         }
         log.trace("Audit Entity --> {} ", auditedEntity.toString());
         return auditedEntity;
     }
 
-    private void calculateVersion(EntityAuditEvent auditedEntity) {
-        log.trace("Version calculation. for update/remove");
-        Integer lastCommitVersion = auditingEntityRepository.findMaxCommitVersion(auditedEntity
-            .getEntityType(), auditedEntity.getEntityId());
-        log.trace("Last commit version of entity => {}", lastCommitVersion);
-        if(lastCommitVersion!=null && lastCommitVersion != 0){
-            log.trace("Present. Adding version..");
-            auditedEntity.setCommitVersion(lastCommitVersion + 1);
-        } else {
-            log.trace("No entities.. Adding new version 1");
-            auditedEntity.setCommitVersion(1);
+    private Field getIdField(Class<?> entityClass) {
+        try {
+            Field idField = entityClass.getDeclaredField("id");
+            idField.setAccessible(true);
+            return idField;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("No id field in " + entityClass.getName(), e);
         }
     }
 }
@@ -1,5 +1,8 @@
 package br.org.rh.config.audit;
 
+import br.org.rh.service.EntityChangeTracker;
+
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +30,7 @@ public class EntityAuditEventListener extends AuditingEntityListener {
         } catch (Exception e) {
             log.error("Exception while persisting create audit entity {}", e);
         }
+        markChanged(target);
     }
 
     @PostUpdate
@@ -39,6 +43,7 @@ public class EntityAuditEventListener extends AuditingEntityListener {
         } catch (Exception e) {
             log.error("Exception while persisting update audit entity {}", e);
         }
+        markChanged(target);
     }
 
     @PostRemove
@@ -51,6 +56,17 @@ public class EntityAuditEventListener extends AuditingEntityListener {
         } catch (Exception e) {
             log.error("Exception while persisting delete audit entity {}", e);
         }
+        markChanged(target);
+    }
+
+    private void markChanged(Object target) {
+        try {
+            beanFactory.getBean(EntityChangeTracker.class).markChanged(Hibernate.getClass(target));
+        } catch (NoSuchBeanDefinitionException e) {
+            log.error("No bean found for EntityChangeTracker");
+        } catch (Exception e) {
+            log.error("Exception while tracking the change of entity {}", e);
+        }
     }
 
     static void setBeanFactory(BeanFactory beanFactory) {
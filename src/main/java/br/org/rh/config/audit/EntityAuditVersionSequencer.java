@@ -0,0 +1,152 @@
+package br.org.rh.config.audit;
+
+import br.org.rh.domain.EntityAuditEvent;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out the commit versions of the entity audit events.
+ *
+ * <p>
+ * The last version of each audited entity is kept in a Hazelcast map, so versions are unique in the whole cluster
+ * and are given without querying the jhi_entity_audit_event table. Entities missing from the map (never seen since
+ * the cluster started, or evicted) are seeded from the table, with a single query per entity type and batch.
+ * <p>
+ * Events of versioned entities already have the commit version derived from the entity version, and are skipped.
+ */
+@Component
+public class EntityAuditVersionSequencer {
+
+    public static final String COMMIT_VERSIONS = "audit-commit-versions";
+
+    private static final String MAX_COMMIT_VERSIONS_SQL = "SELECT entity_id, max(commit_version) " +
+        "FROM jhi_entity_audit_event WHERE entity_type = :type AND entity_id IN (:ids) GROUP BY entity_id";
+
+    private final Logger log = LoggerFactory.getLogger(EntityAuditVersionSequencer.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final HazelcastInstance hazelcastInstance;
+
+    @Inject
+    public EntityAuditVersionSequencer(DataSource dataSource, HazelcastInstance hazelcastInstance) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.hazelcastInstance = hazelcastInstance;
+    }
+
+    /**
+     * Set the commit version of the audit events of a batch which have none, in the order of the batch.
+     *
+     * @param auditEvents the audit events
+     */
+    public void assignVersions(List<EntityAuditEvent> auditEvents) {
+        List<EntityAuditEvent> batch = auditEvents.stream()
+            .filter(auditedEntity -> auditedEntity.getCommitVersion() == null)
+            .collect(Collectors.toList());
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, VersionRequest> requests = new LinkedHashMap<>();
+        for (EntityAuditEvent auditedEntity : batch) {
+            VersionRequest request = requests.computeIfAbsent(key(auditedEntity), key -> new VersionRequest());
+            if (EntityAuditAction.CREATE.value().equals(auditedEntity.getAction()) && request.count == 0) {
+                request.created = true;
+            }
+            request.count++;
+        }
+        IMap<String, Integer> versions = hazelcastInstance.getMap(COMMIT_VERSIONS);
+        seed(batch, requests, versions.getAll(requests.keySet()).keySet());
+
+        Map<String, Object> lastVersions = versions.executeOnKeys(requests.keySet(), new IncrementProcessor(requests));
+        Map<String, Integer> nextVersions = new HashMap<>();
+        for (EntityAuditEvent auditedEntity : batch) {
+            String key = key(auditedEntity);
+            int version = nextVersions.computeIfAbsent(key,
+                k -> (Integer) lastVersions.get(k) - requests.get(k).count + 1);
+            auditedEntity.setCommitVersion(version);
+            nextVersions.put(key, version + 1);
+        }
+    }
+
+    /**
+     * Read the last versions of the entities which are not in the map yet.
+     */
+    private void seed(List<EntityAuditEvent> batch, Map<String, VersionRequest> requests, Set<String> knownKeys) {
+        Map<String, Set<Long>> idsByType = batch.stream()
+            .filter(auditedEntity -> !knownKeys.contains(key(auditedEntity)))
+            .filter(auditedEntity -> !requests.get(key(auditedEntity)).created)
+            .collect(Collectors.groupingBy(EntityAuditEvent::getEntityType,
+                Collectors.mapping(EntityAuditEvent::getEntityId, Collectors.toSet())));
+        idsByType.forEach((type, ids) -> {
+            log.trace("Seeding commit versions of {} {} entities", ids.size(), type);
+            jdbcTemplate.query(MAX_COMMIT_VERSIONS_SQL, new MapSqlParameterSource("type", type).addValue("ids", ids),
+                rs -> {
+                    requests.get(type + "#" + rs.getLong(1)).seed = rs.getInt(2);
+                });
+        });
+    }
+
+    private static String key(EntityAuditEvent auditedEntity) {
+        return auditedEntity.getEntityType() + "#" + auditedEntity.getEntityId();
+    }
+
+    /**
+     * Versions requested for one entity in a batch.
+     */
+    static class VersionRequest implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Whether the batch starts with the creation of the entity, in which case versions restart at 1.
+         */
+        boolean created;
+
+        /**
+         * Last version in the database, used when the entity is not in the map.
+         */
+        int seed;
+
+        int count;
+    }
+
+    /**
+     * Reserve the requested number of versions, and return the last one.
+     */
+    static class IncrementProcessor extends AbstractEntryProcessor<String, Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, VersionRequest> requests;
+
+        IncrementProcessor(Map<String, VersionRequest> requests) {
+            this.requests = new HashMap<>(requests);
+        }
+
+        @Override
+        public Object process(Map.Entry<String, Integer> entry) {
+            VersionRequest request = requests.get(entry.getKey());
+            int last;
+            if (request.created) {
+                last = 0;
+            } else if (entry.getValue() != null) {
+                last = entry.getValue();
+            } else {
+                last = request.seed;
+            }
+            entry.setValue(last + request.count);
+            return entry.getValue();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package br.org.rh.config.hazelcast;
 
+import com.codahale.metrics.MetricRegistry;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.hibernate.HazelcastTimestamper;
+import com.hazelcast.hibernate.RegionCache;
+import com.hazelcast.hibernate.distributed.IMapRegionCache;
 import com.hazelcast.hibernate.local.CleanupService;
 import com.hazelcast.hibernate.local.LocalRegionCache;
 import com.hazelcast.hibernate.local.TimestampsRegionCache;
@@ -22,11 +25,14 @@ public class HazelcastCacheRegionFactory implements RegionFactory {
 
     private HazelcastInstance hazelcastInstance;
 
+    private MetricRegistry metricRegistry;
+
     private CleanupService cleanupService;
 
     public HazelcastCacheRegionFactory() {
         super();
         hazelcastInstance = CacheConfiguration.getHazelcastInstance();
+        metricRegistry = CacheConfiguration.getMetricRegistry();
     }
 
     /**
@@ -51,21 +57,36 @@ public class HazelcastCacheRegionFactory implements RegionFactory {
     public CollectionRegion buildCollectionRegion(String regionName, Properties properties,
                                                   CacheDataDescription metadata) throws CacheException {
 
-        HazelcastCollectionRegion<LocalRegionCache> region = new HazelcastCollectionRegion<>(hazelcastInstance,
-                regionName, properties, metadata, new LocalRegionCache(regionName, hazelcastInstance, metadata));
-
-        cleanupService.registerCache(region.getCache());
-        return region;
+        return new HazelcastCollectionRegion<>(hazelcastInstance, regionName, properties, metadata,
+                buildRegionCache(regionName, properties, metadata));
     }
 
     public EntityRegion buildEntityRegion(String regionName, Properties properties,
                                           CacheDataDescription metadata) throws CacheException {
 
-        HazelcastEntityRegion<LocalRegionCache> region = new HazelcastEntityRegion<>(hazelcastInstance,
-                regionName, properties, metadata, new LocalRegionCache(regionName, hazelcastInstance, metadata));
+        return new HazelcastEntityRegion<>(hazelcastInstance, regionName, properties, metadata,
+                buildRegionCache(regionName, properties, metadata));
+    }
 
-        cleanupService.registerCache(region.getCache());
-        return region;
+    /**
+     * Regions whose map is configured with a near cache (see jhipster.cache.nearCache) are stored in the distributed
+     * map, read through the near cache of each node. The others are local to each node, kept consistent with
+     * invalidation messages. Both are wrapped to record the region metrics.
+     */
+    private RegionCache buildRegionCache(String regionName, Properties properties, CacheDataDescription metadata) {
+        RegionCache cache;
+        if (hazelcastInstance.getConfig().findMapConfig(regionName).getNearCacheConfig() != null) {
+            log.debug("Using a near-cached distributed map for the {} region", regionName);
+            cache = new IMapRegionCache(regionName, hazelcastInstance, properties, metadata);
+        } else {
+            LocalRegionCache localCache = new LocalRegionCache(regionName, hazelcastInstance, metadata);
+            cleanupService.registerCache(localCache);
+            cache = localCache;
+        }
+        if (metricRegistry == null) {
+            return cache;
+        }
+        return new InstrumentedRegionCache(cache, regionName, metricRegistry);
     }
 
     public TimestampsRegion buildTimestampsRegion(String regionName, Properties properties)
@@ -88,6 +109,9 @@ public class HazelcastCacheRegionFactory implements RegionFactory {
         // Do nothing the hazelcast instance is managed globally
         log.info("Shutting down {}", getClass().getSimpleName());
         cleanupService.stop();
+        if (metricRegistry != null) {
+            metricRegistry.removeMatching((name, metric) -> name.startsWith(InstrumentedRegionCache.METRIC_PREFIX));
+        }
     }
 
     public AccessType getDefaultAccessType() {
@@ -0,0 +1,149 @@
+package br.org.rh.config.hazelcast;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.hazelcast.hibernate.RegionCache;
+import org.hibernate.cache.spi.access.SoftLock;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegionCache recording the activity of a Hibernate second-level cache region in the metric registry.
+ *
+ * <p>
+ * Metrics are named "hibernate.cache.&lt;region&gt;.&lt;metric&gt;": hits, misses, puts and evictions (entries
+ * removed by Hibernate, or the whole region cleared) are counters; entries, heap-size and hit-ratio are gauges.
+ * The size gauges are cached for {@link #SIZE_REFRESH_SECONDS} seconds, as computing them may involve the cluster.
+ */
+public class InstrumentedRegionCache implements RegionCache {
+
+    public static final String METRIC_PREFIX = "hibernate.cache.";
+
+    private static final long SIZE_REFRESH_SECONDS = 10;
+
+    private final RegionCache delegate;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter puts;
+
+    private final Counter evictions;
+
+    public InstrumentedRegionCache(RegionCache delegate, String regionName, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        String prefix = METRIC_PREFIX + regionName;
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix + "."));
+        hits = metricRegistry.counter(MetricRegistry.name(prefix, "hits"));
+        misses = metricRegistry.counter(MetricRegistry.name(prefix, "misses"));
+        puts = metricRegistry.counter(MetricRegistry.name(prefix, "puts"));
+        evictions = metricRegistry.counter(MetricRegistry.name(prefix, "evictions"));
+        metricRegistry.register(MetricRegistry.name(prefix, "entries"),
+            new CachedGauge<Long>(SIZE_REFRESH_SECONDS, TimeUnit.SECONDS) {
+                @Override
+                protected Long loadValue() {
+                    return delegate.size();
+                }
+            });
+        metricRegistry.register(MetricRegistry.name(prefix, "heap-size"),
+            new CachedGauge<Long>(SIZE_REFRESH_SECONDS, TimeUnit.SECONDS) {
+                @Override
+                protected Long loadValue() {
+                    return delegate.getSizeInMemory();
+                }
+            });
+        metricRegistry.register(MetricRegistry.name(prefix, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hitCount = hits.getCount();
+                return Ratio.of(hitCount, hitCount + misses.getCount());
+            }
+        });
+    }
+
+    public RegionCache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Object get(Object key, long txTimestamp) {
+        Object value = delegate.get(key, txTimestamp);
+        if (value == null) {
+            misses.inc();
+        } else {
+            hits.inc();
+        }
+        return value;
+    }
+
+    @Override
+    public boolean insert(Object key, Object value, Object currentVersion) {
+        return countPut(delegate.insert(key, value, currentVersion));
+    }
+
+    @Override
+    public boolean put(Object key, Object value, long txTimestamp, Object version) {
+        return countPut(delegate.put(key, value, txTimestamp, version));
+    }
+
+    @Override
+    public boolean update(Object key, Object newValue, Object newVersion, SoftLock lock) {
+        return countPut(delegate.update(key, newValue, newVersion, lock));
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        boolean removed = delegate.remove(key);
+        if (removed) {
+            evictions.inc();
+        }
+        return removed;
+    }
+
+    @Override
+    public SoftLock tryLock(Object key, Object version) {
+        return delegate.tryLock(key, version);
+    }
+
+    @Override
+    public void unlock(Object key, SoftLock lock) {
+        delegate.unlock(key, lock);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return delegate.contains(key);
+    }
+
+    @Override
+    public void clear() {
+        evictions.inc(delegate.size());
+        delegate.clear();
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long getSizeInMemory() {
+        return delegate.getSizeInMemory();
+    }
+
+    @Override
+    public Map asMap() {
+        return delegate.asMap();
+    }
+
+    private boolean countPut(boolean stored) {
+        if (stored) {
+            puts.inc();
+        }
+        return stored;
+    }
+}
@@ -15,10 +15,11 @@ import java.time.ZonedDateTime;
 import javax.persistence.Column;
 import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Version;
 
 /**
  * Base abstract class for entities which will hold definitions for created, last modified by and created,
- * last modified by date.
+ * last modified by date, and the version used for optimistic locking.
  */
 @MappedSuperclass
 @Audited
@@ -47,6 +48,10 @@ public abstract class AbstractAuditingEntity implements Serializable {
     
     private ZonedDateTime lastModifiedDate = ZonedDateTime.now();
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public String getCreatedBy() {
         return createdBy;
     }
@@ -78,4 +83,12 @@ public abstract class AbstractAuditingEntity implements Serializable {
     public void setLastModifiedDate(ZonedDateTime lastModifiedDate) {
         this.lastModifiedDate = lastModifiedDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
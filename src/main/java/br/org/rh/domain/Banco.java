@@ -2,7 +2,11 @@ package br.org.rh.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -15,7 +19,10 @@ import java.util.Objects;
 @Entity
 @Table(name = "banco")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@NaturalIdCache
 @Document(indexName = "banco")
+@Setting(settingPath = "/config/elasticsearch/autocomplete-settings.json")
+@Mapping(mappingPath = "/config/elasticsearch/mappings/banco.json")
 public class Banco extends AbstractAuditingEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -25,6 +32,7 @@ public class Banco extends AbstractAuditingEntity implements Serializable {
     private Long id;
 
     @NotNull
+    @NaturalId(mutable = true)
     @Column(name = "codigo", nullable = false)
     private String codigo;
 
@@ -3,6 +3,8 @@ package br.org.rh.domain;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -16,6 +18,8 @@ import java.util.Objects;
 @Table(name = "cargo")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Document(indexName = "cargo")
+@Setting(settingPath = "/config/elasticsearch/autocomplete-settings.json")
+@Mapping(mappingPath = "/config/elasticsearch/mappings/cargo.json")
 public class Cargo extends AbstractAuditingEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
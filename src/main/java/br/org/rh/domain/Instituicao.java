@@ -2,7 +2,11 @@ package br.org.rh.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -15,7 +19,10 @@ import java.util.Objects;
 @Entity
 @Table(name = "instituicao")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@NaturalIdCache
 @Document(indexName = "instituicao")
+@Setting(settingPath = "/config/elasticsearch/autocomplete-settings.json")
+@Mapping(mappingPath = "/config/elasticsearch/mappings/instituicao.json")
 public class Instituicao extends AbstractAuditingEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -25,6 +32,7 @@ public class Instituicao extends AbstractAuditingEntity implements Serializable
     private Long id;
 
     @NotNull
+    @NaturalId(mutable = true)
     @Column(name = "sigla", nullable = false)
     private String sigla;
 
@@ -0,0 +1,163 @@
+package br.org.rh.domain;
+
+import br.org.rh.domain.enumeration.SearchOutboxAction;
+
+import java.time.ZonedDateTime;
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * An entity waiting to be indexed in (or removed from) ElasticSearch.
+ *
+ * Rows are written in the same transaction as the entity itself, and removed once the
+ * SearchOutboxService has sent them to ElasticSearch. Rows which failed too many times are marked
+ * as dead and kept, until they are retried by hand (by clearing the flag) or deleted.
+ */
+@Entity
+@Table(name = "search_outbox_event")
+public class SearchOutboxEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "entity_type", length = 255, nullable = false)
+    private String entityType;
+
+    @NotNull
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", length = 20, nullable = false)
+    private SearchOutboxAction action;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private ZonedDateTime createdDate = ZonedDateTime.now();
+
+    @NotNull
+    @Column(name = "next_attempt_date", nullable = false)
+    private ZonedDateTime nextAttemptDate = createdDate;
+
+    @Column(name = "dead", nullable = false)
+    private boolean dead;
+
+    public SearchOutboxEvent() {
+    }
+
+    public SearchOutboxEvent(String entityType, Long entityId, SearchOutboxAction action) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.action = action;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public SearchOutboxAction getAction() {
+        return action;
+    }
+
+    public void setAction(SearchOutboxAction action) {
+        this.action = action;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(ZonedDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(ZonedDateTime nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
+    public void setDead(boolean dead) {
+        this.dead = dead;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SearchOutboxEvent searchOutboxEvent = (SearchOutboxEvent) o;
+        if (searchOutboxEvent.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, searchOutboxEvent.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchOutboxEvent{" +
+            "id=" + id +
+            ", entityType='" + entityType + "'" +
+            ", entityId='" + entityId + "'" +
+            ", action='" + action + "'" +
+            ", attempts='" + attempts + "'" +
+            ", createdDate='" + createdDate + "'" +
+            ", nextAttemptDate='" + nextAttemptDate + "'" +
+            ", dead='" + dead + "'" +
+            '}';
+    }
+}
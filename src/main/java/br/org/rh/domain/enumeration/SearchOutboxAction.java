@@ -0,0 +1,8 @@
+package br.org.rh.domain.enumeration;
+
+/**
+ * The SearchOutboxAction enumeration.
+ */
+public enum SearchOutboxAction {
+    INDEX, DELETE
+}
@@ -2,6 +2,9 @@ package br.org.rh.repository;
 
 import br.org.rh.domain.Banco;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 
 import java.util.List;
@@ -12,4 +15,8 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface BancoRepository extends JpaRepository<Banco,Long> {
 
+    Slice<Banco> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Page<Banco> findAllByCodigoStartingWithOrNomeStartingWith(String codigo, String nome, Pageable pageable);
+
 }
@@ -3,10 +3,14 @@ package br.org.rh.repository;
 import br.org.rh.domain.EntityAuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,9 +28,19 @@ public interface EntityAuditEventRepository extends JpaRepository<EntityAuditEve
 
     Page<EntityAuditEvent> findAllByEntityType(String entityType, Pageable pageRequest);
 
+    Slice<EntityAuditEvent> findAllByEntityTypeAndIdLessThanOrderByIdDesc(String entityType, Long id, Pageable pageable);
+
+    long countByEntityType(String entityType);
+
     @Query("SELECT ae FROM EntityAuditEvent ae where ae.entityType = :type and ae.entityId = :entityId and " +
         "ae.commitVersion =(SELECT max(a.commitVersion) FROM EntityAuditEvent a where a.entityType = :type and " +
         "a.entityId = :entityId and a.commitVersion < :commitVersion)")
     EntityAuditEvent findOneByEntityTypeAndEntityIdAndCommitVersion(@Param("type") String type, @Param("entityId")
     Long entityId, @Param("commitVersion") Integer commitVersion);
+
+    List<EntityAuditEvent> findAllByModifiedDateBeforeOrderByIdAsc(ZonedDateTime modifiedDate, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EntityAuditEvent ae where ae.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
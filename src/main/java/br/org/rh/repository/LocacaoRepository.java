@@ -2,6 +2,9 @@ package br.org.rh.repository;
 
 import br.org.rh.domain.Locacao;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 
 import java.util.List;
@@ -12,4 +15,8 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface LocacaoRepository extends JpaRepository<Locacao,Long> {
 
+    Slice<Locacao> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Page<Locacao> findAllByNomeStartingWith(String nome, Pageable pageable);
+
 }
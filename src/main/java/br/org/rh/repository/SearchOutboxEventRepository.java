@@ -0,0 +1,24 @@
+package br.org.rh.repository;
+
+import br.org.rh.domain.SearchOutboxEvent;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the SearchOutboxEvent entity.
+ */
+public interface SearchOutboxEventRepository extends JpaRepository<SearchOutboxEvent, Long> {
+
+    @Query("SELECT e FROM SearchOutboxEvent e where e.dead = false and e.nextAttemptDate <= :now order by e.id")
+    List<SearchOutboxEvent> findAllDue(@Param("now") ZonedDateTime now, Pageable pageable);
+
+    SearchOutboxEvent findFirstByDeadFalseAndNextAttemptDateLessThanEqualOrderByNextAttemptDateAsc(ZonedDateTime now);
+
+    long countByDeadFalse();
+}
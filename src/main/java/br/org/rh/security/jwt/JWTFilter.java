@@ -35,8 +35,8 @@ public class JWTFilter extends GenericFilterBean {
             HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
             String jwt = resolveToken(httpServletRequest);
             if (StringUtils.hasText(jwt)) {
-                if (this.tokenProvider.validateToken(jwt)) {
-                    Authentication authentication = this.tokenProvider.getAuthentication(jwt);
+                Authentication authentication = this.tokenProvider.getAuthentication(jwt);
+                if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             }
@@ -47,7 +47,11 @@ public class JWTFilter extends GenericFilterBean {
         }
     }
 
-    private String resolveToken(HttpServletRequest request){
+    /**
+     * @param request the request
+     * @return the JWT token of the Authorization header of the request, or null if there is none
+     */
+    public static String resolveToken(HttpServletRequest request){
         String bearerToken = request.getHeader(JWTConfigurer.AUTHORIZATION_HEADER);
         if(StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")){
             String jwt = bearerToken.substring(7, bearerToken.length());
@@ -0,0 +1,166 @@
+package br.org.rh.security.jwt;
+
+import br.org.rh.config.JHipsterProperties;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.RSAPrivateKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The keys of the RS256 JWT tokens, read from a local file in the JSON Web Key Set format (RFC 7517).
+ *
+ * <p>
+ * Each key of the set has a "kid", matched against the "kid" header of the tokens to select the verification key.
+ * The first key with a private part ("d") signs the tokens created by this node. The file is reloaded when it
+ * changes: a key is rotated by adding the new key first, and removing the old one once its tokens expired.
+ * <p>
+ * All the keys must be usable with jhipster.security.authentication.jwt.algorithm: a key set with a key of another
+ * type ("kty"), or for another algorithm ("alg"), is rejected as a whole.
+ */
+@Component
+public class JsonWebKeyStore {
+
+    private final Logger log = LoggerFactory.getLogger(JsonWebKeyStore.class);
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    private volatile Keys keys = new Keys(Collections.emptyMap(), null, null, 0, 0);
+
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        String keystore = jHipsterProperties.getSecurity().getAuthentication().getJwt().getKeystore();
+        if (keystore != null) {
+            keys = load(new File(keystore));
+        }
+    }
+
+    /**
+     * Reload the key set if the file changed since it was read, keeping the current keys if it is invalid.
+     */
+    @Scheduled(fixedDelayString = "${jhipster.security.authentication.jwt.keystoreRefreshDelay:60000}")
+    public void refresh() {
+        String keystore = jHipsterProperties.getSecurity().getAuthentication().getJwt().getKeystore();
+        if (keystore == null || new File(keystore).lastModified() == keys.lastModified) {
+            return;
+        }
+        try {
+            keys = load(new File(keystore));
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.error("Could not reload the JWT keys from {}, keeping the current keys: {}", keystore, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of times the key set was loaded, to detect key changes
+     */
+    public int getVersion() {
+        return keys.version;
+    }
+
+    /**
+     * @param kid the id of the key
+     * @return the public key, or null if there is no key with this id
+     */
+    public PublicKey getVerificationKey(String kid) {
+        return kid == null ? null : keys.verificationKeys.get(kid);
+    }
+
+    /**
+     * @return the id of the key signing the tokens, or null if the key set has no private key
+     */
+    public String getSigningKeyId() {
+        return keys.signingKeyId;
+    }
+
+    /**
+     * @return the private key signing the tokens, or null if the key set has no private key
+     */
+    public PrivateKey getSigningKey() {
+        return keys.signingKey;
+    }
+
+    private Keys load(File file) throws IOException, GeneralSecurityException {
+        String algorithm = jHipsterProperties.getSecurity().getAuthentication().getJwt().getAlgorithm();
+        long lastModified = file.lastModified();
+        JsonNode keySet = objectMapper.readTree(file);
+        Map<String, PublicKey> verificationKeys = new HashMap<>();
+        String signingKeyId = null;
+        PrivateKey signingKey = null;
+        for (JsonNode jwk : keySet.path("keys")) {
+            String kid = jwk.path("kid").asText(null);
+            if (kid == null) {
+                throw new IllegalArgumentException("Key without kid in " + file);
+            }
+            String kty = jwk.path("kty").asText();
+            // RSA keys are the only keys of the supported algorithms, and only the RS algorithms use them
+            if (!"RSA".equals(kty) || !algorithm.startsWith("RS")) {
+                throw new IllegalArgumentException("Key " + kid + " of type " + kty + " cannot be used with " + algorithm);
+            }
+            if (jwk.has("alg") && !algorithm.equals(jwk.path("alg").asText())) {
+                throw new IllegalArgumentException("Key " + kid + " is for " + jwk.path("alg").asText() + ", not " +
+                    algorithm);
+            }
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            BigInteger modulus = decode(jwk, "n");
+            verificationKeys.put(kid, keyFactory.generatePublic(new RSAPublicKeySpec(modulus, decode(jwk, "e"))));
+            if (signingKey == null && jwk.has("d")) {
+                signingKeyId = kid;
+                signingKey = keyFactory.generatePrivate(new RSAPrivateKeySpec(modulus, decode(jwk, "d")));
+            }
+        }
+        log.info("Loaded {} JWT keys from {}, signing with key {}", verificationKeys.size(), file, signingKeyId);
+        return new Keys(verificationKeys, signingKeyId, signingKey, lastModified, keys.version + 1);
+    }
+
+    private static BigInteger decode(JsonNode jwk, String field) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path(field).asText()));
+    }
+
+    /**
+     * The immutable content of a key set.
+     */
+    private static final class Keys {
+
+        private final Map<String, PublicKey> verificationKeys;
+
+        private final String signingKeyId;
+
+        private final PrivateKey signingKey;
+
+        private final long lastModified;
+
+        private final int version;
+
+        Keys(Map<String, PublicKey> verificationKeys, String signingKeyId, PrivateKey signingKey, long lastModified,
+             int version) {
+            this.verificationKeys = verificationKeys;
+            this.signingKeyId = signingKeyId;
+            this.signingKey = signingKey;
+            this.lastModified = lastModified;
+            this.version = version;
+        }
+    }
+}
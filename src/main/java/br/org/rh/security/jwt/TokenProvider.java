@@ -2,13 +2,20 @@ package br.org.rh.security.jwt;
 
 import br.org.rh.config.JHipsterProperties;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -18,6 +25,19 @@ import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.*;
 
+/**
+ * Creates and verifies the JWT tokens.
+ *
+ * <p>
+ * Verified tokens are kept in memory until they expire, keyed by their SHA-256 hash, so the signature of a token is
+ * checked and its claims parsed once, and not on every request.
+ * <p>
+ * Tokens revoked with {@link #revokeToken(String)} are rejected on all the nodes, cached or not.
+ * <p>
+ * Tokens are signed with HS512 and the shared secret, or with RS256 and the keys of the {@link JsonWebKeyStore},
+ * selected by the "kid" header. The parser is built once and reused for all the tokens. ES256 is not supported, as
+ * jjwt 0.6 encodes the ECDSA signatures in DER instead of the R||S concatenation of RFC 7518.
+ */
 @Component
 public class TokenProvider {
 
@@ -31,9 +51,23 @@ public class TokenProvider {
 
     private long tokenValidityInSecondsForRememberMe;
 
+    private int cacheMaxSize;
+
+    private SignatureAlgorithm signatureAlgorithm;
+
+    private JwtParser jwtParser;
+
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
     @Inject
     private JHipsterProperties jHipsterProperties;
 
+    @Inject
+    private TokenRevocationList tokenRevocationList;
+
+    @Inject
+    private JsonWebKeyStore jsonWebKeyStore;
+
     @PostConstruct
     public void init() {
         this.secretKey =
@@ -43,6 +77,25 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInSecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
+        this.cacheMaxSize = jHipsterProperties.getSecurity().getAuthentication().getJwt().getCacheMaxSize();
+
+        this.signatureAlgorithm =
+            SignatureAlgorithm.forName(jHipsterProperties.getSecurity().getAuthentication().getJwt().getAlgorithm());
+        if (signatureAlgorithm == SignatureAlgorithm.HS512) {
+            this.jwtParser = Jwts.parser().setSigningKey(secretKey);
+        } else if (signatureAlgorithm == SignatureAlgorithm.RS256) {
+            if (jsonWebKeyStore.getVersion() == 0) {
+                throw new IllegalStateException("The " + signatureAlgorithm + " JWT algorithm requires a keystore");
+            }
+            this.jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return resolveVerificationKey(header);
+                }
+            });
+        } else {
+            throw new IllegalStateException("Unsupported JWT algorithm: " + signatureAlgorithm + ", use HS512 or RS256");
+        }
     }
 
     public String createToken(Authentication authentication, Boolean rememberMe) {
@@ -58,38 +111,167 @@ public class TokenProvider {
             validity = new Date(now + this.tokenValidityInSeconds);
         }
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
             .setSubject(authentication.getName())
             .claim(AUTHORITIES_KEY, authorities)
-            .signWith(SignatureAlgorithm.HS512, secretKey)
-            .setExpiration(validity)
-            .compact();
+            .setExpiration(validity);
+        if (signatureAlgorithm == SignatureAlgorithm.HS512) {
+            builder.signWith(SignatureAlgorithm.HS512, secretKey);
+        } else {
+            PrivateKey signingKey = jsonWebKeyStore.getSigningKey();
+            if (signingKey == null) {
+                throw new IllegalStateException("The JWT keystore has no private key to sign the tokens");
+            }
+            builder.setHeaderParam(JwsHeader.KEY_ID, jsonWebKeyStore.getSigningKeyId())
+                .signWith(signatureAlgorithm, signingKey);
+        }
+        return builder.compact();
     }
 
+    /**
+     * Get the authentication of a token, parsed and verified only if it is not in the cache.
+     *
+     * @param token the token
+     * @return the authentication, or null if the signature of the token is invalid or if the token was revoked
+     * @throws ExpiredJwtException if the token is expired
+     */
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parser()
-            .setSigningKey(secretKey)
-            .parseClaimsJws(token)
-            .getBody();
+        String key = hash(token);
+        if (tokenRevocationList.isRevoked(key)) {
+            verifiedTokens.remove(key);
+            return null;
+        }
+        VerifiedToken verifiedToken = verifiedTokens.get(key);
+        if (verifiedToken == null || verifiedToken.isExpired(System.currentTimeMillis()) ||
+            verifiedToken.keysVersion != jsonWebKeyStore.getVersion()) {
+            verifiedToken = verify(token);
+            if (verifiedToken == null) {
+                return null;
+            }
+            cache(key, verifiedToken);
+        }
+        return new UsernamePasswordAuthenticationToken(verifiedToken.principal, "", verifiedToken.authorities);
+    }
+
+    public boolean validateToken(String authToken) {
+        return getAuthentication(authToken) != null;
+    }
+
+    /**
+     * Revoke a token until it expires, on all the nodes.
+     *
+     * @param token the token
+     * @return true if the token was revoked, false if it is invalid or if it already expired
+     */
+    public boolean revokeToken(String token) {
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.info("Invalid JWT token: " + e.getMessage());
+            return false;
+        }
+        if (verifiedToken == null || verifiedToken.expiration == 0) {
+            return false;
+        }
+        String key = hash(token);
+        tokenRevocationList.revoke(key, verifiedToken.expiration);
+        verifiedTokens.remove(key);
+        return true;
+    }
+
+    /**
+     * Remove the expired tokens from the cache.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void removeExpiredTokens() {
+        long now = System.currentTimeMillis();
+        verifiedTokens.values().removeIf(verifiedToken -> verifiedToken.isExpired(now));
+    }
 
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.asList(claims.get(AUTHORITIES_KEY).toString().split(",")).stream()
+    private VerifiedToken verify(String token) {
+        int keysVersion = jsonWebKeyStore.getVersion();
+        Claims claims;
+        try {
+            claims = jwtParser
+                .parseClaimsJws(token)
+                .getBody();
+        } catch (SignatureException e) {
+            log.info("Invalid JWT signature: " + e.getMessage());
+            return null;
+        }
+
+        List<GrantedAuthority> authorities =
+            Collections.unmodifiableList(Arrays.asList(claims.get(AUTHORITIES_KEY).toString().split(",")).stream()
                 .map(authority -> new SimpleGrantedAuthority(authority))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
 
         User principal = new User(claims.getSubject(), "",
             authorities);
 
-        return new UsernamePasswordAuthenticationToken(principal, "", authorities);
+        long expiration = claims.getExpiration() != null ? claims.getExpiration().getTime() : 0;
+        return new VerifiedToken(principal, authorities, expiration, keysVersion);
     }
 
-    public boolean validateToken(String authToken) {
+    private Key resolveVerificationKey(JwsHeader header) {
+        if (!signatureAlgorithm.getValue().equals(header.getAlgorithm())) {
+            throw new SignatureException("Unexpected JWT algorithm: " + header.getAlgorithm());
+        }
+        Key key = jsonWebKeyStore.getVerificationKey(header.getKeyId());
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key: " + header.getKeyId());
+        }
+        return key;
+    }
+
+    private void cache(String key, VerifiedToken verifiedToken) {
+        if (verifiedToken.expiration == 0) {
+            return;
+        }
+        if (verifiedTokens.size() >= cacheMaxSize) {
+            removeExpiredTokens();
+            if (verifiedTokens.size() >= cacheMaxSize) {
+                log.debug("JWT cache is full, with {} tokens", verifiedTokens.size());
+                return;
+            }
+        }
+        verifiedTokens.put(key, verifiedToken);
+    }
+
+    private static String hash(String token) {
         try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(authToken);
-            return true;
-        } catch (SignatureException e) {
-            log.info("Invalid JWT signature: " + e.getMessage());
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The immutable result of the verification of a token.
+     */
+    private static final class VerifiedToken {
+
+        private final User principal;
+
+        private final List<GrantedAuthority> authorities;
+
+        private final long expiration;
+
+        /**
+         * The version of the key set the token was verified with: tokens are verified again when the keys change.
+         */
+        private final int keysVersion;
+
+        VerifiedToken(User principal, List<GrantedAuthority> authorities, long expiration, int keysVersion) {
+            this.principal = principal;
+            this.authorities = authorities;
+            this.expiration = expiration;
+            this.keysVersion = keysVersion;
+        }
+
+        boolean isExpired(long now) {
+            return expiration <= now;
         }
     }
 }
@@ -0,0 +1,153 @@
+package br.org.rh.security.jwt;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.listener.EntryAddedListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The JWT tokens revoked before their expiration, on all the nodes of the cluster.
+ *
+ * <p>
+ * Revoked tokens are stored in a Hazelcast map, keyed by the SHA-256 hash of the token, until they expire. Each node
+ * keeps a Bloom filter of the keys of the map, updated by a map listener: a token which is not in the filter is not
+ * revoked, which is answered without any network call. Only the tokens in the filter, revoked tokens and a small
+ * rate of false positives, are checked against the map.
+ *
+ * <p>
+ * Keys cannot be removed from a Bloom filter, so it is rebuilt from the map every hour, to forget the expired tokens.
+ */
+@Component
+public class TokenRevocationList {
+
+    public static final String REVOKED_TOKENS = "jwt-revoked-tokens";
+
+    /**
+     * Number of bits of the Bloom filter: 128 KB per node, for a false positive rate of 0.05% with 50000 revoked
+     * tokens.
+     */
+    private static final int BLOOM_FILTER_BITS = 1 << 20;
+
+    private static final int BLOOM_FILTER_HASHES = 5;
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private IMap<String, Long> revokedTokens;
+
+    private volatile BloomFilter bloomFilter = new BloomFilter();
+
+    /**
+     * The filter being rebuilt, which also receives the keys added during the rebuild.
+     */
+    private volatile BloomFilter nextBloomFilter;
+
+    @PostConstruct
+    public void init() {
+        revokedTokens = hazelcastInstance.getMap(REVOKED_TOKENS);
+        revokedTokens.addEntryListener((EntryAddedListener<String, Long>) event -> add(event.getKey()), false);
+        rebuildBloomFilter();
+    }
+
+    /**
+     * Revoke a token on all the nodes.
+     *
+     * @param tokenHash the SHA-256 hash of the token, encoded in Base64
+     * @param expiration the expiration date of the token, in milliseconds since the epoch
+     */
+    public void revoke(String tokenHash, long expiration) {
+        long timeToLive = expiration - System.currentTimeMillis();
+        if (timeToLive <= 0) {
+            return;
+        }
+        log.debug("Revoking a token until {}", expiration);
+        revokedTokens.put(tokenHash, expiration, timeToLive, TimeUnit.MILLISECONDS);
+        add(tokenHash);
+    }
+
+    /**
+     * @param tokenHash the SHA-256 hash of the token, encoded in Base64
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(String tokenHash) {
+        return bloomFilter.mightContain(tokenHash) && revokedTokens.containsKey(tokenHash);
+    }
+
+    /**
+     * Rebuild the Bloom filter from the map, without the tokens which expired.
+     */
+    @Scheduled(initialDelay = 3600000, fixedDelay = 3600000)
+    public synchronized void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter();
+        nextBloomFilter = rebuilt;
+        int count = 0;
+        for (String tokenHash : revokedTokens.keySet()) {
+            rebuilt.add(tokenHash);
+            count++;
+        }
+        bloomFilter = rebuilt;
+        nextBloomFilter = null;
+        log.debug("Rebuilt the Bloom filter of the revoked tokens, with {} tokens", count);
+    }
+
+    private void add(String tokenHash) {
+        // Read before the current filter: a key missed by a rebuild is always added to the rebuilt filter
+        BloomFilter rebuilt = nextBloomFilter;
+        bloomFilter.add(tokenHash);
+        if (rebuilt != null) {
+            rebuilt.add(tokenHash);
+        }
+    }
+
+    /**
+     * Bloom filter of token hashes, whose bit indexes are read from the hash itself.
+     */
+    static class BloomFilter {
+
+        private final AtomicLongArray bits = new AtomicLongArray(BLOOM_FILTER_BITS / 64);
+
+        void add(String tokenHash) {
+            byte[] digest = Base64.getDecoder().decode(tokenHash);
+            for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                int index = index(digest, i);
+                long mask = 1L << (index & 63);
+                long word;
+                do {
+                    word = bits.get(index >>> 6);
+                } while ((word & mask) == 0 && !bits.compareAndSet(index >>> 6, word, word | mask));
+            }
+        }
+
+        boolean mightContain(String tokenHash) {
+            byte[] digest = Base64.getDecoder().decode(tokenHash);
+            for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                int index = index(digest, i);
+                if ((bits.get(index >>> 6) & (1L << (index & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The i-th bit index of a hash, read from its bytes 4 * i to 4 * i + 3.
+         */
+        private static int index(byte[] digest, int i) {
+            int offset = 4 * i;
+            int value = (digest[offset] & 0xff) << 24 | (digest[offset + 1] & 0xff) << 16 |
+                (digest[offset + 2] & 0xff) << 8 | (digest[offset + 3] & 0xff);
+            return value & (BLOOM_FILTER_BITS - 1);
+        }
+    }
+}
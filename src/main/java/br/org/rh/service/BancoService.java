@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Banco;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface BancoService {
      */
     Banco save(Banco banco);
 
+    /**
+     * Save a list of bancos in a single transaction.
+     *
+     * @param bancos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Banco> saveAll(List<Banco> bancos);
+
     /**
      *  Get all the bancos.
      *  
@@ -27,6 +36,22 @@ public interface BancoService {
      */
     Page<Banco> findAll(Pageable pageable);
 
+    /**
+     *  Get the bancos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Banco> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the bancos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" banco.
      *  
@@ -35,6 +60,30 @@ public interface BancoService {
      */
     Banco findOne(Long id);
 
+    /**
+     *  Get the bancos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Banco> findAll(List<Long> ids);
+
+    /**
+     *  Get the banco of a codigo, through the natural id cache.
+     *  
+     *  @param codigo the codigo of the entity
+     *  @return the entity, or null if there is none
+     */
+    Banco findOneByCodigo(String codigo);
+
+    /**
+     *  Get the bancos of a list of codigos, through the natural id cache.
+     *  
+     *  @param codigos the codigos of the entities
+     *  @return the entities found, in the order of their codigos
+     */
+    List<Banco> findAllByCodigo(List<String> codigos);
+
     /**
      *  Delete the "id" banco.
      *  
@@ -49,4 +98,14 @@ public interface BancoService {
      *  @return the list of entities
      */
     Page<Banco> search(String query, Pageable pageable);
+
+    /**
+     * Search for the bancos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Banco> searchAfter(String query, Long id, int size);
 }
@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Cargo;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface CargoService {
      */
     Cargo save(Cargo cargo);
 
+    /**
+     * Save a list of cargos in a single transaction.
+     *
+     * @param cargos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Cargo> saveAll(List<Cargo> cargos);
+
     /**
      *  Get all the cargos.
      *  
@@ -27,6 +36,22 @@ public interface CargoService {
      */
     Page<Cargo> findAll(Pageable pageable);
 
+    /**
+     *  Get the cargos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Cargo> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the cargos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" cargo.
      *  
@@ -35,6 +60,14 @@ public interface CargoService {
      */
     Cargo findOne(Long id);
 
+    /**
+     *  Get the cargos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Cargo> findAll(List<Long> ids);
+
     /**
      *  Delete the "id" cargo.
      *  
@@ -49,4 +82,14 @@ public interface CargoService {
      *  @return the list of entities
      */
     Page<Cargo> search(String query, Pageable pageable);
+
+    /**
+     * Search for the cargos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Cargo> searchAfter(String query, Long id, int size);
 }
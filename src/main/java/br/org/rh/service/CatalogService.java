@@ -0,0 +1,193 @@
+package br.org.rh.service;
+
+import br.org.rh.domain.*;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service building the catalog of the reference entities, returned in one response to the front-end.
+ *
+ * <p>
+ * The catalog is serialized once, as JSON and gzipped JSON, and kept until one of its entities changes on any node
+ * of the cluster (see {@link EntityChangeTracker}). Its ETag is a digest of the JSON content, so all the nodes give
+ * the same ETag to the same catalog.
+ */
+@Service
+public class CatalogService {
+
+    /**
+     * Entities of the catalog, by name of their list in the catalog.
+     */
+    public static final Map<String, Class<?>> CATALOG_ENTITIES;
+
+    static {
+        Map<String, Class<?>> entities = new LinkedHashMap<>();
+        entities.put("bancos", Banco.class);
+        entities.put("cargos", Cargo.class);
+        entities.put("escolaridades", Escolaridade.class);
+        entities.put("formacaos", Formacao.class);
+        entities.put("instituicaos", Instituicao.class);
+        entities.put("locacaos", Locacao.class);
+        entities.put("vinculos", Vinculo.class);
+        CATALOG_ENTITIES = Collections.unmodifiableMap(entities);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CatalogService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile Catalog catalog;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+        entityChangeTracker.addListener(entityType -> {
+            if (CATALOG_ENTITIES.values().stream().anyMatch(entityClass -> entityClass.getName().equals(entityType))) {
+                invalidations.incrementAndGet();
+                catalog = null;
+            }
+        });
+    }
+
+    /**
+     * Get the catalog, built again if an entity changed since it was last built.
+     *
+     * @return the catalog
+     */
+    public Catalog getCatalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            current = buildCatalog();
+        }
+        return current;
+    }
+
+    private synchronized Catalog buildCatalog() {
+        if (catalog != null) {
+            return catalog;
+        }
+        log.debug("Building the catalog");
+        long generation = invalidations.get();
+        Catalog built;
+        try {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+                generator.writeStartObject();
+                for (Map.Entry<String, Class<?>> entry : CATALOG_ENTITIES.entrySet()) {
+                    generator.writeFieldName(entry.getKey());
+                    objectMapper.writeValue(generator, readOnlyTransactionTemplate.execute(status -> entityManager
+                        .createQuery("select e from " + entry.getValue().getName() + " e order by e.id")
+                        .getResultList()));
+                }
+                generator.writeEndObject();
+            }
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.size() / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                json.writeTo(out);
+            }
+            built = new Catalog(json.toByteArray(), gzip.toByteArray(), digest(json.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // A catalog which may have missed a change is returned to the current request, but not kept
+        if (invalidations.get() == generation) {
+            catalog = built;
+        }
+        return built;
+    }
+
+    private String digest(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder etag = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++) {
+                etag.append(String.format("%02x", digest[i]));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The serialized catalog, which must not be modified.
+     */
+    public static class Catalog {
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private final String etag;
+
+        Catalog(byte[] json, byte[] gzip, String etag) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+
+        /**
+         * @return the catalog as JSON
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * @return the catalog as gzipped JSON
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * @return the strong ETag of the catalog, quoted
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the strong ETag of the gzipped catalog, quoted, which differs from the ETag of the JSON catalog
+         */
+        public String getGzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package br.org.rh.service;
+
+import br.org.rh.config.JHipsterProperties;
+import br.org.rh.domain.EntityAuditEvent;
+import br.org.rh.repository.EntityAuditEventRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service moving old entity audit events out of the jhi_entity_audit_event table.
+ *
+ * <p>
+ * Events older than jhipster.audit.archive.horizonDays are appended to compressed archive files, one file per entity
+ * type and month ("&lt;directory&gt;/&lt;entity type&gt;/yyyy-MM.ndjson.gz", one JSON event per line), then deleted
+ * from the table. Each run appends a new gzip member to the files, which are never rewritten. The archive directory
+ * should be shared by the nodes of the cluster, as only one node archives at a time.
+ * <p>
+ * Each archive file has a small JSON index next to it ("yyyy-MM.index.json"), holding the range of its event ids and
+ * the range of the commit versions of each entity, rewritten with the file. Lookups read the indexes, kept in memory
+ * until they change, and decompress only the files holding the events they need: a previous version is read from a
+ * single file.
+ */
+@Service
+public class EntityAuditArchiveService {
+
+    private static final String ARCHIVE_LOCK = "audit-archive";
+
+    private static final String ARCHIVE_EXTENSION = ".ndjson.gz";
+
+    private static final String INDEX_EXTENSION = ".index.json";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final Logger log = LoggerFactory.getLogger(EntityAuditArchiveService.class);
+
+    @Inject
+    private EntityAuditEventRepository entityAuditEventRepository;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Path, CachedIndex> indexes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Archive the events older than the horizon, unless another node is already doing it.
+     */
+    @Scheduled(initialDelay = 60000, fixedDelayString = "${jhipster.audit.archive.delay:3600000}")
+    public void scheduledArchive() {
+        if (!jHipsterProperties.getAudit().getArchive().isEnabled() ||
+            !hazelcastInstance.getLifecycleService().isRunning()) {
+            return;
+        }
+        ILock lock = hazelcastInstance.getLock(ARCHIVE_LOCK);
+        if (lock.tryLock()) {
+            try {
+                archive(ZonedDateTime.now().minusDays(jHipsterProperties.getAudit().getArchive().getHorizonDays()));
+            } catch (IOException e) {
+                log.error("Could not archive audit events", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Archive the events modified before a date.
+     *
+     * @param before the date before which events are archived
+     * @return the number of archived events
+     * @throws IOException if an archive file could not be written, in which case the events stay in the table
+     */
+    public long archive(ZonedDateTime before) throws IOException {
+        indexArchiveFiles();
+        int batchSize = jHipsterProperties.getAudit().getArchive().getBatchSize();
+        long archived = 0;
+        List<EntityAuditEvent> events;
+        do {
+            events = entityAuditEventRepository.findAllByModifiedDateBeforeOrderByIdAsc(before,
+                new PageRequest(0, batchSize));
+            if (events.isEmpty()) {
+                break;
+            }
+            Map<Path, List<EntityAuditEvent>> eventsByFile = events.stream()
+                .collect(Collectors.groupingBy(this::getArchiveFile, LinkedHashMap::new, Collectors.toList()));
+            for (Map.Entry<Path, List<EntityAuditEvent>> entry : eventsByFile.entrySet()) {
+                append(entry.getKey(), entry.getValue());
+                updateIndex(entry.getKey(), entry.getValue());
+            }
+            // Events are only deleted once written: a failure in between leaves duplicates, ignored when reading
+            List<Long> ids = events.stream().map(EntityAuditEvent::getId).collect(Collectors.toList());
+            transactionTemplate.execute(status -> entityAuditEventRepository.deleteByIdIn(ids));
+            archived += events.size();
+        } while (events.size() == batchSize);
+        if (archived > 0) {
+            log.info("Archived {} audit events modified before {}", archived, before);
+        }
+        return archived;
+    }
+
+    /**
+     * @return the entity types which have archived events
+     */
+    public List<String> findEntityTypes() {
+        Path directory = getArchiveDirectory();
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        List<String> entityTypes = new ArrayList<>();
+        try (DirectoryStream<Path> types = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            types.forEach(type -> entityTypes.add(type.getFileName().toString()));
+        } catch (IOException e) {
+            log.warn("Could not list the audit archive directory {}: {}", directory, e.getMessage());
+        }
+        return entityTypes;
+    }
+
+    /**
+     * Find the most recent archived events of an entity type.
+     *
+     * @param entityType the qualified name of the entity class
+     * @param beforeId only events with a lower id are returned, unless it is null
+     * @param limit the maximum number of events
+     * @return the events, most recent first
+     */
+    public List<EntityAuditEvent> findLatest(String entityType, Long beforeId, int limit) {
+        List<EntityAuditEvent> latest = new ArrayList<>();
+        for (Path file : getArchiveFiles(entityType)) {
+            ArchiveIndex index = getIndex(file);
+            if (index != null && (index.isEmpty() || beforeId != null && index.getMinId() >= beforeId)) {
+                continue;
+            }
+            List<EntityAuditEvent> events = read(file, event -> beforeId == null || event.getId() < beforeId);
+            Collections.reverse(events);
+            for (EntityAuditEvent event : events) {
+                if (latest.size() == limit) {
+                    return latest;
+                }
+                latest.add(event);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Read all the archived events of an entity type, oldest month first, one file at a time.
+     *
+     * @param entityType the qualified name of the entity class
+     * @param consumer receives the events
+     */
+    public void forEach(String entityType, Consumer<EntityAuditEvent> consumer) {
+        List<Path> files = getArchiveFiles(entityType);
+        Collections.reverse(files);
+        for (Path file : files) {
+            Set<Long> ids = new HashSet<>();
+            scan(file, event -> {
+                if (ids.add(event.getId())) {
+                    consumer.accept(event);
+                }
+            });
+        }
+    }
+
+    /**
+     * Find the archived version of an entity preceding a commit version.
+     *
+     * @param entityType the qualified name of the entity class
+     * @param entityId the id of the entity
+     * @param commitVersion the commit version
+     * @return the event with the highest commit version lower than commitVersion, or null
+     */
+    public EntityAuditEvent findPrevious(String entityType, Long entityId, Integer commitVersion) {
+        if (commitVersion <= 1) {
+            return null;
+        }
+        for (Path file : getArchiveFiles(entityType)) {
+            ArchiveIndex index = getIndex(file);
+            if (index != null) {
+                int[] versions = index.getVersions().get(entityId);
+                if (versions == null || versions[0] >= commitVersion) {
+                    continue;
+                }
+            }
+            Optional<EntityAuditEvent> previous = read(file, event -> entityId.equals(event.getEntityId()) &&
+                event.getCommitVersion() < commitVersion).stream()
+                .max(Comparator.comparing(EntityAuditEvent::getCommitVersion));
+            if (previous.isPresent()) {
+                return previous.get();
+            }
+        }
+        return null;
+    }
+
+    private Path getArchiveDirectory() {
+        return Paths.get(jHipsterProperties.getAudit().getArchive().getDirectory());
+    }
+
+    private Path getArchiveFile(EntityAuditEvent event) {
+        return getArchiveDirectory().resolve(event.getEntityType())
+            .resolve(event.getModifiedDate().withZoneSameInstant(ZoneOffset.UTC).format(MONTH_FORMAT) +
+                ARCHIVE_EXTENSION);
+    }
+
+    /**
+     * @return the archive files of an entity type, most recent month first
+     */
+    private List<Path> getArchiveFiles(String entityType) {
+        Path directory = getArchiveDirectory().resolve(entityType);
+        if (!directory.normalize().startsWith(getArchiveDirectory().normalize()) || !Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ARCHIVE_EXTENSION)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Could not list the audit archive directory {}: {}", directory, e.getMessage());
+        }
+        files.sort(Comparator.comparing(Path::getFileName).reversed());
+        return files;
+    }
+
+    private Path getIndexFile(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ARCHIVE_EXTENSION.length()) + INDEX_EXTENSION);
+    }
+
+    /**
+     * Index the archive files written before the indexes existed.
+     */
+    private void indexArchiveFiles() throws IOException {
+        for (String entityType : findEntityTypes()) {
+            for (Path file : getArchiveFiles(entityType)) {
+                if (!Files.exists(getIndexFile(file))) {
+                    writeIndex(file, buildIndex(file));
+                }
+            }
+        }
+    }
+
+    private void updateIndex(Path file, List<EntityAuditEvent> events) throws IOException {
+        Path indexFile = getIndexFile(file);
+        // An index built from the file already holds the appended events, which are added again harmlessly
+        ArchiveIndex index = Files.exists(indexFile) ? objectMapper.readValue(indexFile.toFile(), ArchiveIndex.class) :
+            buildIndex(file);
+        events.forEach(index::add);
+        writeIndex(file, index);
+    }
+
+    private void writeIndex(Path file, ArchiveIndex index) throws IOException {
+        Path indexFile = getIndexFile(file);
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            objectMapper.writeValue(tempFile.toFile(), index);
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private ArchiveIndex buildIndex(Path file) {
+        ArchiveIndex index = new ArchiveIndex();
+        scan(file, index::add);
+        return index;
+    }
+
+    /**
+     * Get the index of an archive file, read again only when it changed.
+     *
+     * @return the index, or null if it could not be read, in which case the whole file has to be read
+     */
+    private ArchiveIndex getIndex(Path file) {
+        Path indexFile = getIndexFile(file);
+        try {
+            boolean indexed = Files.exists(indexFile);
+            // Files archived before the indexes existed are indexed in memory until the next archive run
+            Path source = indexed ? indexFile : file;
+            FileTime modified = Files.getLastModifiedTime(source);
+            long size = Files.size(source);
+            CachedIndex cached = indexes.get(file);
+            if (cached != null && cached.modified.equals(modified) && cached.size == size) {
+                return cached.index;
+            }
+            ArchiveIndex index = indexed ? objectMapper.readValue(indexFile.toFile(), ArchiveIndex.class) :
+                buildIndex(file);
+            indexes.put(file, new CachedIndex(modified, size, index));
+            return index;
+        } catch (IOException e) {
+            log.warn("Could not read the index of archive file {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void append(Path file, List<EntityAuditEvent> events) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+            Writer writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8);
+            for (EntityAuditEvent event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+            }
+            writer.close();
+        }
+    }
+
+    /**
+     * Read the events of an archive file, in the order they were archived, without duplicates.
+     */
+    private List<EntityAuditEvent> read(Path file, Predicate<EntityAuditEvent> filter) {
+        Map<Long, EntityAuditEvent> events = new LinkedHashMap<>();
+        scan(file, event -> {
+            if (filter.test(event)) {
+                events.put(event.getId(), event);
+            }
+        });
+        return new ArrayList<>(events.values());
+    }
+
+    private void scan(Path file, Consumer<EntityAuditEvent> consumer) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(objectMapper.readValue(line, EntityAuditEvent.class));
+            }
+        } catch (EOFException e) {
+            // The last gzip member is being written
+            log.debug("Archive file {} is incomplete: {}", file, e.getMessage());
+        } catch (IOException e) {
+            log.warn("Could not read archive file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * The index of an archive file: the range of its event ids, and the range of the commit versions of each entity.
+     */
+    static final class ArchiveIndex {
+
+        private long minId = Long.MAX_VALUE;
+
+        private long maxId = Long.MIN_VALUE;
+
+        private Map<Long, int[]> versions = new HashMap<>();
+
+        public long getMinId() {
+            return minId;
+        }
+
+        public void setMinId(long minId) {
+            this.minId = minId;
+        }
+
+        public long getMaxId() {
+            return maxId;
+        }
+
+        public void setMaxId(long maxId) {
+            this.maxId = maxId;
+        }
+
+        public Map<Long, int[]> getVersions() {
+            return versions;
+        }
+
+        public void setVersions(Map<Long, int[]> versions) {
+            this.versions = versions;
+        }
+
+        boolean isEmpty() {
+            return minId > maxId;
+        }
+
+        void add(EntityAuditEvent event) {
+            minId = Math.min(minId, event.getId());
+            maxId = Math.max(maxId, event.getId());
+            if (event.getCommitVersion() == null) {
+                return;
+            }
+            int version = event.getCommitVersion();
+            versions.merge(event.getEntityId(), new int[] {version, version},
+                (range, added) -> new int[] {Math.min(range[0], version), Math.max(range[1], version)});
+        }
+    }
+
+    private static final class CachedIndex {
+
+        private final FileTime modified;
+
+        private final long size;
+
+        private final ArchiveIndex index;
+
+        CachedIndex(FileTime modified, long size, ArchiveIndex index) {
+            this.modified = modified;
+            this.size = size;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package br.org.rh.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Service notifying the components caching entities that entities of a type have changed, on all the nodes of the
+ * cluster.
+ *
+ * <p>
+ * Changes are reported by {@link br.org.rh.config.audit.EntityAuditEventListener} for every entity written through
+ * JPA. Listeners of this node are notified at once; the other nodes are notified through a Hazelcast topic once the
+ * transaction is over, whatever its outcome, each type being published once per transaction.
+ *
+ * <p>
+ * Each entity type also has a version, a cluster-wide counter increased when a transaction changing entities of
+ * this type commits. The committing node updates its version at once, the other nodes learn the new versions from
+ * the topic messages.
+ */
+@Service
+public class EntityChangeTracker {
+
+    private static final String CHANGES_TOPIC = "entity-changes";
+
+    private final Logger log = LoggerFactory.getLogger(EntityChangeTracker.class);
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private ITopic<EntityChange> changesTopic;
+
+    @PostConstruct
+    public void init() {
+        changesTopic = hazelcastInstance.getTopic(CHANGES_TOPIC);
+        changesTopic.addMessageListener(message -> {
+            EntityChange change = message.getMessageObject();
+            if (change.getVersion() > 0) {
+                updateVersion(change.getEntityType(), change.getVersion());
+            }
+            changed(change.getEntityType());
+        });
+    }
+
+    /**
+     * Register a listener, called with the qualified name of the entity class when entities of a type change.
+     *
+     * @param listener the listener, which must be fast and must not throw
+     */
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Report a change of an entity of a class.
+     *
+     * @param entityClass the class of the entity
+     */
+    public void markChanged(Class<?> entityClass) {
+        String entityType = entityClass.getName();
+        changed(entityType);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(entityType, true);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> changedTypes = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (changedTypes == null) {
+            Set<String> types = ConcurrentHashMap.newKeySet();
+            TransactionSynchronizationManager.bindResource(this, types);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeTracker.this);
+                    types.forEach(type -> publish(type, status == STATUS_COMMITTED));
+                }
+            });
+            changedTypes = types;
+        }
+        changedTypes.add(entityType);
+    }
+
+    /**
+     * Get the version of an entity type. Read it before reading the entities: a version read after them could
+     * describe changes they do not contain.
+     *
+     * @param entityClass the class of the entities
+     * @return the number of committed transactions which changed entities of the class, as last known by this node
+     */
+    public long getVersion(Class<?> entityClass) {
+        String entityType = entityClass.getName();
+        AtomicLong version = versions.get(entityType);
+        if (version == null) {
+            updateVersion(entityType, getVersionCounter(entityType).get());
+            version = versions.get(entityType);
+        }
+        return version.get();
+    }
+
+    private void publish(String entityType, boolean committed) {
+        long version = committed ? getVersionCounter(entityType).incrementAndGet() : 0;
+        if (version > 0) {
+            // The topic delivers the message to this node asynchronously: requests following the commit on this
+            // node must see the new version at once
+            updateVersion(entityType, version);
+        }
+        changesTopic.publish(new EntityChange(entityType, version));
+    }
+
+    /**
+     * The counters are lost when the whole cluster stops: they start from the current time, so that versions given
+     * before the restart are not given again.
+     */
+    private IAtomicLong getVersionCounter(String entityType) {
+        IAtomicLong counter = hazelcastInstance.getAtomicLong(CHANGES_TOPIC + "-" + entityType);
+        if (counter.get() == 0) {
+            counter.compareAndSet(0, System.currentTimeMillis());
+        }
+        return counter;
+    }
+
+    private void updateVersion(String entityType, long newVersion) {
+        versions.computeIfAbsent(entityType, type -> new AtomicLong())
+            .accumulateAndGet(newVersion, Math::max);
+    }
+
+    private void changed(String entityType) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(entityType);
+            } catch (RuntimeException e) {
+                log.warn("Entity change listener failed for {}: {}", entityType, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Message sent to all the nodes when a transaction changing entities of a type is over.
+     */
+    public static class EntityChange implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String entityType;
+
+        private final long version;
+
+        public EntityChange(String entityType, long version) {
+            this.entityType = entityType;
+            this.version = version;
+        }
+
+        public String getEntityType() {
+            return entityType;
+        }
+
+        /**
+         * @return the new version of the entity type, or 0 if the transaction was rolled back
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package br.org.rh.service;
+
+import br.org.rh.domain.AbstractAuditingEntity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service reading the current version of the auditing entities sent without one.
+ *
+ * <p>
+ * Clients which do not send the version of the entities they update keep the "last write wins" behavior: the
+ * version is read from the database just before the update. Clients sending the version, or an If-Match header,
+ * get their updates rejected if the entity changed since they read it.
+ */
+@Service
+@Transactional
+public class EntityVersionService {
+
+    private final Logger log = LoggerFactory.getLogger(EntityVersionService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Set the current version of the existing entities which have an id but no version, with a single query.
+     * <p>
+     * Entities whose id does not exist get the initial version, so they are created as before.
+     *
+     * @param entityClass the class of the entities
+     * @param entities the entities to update
+     * @param idGetter the getter of the id of the entities
+     */
+    public <T extends AbstractAuditingEntity> void fillMissingVersions(Class<T> entityClass, Collection<T> entities,
+                                                                       Function<T, Long> idGetter) {
+        List<T> unversioned = entities.stream()
+            .filter(entity -> idGetter.apply(entity) != null && entity.getVersion() == null)
+            .collect(Collectors.toList());
+        if (unversioned.isEmpty()) {
+            return;
+        }
+        log.debug("Request to get the versions of {} {}", unversioned.size(), entityClass.getSimpleName());
+        List<Object[]> rows = entityManager
+            .createQuery("select e.id, e.version from " + entityClass.getName() + " e where e.id in :ids", Object[].class)
+            .setParameter("ids", unversioned.stream().map(idGetter).collect(Collectors.toSet()))
+            .getResultList();
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object[] row : rows) {
+            versions.put((Long) row[0], (Long) row[1]);
+        }
+        for (T entity : unversioned) {
+            entity.setVersion(versions.getOrDefault(idGetter.apply(entity), 0L));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Escolaridade;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface EscolaridadeService {
      */
     Escolaridade save(Escolaridade escolaridade);
 
+    /**
+     * Save a list of escolaridades in a single transaction.
+     *
+     * @param escolaridades the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Escolaridade> saveAll(List<Escolaridade> escolaridades);
+
     /**
      *  Get all the escolaridades.
      *  
@@ -27,6 +36,22 @@ public interface EscolaridadeService {
      */
     Page<Escolaridade> findAll(Pageable pageable);
 
+    /**
+     *  Get the escolaridades following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Escolaridade> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the escolaridades.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" escolaridade.
      *  
@@ -35,6 +60,14 @@ public interface EscolaridadeService {
      */
     Escolaridade findOne(Long id);
 
+    /**
+     *  Get the escolaridades of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Escolaridade> findAll(List<Long> ids);
+
     /**
      *  Delete the "id" escolaridade.
      *  
@@ -49,4 +82,14 @@ public interface EscolaridadeService {
      *  @return the list of entities
      */
     Page<Escolaridade> search(String query, Pageable pageable);
+
+    /**
+     * Search for the escolaridades corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Escolaridade> searchAfter(String query, Long id, int size);
 }
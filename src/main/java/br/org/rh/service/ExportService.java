@@ -0,0 +1,305 @@
+package br.org.rh.service;
+
+import br.org.rh.domain.EntityAuditEvent;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.hibernate.CacheMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Service streaming entities to an output stream, as NDJSON (one JSON document per line) or CSV.
+ *
+ * <p>
+ * Rows are read with a forward-only Hibernate cursor and written one at a time, the session being cleared every
+ * {@link #FETCH_SIZE} rows: memory usage does not depend on the number of exported rows. MySQL Connector/J only
+ * honors the fetch size with useCursorFetch=true in the JDBC URL, otherwise it reads the whole result set before the
+ * first row. Search results are read the same way, through an Elasticsearch scroll.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    /**
+     * Number of rows read from the database, or from Elasticsearch, at a time.
+     */
+    public static final int FETCH_SIZE = 500;
+
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private EntityAuditArchiveService entityAuditArchiveService;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    /**
+     * Export all the entities of a class, ordered by id.
+     *
+     * @param entityClass the class of the entities
+     * @param format the output format
+     * @param out the stream to write to, which is not closed
+     * @return the number of exported entities
+     * @throws IOException if the stream could not be written
+     */
+    public long export(Class<?> entityClass, ExportFormat format, OutputStream out) throws IOException {
+        log.debug("Request to export {} as {}", entityClass.getSimpleName(), format);
+        Query query = entityManager.unwrap(Session.class)
+            .createQuery("from " + entityClass.getName() + " e order by e.id");
+        RowWriter writer = createWriter(entityClass, format, out);
+        long count = writeRows(query, writer);
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Export all the entities of a class corresponding to a search query, in no particular order.
+     * <p>
+     * The results are read with a scan scroll, which does not sort them: each batch costs the same, however deep it
+     * is in the results.
+     *
+     * @param entityClass the class of the entities
+     * @param query the query of the search
+     * @param format the output format
+     * @param out the stream to write to, which is not closed
+     * @return the number of exported entities
+     * @throws IOException if the stream could not be written
+     */
+    public long exportSearch(Class<?> entityClass, String query, ExportFormat format, OutputStream out)
+        throws IOException {
+        log.debug("Request to export {} for query {} as {}", entityClass.getSimpleName(), query, format);
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+            .getMappingContext().getPersistentEntity(entityClass);
+        RowWriter writer = createWriter(entityClass, format, out);
+        // With a scan, the size is the number of results per shard in each batch
+        SearchResponse response = client.prepareSearch(persistentEntity.getIndexName())
+            .setTypes(persistentEntity.getIndexType())
+            .setSearchType(SearchType.SCAN)
+            .setScroll(SCROLL_KEEP_ALIVE)
+            .setQuery(queryStringQuery(query))
+            .setSize(FETCH_SIZE)
+            .get();
+        long count = 0;
+        try {
+            while (true) {
+                response = client.prepareSearchScroll(response.getScrollId()).setScroll(SCROLL_KEEP_ALIVE).get();
+                if (response.getHits().getHits().length == 0) {
+                    break;
+                }
+                for (SearchHit hit : response.getHits()) {
+                    writer.write(entityMapper.mapToObject(hit.getSourceAsString(), entityClass));
+                    count++;
+                }
+            }
+        } finally {
+            client.prepareClearScroll().addScrollId(response.getScrollId()).get();
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Export the audit events of an entity type, archived events first, then the events of the table.
+     *
+     * @param entityType the qualified name of the entity class
+     * @param format the output format
+     * @param out the stream to write to, which is not closed
+     * @return the number of exported events
+     * @throws IOException if the stream could not be written
+     */
+    public long exportAuditEvents(String entityType, ExportFormat format, OutputStream out) throws IOException {
+        log.debug("Request to export the EntityAuditEvents of {} as {}", entityType, format);
+        RowWriter writer = createWriter(EntityAuditEvent.class, format, out);
+        long[] count = {0};
+        try {
+            entityAuditArchiveService.forEach(entityType, event -> {
+                try {
+                    writer.write(event);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Query query = entityManager.unwrap(Session.class)
+            .createQuery("from EntityAuditEvent e where e.entityType = :entityType order by e.id")
+            .setParameter("entityType", entityType);
+        count[0] += writeRows(query, writer);
+        writer.flush();
+        return count[0];
+    }
+
+    private long writeRows(Query query, RowWriter writer) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        ScrollableResults results = query
+            .setReadOnly(true)
+            .setFetchSize(FETCH_SIZE)
+            .setCacheMode(CacheMode.IGNORE)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        long count = 0;
+        try {
+            while (results.next()) {
+                writer.write(results.get(0));
+                if (++count % FETCH_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+        return count;
+    }
+
+    private RowWriter createWriter(Class<?> rowClass, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        if (format == ExportFormat.CSV) {
+            return new CsvRowWriter(rowClass, writer);
+        }
+        return new NdjsonRowWriter(writer);
+    }
+
+    private interface RowWriter {
+
+        void write(Object row) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Object row) throws IOException {
+            objectMapper.writeValue(generator, row);
+            generator.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes the JSON properties of the rows as CSV columns; nested entities are written as their id.
+     */
+    private class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private final List<String> properties = new ArrayList<>();
+
+        private final Set<String> entityProperties = new HashSet<>();
+
+        CsvRowWriter(Class<?> rowClass, Writer writer) throws IOException {
+            this.writer = writer;
+            for (BeanPropertyDefinition property : objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(rowClass)).findProperties()) {
+                if (property.couldSerialize()) {
+                    properties.add(property.getName());
+                    if (property.getAccessor().getRawType().isAnnotationPresent(Entity.class)) {
+                        entityProperties.add(property.getName());
+                    }
+                }
+            }
+            writeLine(properties.stream()
+                .map(property -> entityProperties.contains(property) ? property + ".id" : property)
+                .collect(Collectors.toList()));
+        }
+
+        @Override
+        public void write(Object row) throws IOException {
+            JsonNode node = objectMapper.valueToTree(row);
+            writeLine(properties.stream()
+                .map(property -> {
+                    JsonNode value = node.path(property);
+                    if (entityProperties.contains(property)) {
+                        value = value.path("id");
+                    }
+                    return value.isMissingNode() || value.isNull() ? "" : value.asText();
+                })
+                .collect(Collectors.toList()));
+        }
+
+        private void writeLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values.get(i)));
+            }
+            writer.write("\r\n");
+        }
+
+        private String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 &&
+                value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Formacao;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface FormacaoService {
      */
     Formacao save(Formacao formacao);
 
+    /**
+     * Save a list of formacaos in a single transaction.
+     *
+     * @param formacaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Formacao> saveAll(List<Formacao> formacaos);
+
     /**
      *  Get all the formacaos.
      *  
@@ -27,6 +36,22 @@ public interface FormacaoService {
      */
     Page<Formacao> findAll(Pageable pageable);
 
+    /**
+     *  Get the formacaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Formacao> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the formacaos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" formacao.
      *  
@@ -35,6 +60,14 @@ public interface FormacaoService {
      */
     Formacao findOne(Long id);
 
+    /**
+     *  Get the formacaos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Formacao> findAll(List<Long> ids);
+
     /**
      *  Delete the "id" formacao.
      *  
@@ -49,4 +82,14 @@ public interface FormacaoService {
      *  @return the list of entities
      */
     Page<Formacao> search(String query, Pageable pageable);
+
+    /**
+     * Search for the formacaos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Formacao> searchAfter(String query, Long id, int size);
 }
@@ -0,0 +1,96 @@
+package br.org.rh.service;
+
+import br.org.rh.web.rest.dto.SearchGroupDTO;
+
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Service searching all the entities of the catalog at once, for the global search box of the front-end.
+ *
+ * <p>
+ * The searches of the entity types are sent in a single multi-search request, which Elasticsearch runs in
+ * parallel. The query is lenient, as a field may be a number in an index and text in another one.
+ */
+@Service
+public class GlobalSearchService {
+
+    /**
+     * Maximum number of entities returned for each entity type.
+     */
+    public static final int MAX_SIZE = 50;
+
+    private final Logger log = LoggerFactory.getLogger(GlobalSearchService.class);
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    /**
+     * Search for the best entities of each type of the catalog.
+     *
+     * @param query the query of the search
+     * @param size the maximum number of entities of each type, capped at {@link #MAX_SIZE}
+     * @return the entities found, by name of their list in the catalog ("bancos", "cargos", ...); the entity types
+     * whose search failed are missing
+     */
+    public Map<String, SearchGroupDTO<Object>> search(String query, int size) {
+        log.debug("Request to search for all the entities for query {}", query);
+        QueryBuilder queryBuilder = queryStringQuery(query).lenient(true);
+        int groupSize = Math.max(0, Math.min(size, MAX_SIZE));
+        MultiSearchRequestBuilder multiSearch = client.prepareMultiSearch();
+        List<String> names = new ArrayList<>(CatalogService.CATALOG_ENTITIES.keySet());
+        for (String name : names) {
+            ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+                .getMappingContext().getPersistentEntity(CatalogService.CATALOG_ENTITIES.get(name));
+            multiSearch.add(client.prepareSearch(persistentEntity.getIndexName())
+                .setTypes(persistentEntity.getIndexType())
+                .setQuery(queryBuilder)
+                .setSize(groupSize));
+        }
+
+        MultiSearchResponse.Item[] responses = multiSearch.get().getResponses();
+        Map<String, SearchGroupDTO<Object>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            Class<?> entityClass = CatalogService.CATALOG_ENTITIES.get(name);
+            if (responses[i].isFailure()) {
+                log.warn("Search of the {} failed for query {}: {}", name, query, responses[i].getFailureMessage());
+                continue;
+            }
+            SearchHits hits = responses[i].getResponse().getHits();
+            List<Object> results = new ArrayList<>(hits.getHits().length);
+            for (SearchHit hit : hits) {
+                try {
+                    results.add(entityMapper.mapToObject(hit.getSourceAsString(), entityClass));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            groups.put(name, new SearchGroupDTO<>(hits.getTotalHits(), results));
+        }
+        return groups;
+    }
+}
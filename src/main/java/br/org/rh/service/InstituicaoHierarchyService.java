@@ -0,0 +1,333 @@
+package br.org.rh.service;
+
+import br.org.rh.domain.Instituicao;
+import br.org.rh.repository.InstituicaoRepository;
+import br.org.rh.web.rest.dto.InstituicaoTreeDTO;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service maintaining the Instituicao hierarchy.
+ *
+ * <p>
+ * The instituicao_closure table holds one row per (ancestor, descendant) pair, so ancestors and descendants are read
+ * with a single indexed query. It is updated by {@link InstituicaoService} in the transaction saving the
+ * instituicaos. Full subtrees are built from an in-memory snapshot of the hierarchy, which is dropped on every node
+ * of the cluster (through a Hazelcast topic) when a transaction changing the hierarchy completes. Each drop bumps a
+ * generation counter, and a snapshot loaded before the last drop is never used.
+ */
+@Service
+@Transactional
+public class InstituicaoHierarchyService {
+
+    private static final String INVALIDATION_TOPIC = "instituicao-hierarchy";
+
+    private final Logger log = LoggerFactory.getLogger(InstituicaoHierarchyService.class);
+
+    @Inject
+    private InstituicaoRepository instituicaoRepository;
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private ITopic<Long> invalidationTopic;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        invalidationTopic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        invalidationTopic.addMessageListener(message -> dropSnapshot());
+    }
+
+    /**
+     * Fill the closure table from the instituicao table, if they do not match.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkClosureTable() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            long instituicaos = jdbcTemplate.queryForObject("SELECT count(*) FROM instituicao", Long.class);
+            long selfLinks = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM instituicao_closure WHERE depth = 0", Long.class);
+            if (instituicaos != selfLinks) {
+                rebuild();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Rebuild the closure table from the instituicao table, one level of the hierarchy at a time.
+     */
+    public void rebuild() {
+        log.info("Rebuilding the Instituicao hierarchy");
+        entityManager.flush();
+        jdbcTemplate.update("DELETE FROM instituicao_closure");
+        int inserted = jdbcTemplate.update("INSERT INTO instituicao_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT id, id, 0 FROM instituicao");
+        for (int depth = 1; inserted > 0; depth++) {
+            inserted = jdbcTemplate.update("INSERT INTO instituicao_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT c.ancestor_id, i.id, c.depth + 1 FROM instituicao i, instituicao_closure c " +
+                "WHERE c.descendant_id = i.instituicao_id AND c.depth = ?", depth - 1);
+        }
+        invalidateSnapshot();
+    }
+
+    /**
+     * Update the hierarchy after an instituicao was saved.
+     *
+     * @param instituicao the saved instituicao
+     */
+    public void onSave(Instituicao instituicao) {
+        entityManager.flush();
+        updateClosure(instituicao);
+        invalidateSnapshot();
+    }
+
+    /**
+     * Update the hierarchy after a list of instituicaos was saved, parents first.
+     *
+     * @param instituicaos the saved instituicaos
+     */
+    public void onSaveAll(List<Instituicao> instituicaos) {
+        entityManager.flush();
+        Map<Long, Instituicao> pending = instituicaos.stream()
+            .collect(Collectors.toMap(Instituicao::getId, Function.identity(), (a, b) -> b, LinkedHashMap::new));
+        while (!pending.isEmpty()) {
+            Instituicao next = pending.values().stream()
+                .filter(instituicao -> instituicao.getInstituicao() == null ||
+                    !pending.containsKey(instituicao.getInstituicao().getId()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Cycle in the Instituicao hierarchy"));
+            updateClosure(next);
+            pending.remove(next.getId());
+        }
+        invalidateSnapshot();
+    }
+
+    /**
+     * Remove an instituicao from the hierarchy, before it is deleted.
+     *
+     * @param id the id of the instituicao
+     */
+    public void onDelete(Long id) {
+        jdbcTemplate.update("DELETE FROM instituicao_closure WHERE descendant_id = ? OR ancestor_id = ?", id, id);
+        invalidateSnapshot();
+    }
+
+    /**
+     * @param ancestorId the id of the possible ancestor
+     * @param id the id of the instituicao
+     * @return true if the instituicao is the ancestor itself or one of its descendants
+     */
+    @Transactional(readOnly = true)
+    public boolean isDescendant(Long ancestorId, Long id) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM instituicao_closure " +
+            "WHERE ancestor_id = ? AND descendant_id = ?", Long.class, ancestorId, id) > 0;
+    }
+
+    /**
+     * Get the ancestors of an instituicao.
+     *
+     * @param id the id of the instituicao
+     * @return the ancestors, root first
+     */
+    @Transactional(readOnly = true)
+    public List<Instituicao> findAncestors(Long id) {
+        log.debug("Request to get the ancestors of Instituicao : {}", id);
+        return findAllInOrder(jdbcTemplate.queryForList("SELECT ancestor_id FROM instituicao_closure " +
+            "WHERE descendant_id = ? AND depth > 0 ORDER BY depth DESC", Long.class, id));
+    }
+
+    /**
+     * Get the descendants of an instituicao.
+     *
+     * @param id the id of the instituicao
+     * @param maxDepth the maximum depth of the descendants, all the descendants are returned if null
+     * @return the descendants, nearest first
+     */
+    @Transactional(readOnly = true)
+    public List<Instituicao> findDescendants(Long id, Integer maxDepth) {
+        log.debug("Request to get the descendants of Instituicao : {}", id);
+        return findAllInOrder(jdbcTemplate.queryForList("SELECT descendant_id FROM instituicao_closure " +
+            "WHERE ancestor_id = ? AND depth > 0 AND depth <= ? ORDER BY depth, descendant_id", Long.class, id,
+            maxDepth == null ? Integer.MAX_VALUE : maxDepth));
+    }
+
+    /**
+     * Get the subtree of an instituicao, from the in-memory snapshot of the hierarchy.
+     *
+     * @param id the id of the instituicao
+     * @return the instituicao and its descendants, or null if the instituicao does not exist
+     */
+    @Transactional(readOnly = true)
+    public InstituicaoTreeDTO findSubtree(Long id) {
+        log.debug("Request to get the subtree of Instituicao : {}", id);
+        long currentGeneration = generation.get();
+        Snapshot current = snapshot;
+        if (current == null || current.generation != currentGeneration) {
+            // If the hierarchy changes while it is loaded, the next call loads it again
+            current = new Snapshot(currentGeneration, instituicaoRepository.findAll());
+            snapshot = current;
+        }
+        return current.subtree(id);
+    }
+
+    private void updateClosure(Instituicao instituicao) {
+        Long id = instituicao.getId();
+        Long parentId = instituicao.getInstituicao() == null ? null : instituicao.getInstituicao().getId();
+        List<Long> currentParent = jdbcTemplate.queryForList("SELECT ancestor_id FROM instituicao_closure " +
+            "WHERE descendant_id = ? AND depth = 1", Long.class, id);
+        boolean exists = !currentParent.isEmpty() || isDescendant(id, id);
+        if (!exists) {
+            jdbcTemplate.update("INSERT INTO instituicao_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, 0)",
+                id, id);
+            if (parentId != null) {
+                jdbcTemplate.update("INSERT INTO instituicao_closure (ancestor_id, descendant_id, depth) " +
+                    "SELECT ancestor_id, ?, depth + 1 FROM instituicao_closure WHERE descendant_id = ?", id, parentId);
+            }
+            return;
+        }
+        if (Objects.equals(currentParent.isEmpty() ? null : currentParent.get(0), parentId)) {
+            return;
+        }
+        if (parentId != null && isDescendant(id, parentId)) {
+            throw new IllegalArgumentException("Instituicao " + parentId + " is a descendant of " + id);
+        }
+        // Move the subtree: unlink it from its former ancestors, then link it to the ancestors of the new parent
+        List<Long> subtree = jdbcTemplate.queryForList("SELECT descendant_id FROM instituicao_closure " +
+            "WHERE ancestor_id = ?", Long.class, id);
+        namedParameterJdbcTemplate.update("DELETE FROM instituicao_closure " +
+            "WHERE descendant_id IN (:subtree) AND ancestor_id NOT IN (:subtree)",
+            new MapSqlParameterSource("subtree", subtree));
+        if (parentId != null) {
+            jdbcTemplate.update("INSERT INTO instituicao_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 " +
+                "FROM instituicao_closure p, instituicao_closure s " +
+                "WHERE p.descendant_id = ? AND s.ancestor_id = ?", parentId, id);
+        }
+    }
+
+    private List<Instituicao> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Instituicao> instituicaos = instituicaoRepository.findAll(ids).stream()
+            .collect(Collectors.toMap(Instituicao::getId, Function.identity()));
+        return ids.stream().map(instituicaos::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Drop the snapshot now, and on all the nodes once the transaction is over, whatever its outcome.
+     */
+    private void invalidateSnapshot() {
+        dropSnapshot();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidationTopic.publish(System.currentTimeMillis());
+                }
+            });
+        } else {
+            invalidationTopic.publish(System.currentTimeMillis());
+        }
+    }
+
+    private void dropSnapshot() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Immutable copy of the hierarchy.
+     */
+    private static final class Snapshot {
+
+        private final long generation;
+
+        private final Map<Long, InstituicaoTreeDTO> nodes = new HashMap<>();
+
+        private final Map<Long, List<Long>> children = new HashMap<>();
+
+        Snapshot(long generation, List<Instituicao> instituicaos) {
+            this.generation = generation;
+            for (Instituicao instituicao : instituicaos) {
+                InstituicaoTreeDTO node = new InstituicaoTreeDTO(instituicao);
+                nodes.put(node.getId(), node);
+                if (node.getInstituicaoId() != null) {
+                    children.computeIfAbsent(node.getInstituicaoId(), parentId -> new ArrayList<>()).add(node.getId());
+                }
+            }
+            children.values().forEach(Collections::sort);
+        }
+
+        InstituicaoTreeDTO subtree(Long id) {
+            InstituicaoTreeDTO node = nodes.get(id);
+            if (node == null) {
+                return null;
+            }
+            InstituicaoTreeDTO copy = copy(node);
+            Deque<InstituicaoTreeDTO> toVisit = new ArrayDeque<>();
+            toVisit.push(copy);
+            while (!toVisit.isEmpty()) {
+                InstituicaoTreeDTO parent = toVisit.pop();
+                for (Long childId : children.getOrDefault(parent.getId(), Collections.emptyList())) {
+                    InstituicaoTreeDTO child = copy(nodes.get(childId));
+                    parent.getChildren().add(child);
+                    toVisit.push(child);
+                }
+            }
+            return copy;
+        }
+
+        private static InstituicaoTreeDTO copy(InstituicaoTreeDTO node) {
+            InstituicaoTreeDTO copy = new InstituicaoTreeDTO();
+            copy.setId(node.getId());
+            copy.setSigla(node.getSigla());
+            copy.setNome(node.getNome());
+            copy.setEmail(node.getEmail());
+            copy.setTelefone(node.getTelefone());
+            copy.setEndereco(node.getEndereco());
+            copy.setInstituicaoId(node.getInstituicaoId());
+            return copy;
+        }
+    }
+}
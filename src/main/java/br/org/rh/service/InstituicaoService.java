@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Instituicao;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface InstituicaoService {
      */
     Instituicao save(Instituicao instituicao);
 
+    /**
+     * Save a list of instituicaos in a single transaction.
+     *
+     * @param instituicaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Instituicao> saveAll(List<Instituicao> instituicaos);
+
     /**
      *  Get all the instituicaos.
      *  
@@ -27,6 +36,22 @@ public interface InstituicaoService {
      */
     Page<Instituicao> findAll(Pageable pageable);
 
+    /**
+     *  Get the instituicaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Instituicao> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the instituicaos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" instituicao.
      *  
@@ -35,6 +60,30 @@ public interface InstituicaoService {
      */
     Instituicao findOne(Long id);
 
+    /**
+     *  Get the instituicaos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Instituicao> findAll(List<Long> ids);
+
+    /**
+     *  Get the instituicao of a sigla, through the natural id cache.
+     *  
+     *  @param sigla the sigla of the entity
+     *  @return the entity, or null if there is none
+     */
+    Instituicao findOneBySigla(String sigla);
+
+    /**
+     *  Get the instituicaos of a list of siglas, through the natural id cache.
+     *  
+     *  @param siglas the siglas of the entities
+     *  @return the entities found, in the order of their siglas
+     */
+    List<Instituicao> findAllBySigla(List<String> siglas);
+
     /**
      *  Delete the "id" instituicao.
      *  
@@ -49,4 +98,14 @@ public interface InstituicaoService {
      *  @return the list of entities
      */
     Page<Instituicao> search(String query, Pageable pageable);
+
+    /**
+     * Search for the instituicaos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Instituicao> searchAfter(String query, Long id, int size);
 }
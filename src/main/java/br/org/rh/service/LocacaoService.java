@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Locacao;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface LocacaoService {
      */
     Locacao save(Locacao locacao);
 
+    /**
+     * Save a list of locacaos in a single transaction.
+     *
+     * @param locacaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Locacao> saveAll(List<Locacao> locacaos);
+
     /**
      *  Get all the locacaos.
      *  
@@ -27,6 +36,22 @@ public interface LocacaoService {
      */
     Page<Locacao> findAll(Pageable pageable);
 
+    /**
+     *  Get the locacaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Locacao> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the locacaos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" locacao.
      *  
@@ -35,6 +60,14 @@ public interface LocacaoService {
      */
     Locacao findOne(Long id);
 
+    /**
+     *  Get the locacaos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Locacao> findAll(List<Long> ids);
+
     /**
      *  Delete the "id" locacao.
      *  
@@ -49,4 +82,14 @@ public interface LocacaoService {
      *  @return the list of entities
      */
     Page<Locacao> search(String query, Pageable pageable);
+
+    /**
+     * Search for the locacaos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Locacao> searchAfter(String query, Long id, int size);
 }
@@ -0,0 +1,76 @@
+package br.org.rh.service;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service loading the entities of a list of ids in a single pass.
+ *
+ * <p>
+ * The entities found in their second level cache region are read from it, and the others are loaded with a single
+ * "in" query, which puts them in the cache for the next reads. Hibernate 4 has no multi-load of entities by id, so
+ * the cache is checked id by id before the query.
+ */
+@Service
+@Transactional(readOnly = true)
+public class MultiGetService {
+
+    /**
+     * Maximum number of ids of a multi-get.
+     */
+    public static final int MAX_IDS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(MultiGetService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Get the entities of a list of ids.
+     *
+     * @param entityClass the class of the entities
+     * @param ids the ids of the entities, at most {@link #MAX_IDS}
+     * @param idGetter the getter of the id of the entities
+     * @return the entities found, in the order of their ids, without duplicates
+     */
+    public <T> List<T> findAll(Class<T> entityClass, Collection<Long> ids, Function<T, Long> idGetter) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Session session = entityManager.unwrap(Session.class);
+        Cache cache = session.getSessionFactory().getCache();
+        Map<Long, T> entities = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (cache.containsEntity(entityClass, id)) {
+                T entity = entityClass.cast(session.get(entityClass, id));
+                if (entity != null) {
+                    entities.put(id, entity);
+                }
+            } else {
+                misses.add(id);
+            }
+        }
+        log.debug("Request to get {} {}, {} of them not cached", distinctIds.size(), entityClass.getSimpleName(),
+            misses.size());
+        if (!misses.isEmpty()) {
+            entityManager
+                .createQuery("select e from " + entityClass.getName() + " e where e.id in :ids", entityClass)
+                .setParameter("ids", misses)
+                .getResultList()
+                .forEach(entity -> entities.put(idGetter.apply(entity), entity));
+        }
+        return distinctIds.stream()
+            .map(entities::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,99 @@
+package br.org.rh.service;
+
+import org.hibernate.Session;
+import org.hibernate.metadata.ClassMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Service loading entities by their natural id, e.g. the codigo of a Banco.
+ *
+ * <p>
+ * Hibernate resolves a natural id to the entity id through the natural id cache region of the entity, then loads the
+ * entity from its own cache region: a lookup whose entity is cached does not reach the database. Both regions are
+ * near cached (see CacheConfiguration). The lookups do not flush the changes of the current session first, so they
+ * see the natural ids as they are in the database and in the cache.
+ * <p>
+ * The natural ids can be updated, and the near caches are invalidated asynchronously: a natural id may still resolve
+ * to an entity whose natural id changed. The natural id of the loaded entity is therefore compared to the requested
+ * one, and the entity is queried from the database when they differ. The database may match natural ids ignoring
+ * their case (MySQL collations), so the query can return an entity whose natural id differs in case only.
+ */
+@Service
+@Transactional(readOnly = true)
+public class NaturalIdService {
+
+    /**
+     * Maximum number of natural ids of a batched lookup.
+     */
+    public static final int MAX_KEYS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(NaturalIdService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Get an entity by its natural id.
+     *
+     * @param entityClass the class of the entity, with a single @NaturalId field
+     * @param naturalId the natural id of the entity
+     * @return the entity, or null if there is none
+     */
+    public <T> T findOne(Class<T> entityClass, Object naturalId) {
+        log.debug("Request to get {} by natural id : {}", entityClass.getSimpleName(), naturalId);
+        return load(entityManager.unwrap(Session.class), entityClass, naturalId);
+    }
+
+    /**
+     * Get the entities of a list of natural ids, each natural id being resolved on its own through the cache.
+     *
+     * @param entityClass the class of the entities, with a single @NaturalId field
+     * @param naturalIds the natural ids of the entities, at most {@link #MAX_KEYS}
+     * @return the entities found, in the order of their natural ids, without duplicates: natural ids matching the
+     * same entity, e.g. differing in case only, return it once
+     */
+    public <T> List<T> findAll(Class<T> entityClass, Collection<?> naturalIds) {
+        log.debug("Request to get {} {} by natural id", naturalIds.size(), entityClass.getSimpleName());
+        Session session = entityManager.unwrap(Session.class);
+        Map<Serializable, T> entities = new LinkedHashMap<>();
+        for (Object naturalId : new LinkedHashSet<>(naturalIds)) {
+            T entity = load(session, entityClass, naturalId);
+            if (entity != null) {
+                entities.putIfAbsent(session.getIdentifier(entity), entity);
+            }
+        }
+        return new ArrayList<>(entities.values());
+    }
+
+    private <T> T load(Session session, Class<T> entityClass, Object naturalId) {
+        T entity = entityClass.cast(session.bySimpleNaturalId(entityClass)
+            .setSynchronizationEnabled(false)
+            .load(naturalId));
+        if (entity == null) {
+            return null;
+        }
+        ClassMetadata metadata = session.getSessionFactory().getClassMetadata(entityClass);
+        String naturalIdProperty = metadata.getPropertyNames()[metadata.getNaturalIdentifierProperties()[0]];
+        if (naturalId.equals(metadata.getPropertyValue(entity, naturalIdProperty))) {
+            return entity;
+        }
+        log.debug("Natural id {} of {} resolved to a stale entry, querying the database", naturalId,
+            entityClass.getSimpleName());
+        List<T> entities = entityManager
+            .createQuery("select e from " + entityClass.getName() + " e where e." + naturalIdProperty + " = :naturalId",
+                entityClass)
+            .setParameter("naturalId", naturalId)
+            .setFlushMode(FlushModeType.COMMIT)
+            .getResultList();
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+}
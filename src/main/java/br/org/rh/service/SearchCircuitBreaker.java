@@ -0,0 +1,151 @@
+package br.org.rh.service;
+
+import br.org.rh.config.JHipsterProperties;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import org.elasticsearch.ElasticsearchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service running the ElasticSearch searches of the entities as Hystrix commands, with a database fallback.
+ *
+ * <p>
+ * The searches run in the "search" thread pool, shared by all the entities: when ElasticSearch is slow, at most
+ * jhipster.search.fallback.threads requests wait for it, each one for at most
+ * jhipster.search.fallback.timeoutInMilliseconds, instead of all the servlet threads. Searches which time out, fail,
+ * are rejected by the full pool or are short-circuited by the open circuit breaker are answered by a prefix query
+ * on the indexed name columns of the database. These defaults can be overridden with the usual Hystrix properties,
+ * e.g. hystrix.command.searchBanco.execution.isolation.thread.timeoutInMilliseconds.
+ *
+ * <p>
+ * Searches rejected by ElasticSearch because of their query are thrown as {@link HystrixBadRequestException}, which
+ * does not count as a failure of the circuit and is answered with a 400 (Bad Request).
+ */
+@Service
+public class SearchCircuitBreaker {
+
+    private static final HystrixCommandGroupKey GROUP_KEY = HystrixCommandGroupKey.Factory.asKey("search");
+
+    private static final HystrixThreadPoolKey THREAD_POOL_KEY = HystrixThreadPoolKey.Factory.asKey("search");
+
+    /**
+     * A query_string query on a single field, e.g. "nome:foo".
+     */
+    private static final Pattern FIELD_QUERY = Pattern.compile("^\\w+:(.*)$");
+
+    private final Logger log = LoggerFactory.getLogger(SearchCircuitBreaker.class);
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    /**
+     * Run a search of the entities of a class, or its fallback.
+     *
+     * @param entityClass the class of the entities
+     * @param query the query of the search
+     * @param pageable the pagination information
+     * @param search the ElasticSearch search
+     * @param fallback the database search of the entities whose name starts with a prefix, given the prefix read
+     * from the query
+     * @return the page of entities found by the search, or by the fallback
+     */
+    public <T> Page<T> search(Class<T> entityClass, String query, Pageable pageable, Supplier<Page<T>> search,
+                              Function<String, Page<T>> fallback) {
+        JHipsterProperties.Search.Fallback properties = jHipsterProperties.getSearch().getFallback();
+        HystrixCommand.Setter setter = HystrixCommand.Setter.withGroupKey(GROUP_KEY)
+            .andCommandKey(HystrixCommandKey.Factory.asKey("search" + entityClass.getSimpleName()))
+            .andThreadPoolKey(THREAD_POOL_KEY)
+            .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                .withExecutionTimeoutInMilliseconds(properties.getTimeoutInMilliseconds()))
+            .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
+                .withCoreSize(properties.getThreads()));
+        return new HystrixCommand<Page<T>>(setter) {
+
+            @Override
+            protected Page<T> run() {
+                try {
+                    return search.get();
+                } catch (RuntimeException e) {
+                    // Invalid queries are the client's fault: they must neither open the circuit nor fall back
+                    if (isBadRequest(e)) {
+                        throw new HystrixBadRequestException("Invalid search query: " + query, e);
+                    }
+                    throw e;
+                }
+            }
+
+            @Override
+            protected Page<T> getFallback() {
+                log.warn("Searching {} in the database, the ElasticSearch search failed: {}",
+                    entityClass.getSimpleName(), getFailedExecutionException() != null ?
+                        getFailedExecutionException().getMessage() : getExecutionEvents());
+                String prefix = toPrefix(query);
+                Page<T> page = prefix.isEmpty() ? new PageImpl<>(Collections.emptyList(), pageable, 0) :
+                    fallback.apply(prefix);
+                return new FallbackPage<>(page, pageable);
+            }
+        }.execute();
+    }
+
+    /**
+     * @param page a page of entities
+     * @return true if the page was found by the database fallback, which must not be cached
+     */
+    public static boolean isFallback(Page<?> page) {
+        return page instanceof FallbackPage;
+    }
+
+    /**
+     * @return true if the search failed because of its query, e.g. a query_string which cannot be parsed
+     */
+    private static boolean isBadRequest(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchException) {
+                return ((ElasticsearchException) cause).status().getStatus() < 500;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the prefix of a query_string query: "foo*", "nome:foo" and "nome:foo*" all give "foo".
+     */
+    static String toPrefix(String query) {
+        String prefix = query.trim();
+        Matcher fieldQuery = FIELD_QUERY.matcher(prefix);
+        if (fieldQuery.matches()) {
+            prefix = fieldQuery.group(1).trim();
+        }
+        while (prefix.endsWith("*")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        return prefix;
+    }
+
+    private static class FallbackPage<T> extends PageImpl<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        FallbackPage(Page<T> page, Pageable pageable) {
+            super(page.getContent(), pageable, page.getTotalElements());
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package br.org.rh.service;
+
+import br.org.rh.config.CacheConfiguration;
+import br.org.rh.config.JHipsterProperties;
+import br.org.rh.domain.SearchOutboxEvent;
+import br.org.rh.domain.enumeration.SearchOutboxAction;
+import br.org.rh.repository.SearchOutboxEventRepository;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Service keeping the ElasticSearch indices in sync with the database, through a transactional outbox.
+ *
+ * <p>
+ * Entity services call {@link #index} and {@link #delete} in their own transaction, which only inserts rows in the
+ * search_outbox_event table. A scheduled task then drains the outbox in batches: documents are rebuilt from the
+ * database and sent with the deletions in a single bulk request per entity type. Failed events are retried with an
+ * exponential backoff, up to jhipster.search.outbox.maxAttempts times, then they are marked as dead and kept out of
+ * the drain and of the pending and lag metrics. Only one node of the cluster drains the outbox at a time. Once the outbox is drained, the
+ * changed indices are refreshed, then the cached search results of their entity types are evicted.
+ */
+@Service
+public class SearchOutboxService {
+
+    /**
+     * Hazelcast lock held while the outbox is drained.
+     */
+    public static final String DRAIN_LOCK = "search-outbox-drain";
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxService.class);
+
+    private final Map<String, Class<?>> entityClasses = new ConcurrentHashMap<>();
+
+    @Inject
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private Meter indexedMeter;
+
+    private Meter failedMeter;
+
+    private Meter deadMeter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        indexedMeter = metricRegistry.meter("search.outbox.indexed");
+        failedMeter = metricRegistry.meter("search.outbox.failed");
+        deadMeter = metricRegistry.meter("search.outbox.dead");
+        metricRegistry.register("search.outbox.pending", new CachedGauge<Long>(10, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return searchOutboxEventRepository.countByDeadFalse();
+            }
+        });
+        // Time since the longest waiting event is due, events waiting for their next attempt are not late yet
+        metricRegistry.register("search.outbox.lag", new CachedGauge<Long>(10, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                ZonedDateTime now = ZonedDateTime.now();
+                SearchOutboxEvent oldest = searchOutboxEventRepository
+                    .findFirstByDeadFalseAndNextAttemptDateLessThanEqualOrderByNextAttemptDateAsc(now);
+                if (oldest == null) {
+                    return 0L;
+                }
+                return Duration.between(oldest.getNextAttemptDate(), now).toMillis();
+            }
+        });
+    }
+
+    /**
+     * Schedule the indexing of an entity, in the current transaction.
+     *
+     * @param entityClass the class of the entity
+     * @param id the id of the entity
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void index(Class<?> entityClass, Long id) {
+        searchOutboxEventRepository.save(new SearchOutboxEvent(entityClass.getName(), id, SearchOutboxAction.INDEX));
+    }
+
+    /**
+     * Schedule the indexing of several entities, in the current transaction.
+     *
+     * @param entityClass the class of the entities
+     * @param ids the ids of the entities
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void index(Class<?> entityClass, Collection<Long> ids) {
+        searchOutboxEventRepository.save(ids.stream()
+            .map(id -> new SearchOutboxEvent(entityClass.getName(), id, SearchOutboxAction.INDEX))
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Schedule the removal of an entity from its index, in the current transaction.
+     *
+     * @param entityClass the class of the entity
+     * @param id the id of the entity
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void delete(Class<?> entityClass, Long id) {
+        searchOutboxEventRepository.save(new SearchOutboxEvent(entityClass.getName(), id, SearchOutboxAction.DELETE));
+    }
+
+    /**
+     * Drain the outbox, unless another node is already doing it.
+     */
+    @Scheduled(fixedDelayString = "${jhipster.search.outbox.drainDelay:500}")
+    public void scheduledDrain() {
+        if (!hazelcastInstance.getLifecycleService().isRunning()) {
+            return;
+        }
+        ILock lock = hazelcastInstance.getLock(DRAIN_LOCK);
+        if (lock.tryLock()) {
+            try {
+                drainAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drain the outbox, waiting for the node currently draining it to finish.
+     */
+    public void drain() {
+        ILock lock = hazelcastInstance.getLock(DRAIN_LOCK);
+        lock.lock();
+        try {
+            drainAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainAll() {
+        int batchSize = jHipsterProperties.getSearch().getOutbox().getBatchSize();
+        Set<String> changedTypes = new LinkedHashSet<>();
+        int drained;
+        do {
+            drained = drainBatch(batchSize, changedTypes);
+        } while (drained == batchSize);
+        for (String entityType : changedTypes) {
+            Class<?> entityClass = entityClasses.get(entityType);
+            try {
+                elasticsearchTemplate.refresh(entityClass, false);
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh the index of {}: {}", entityType, e.getMessage());
+            }
+            // Cached search results may not contain the changes until now
+            cacheManager.getCache(CacheConfiguration.SEARCH_CACHE_PREFIX + entityClass.getSimpleName()).clear();
+        }
+    }
+
+    private int drainBatch(int batchSize, Set<String> changedTypes) {
+        List<SearchOutboxEvent> events = readOnlyTransactionTemplate.execute(status ->
+            searchOutboxEventRepository.findAllDue(ZonedDateTime.now(), new PageRequest(0, batchSize)));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        log.debug("Draining {} search outbox events", events.size());
+
+        // Documents are rebuilt from the database, so only the last action on each entity matters
+        Map<String, Map<Long, SearchOutboxAction>> actionsByType = new LinkedHashMap<>();
+        for (SearchOutboxEvent event : events) {
+            actionsByType.computeIfAbsent(event.getEntityType(), type -> new LinkedHashMap<>())
+                .put(event.getEntityId(), event.getAction());
+        }
+        Set<String> failedKeys = new HashSet<>();
+        actionsByType.forEach((entityType, actions) -> {
+            try {
+                processActions(entityType, actions)
+                    .forEach(id -> failedKeys.add(entityType + "#" + id));
+                changedTypes.add(entityType);
+            } catch (RuntimeException e) {
+                log.warn("Could not index {} entities of type {}: {}", actions.size(), entityType, e.getMessage());
+                actions.keySet().forEach(id -> failedKeys.add(entityType + "#" + id));
+            }
+        });
+
+        int maxAttempts = jHipsterProperties.getSearch().getOutbox().getMaxAttempts();
+        List<SearchOutboxEvent> done = new ArrayList<>();
+        List<SearchOutboxEvent> failed = new ArrayList<>();
+        int dead = 0;
+        for (SearchOutboxEvent event : events) {
+            if (failedKeys.contains(event.getEntityType() + "#" + event.getEntityId())) {
+                event.setAttempts(event.getAttempts() + 1);
+                if (event.getAttempts() >= maxAttempts) {
+                    log.error("Giving up on search outbox event {} after {} attempts", event, event.getAttempts());
+                    event.setDead(true);
+                    dead++;
+                } else {
+                    event.setNextAttemptDate(ZonedDateTime.now().plus(Duration.ofMillis(backoff(event.getAttempts()))));
+                }
+                failed.add(event);
+            } else {
+                done.add(event);
+            }
+        }
+        transactionTemplate.execute(status -> {
+            searchOutboxEventRepository.deleteInBatch(done);
+            searchOutboxEventRepository.save(failed);
+            return null;
+        });
+        indexedMeter.mark(done.size());
+        failedMeter.mark(failed.size());
+        deadMeter.mark(dead);
+        return events.size();
+    }
+
+    /**
+     * Send the actions of one entity type to ElasticSearch, in a single bulk request.
+     *
+     * @return the ids of the entities which could not be indexed or deleted
+     */
+    private Set<String> processActions(String entityType, Map<Long, SearchOutboxAction> actions) {
+        Class<?> entityClass = entityClasses.computeIfAbsent(entityType, this::loadEntityClass);
+        List<Long> toIndex = new ArrayList<>();
+        Set<Long> toDelete = new HashSet<>();
+        actions.forEach((id, action) -> {
+            if (action == SearchOutboxAction.INDEX) {
+                toIndex.add(id);
+            } else {
+                toDelete.add(id);
+            }
+        });
+
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+            .getMappingContext().getPersistentEntity(entityClass);
+        String type = persistentEntity.getIndexType();
+        List<String> indices = new ArrayList<>();
+        indices.add(persistentEntity.getIndexName());
+        // While the index is being rebuilt, the new index must receive the changes too
+        String reindexTarget = hazelcastInstance.<String, String>getMap(SearchReindexService.REINDEX_TARGETS)
+            .get(persistentEntity.getIndexName());
+        if (reindexTarget != null) {
+            indices.add(reindexTarget);
+            // The reindex writes these entities again once its workers are done, as they may have read older states
+            hazelcastInstance.<Long>getSet(SearchReindexService.REINDEX_CHANGED_IDS + persistentEntity.getIndexName())
+                .addAll(actions.keySet());
+        }
+
+        Set<String> failedIds = new HashSet<>();
+        BulkRequestBuilder bulk = client.prepareBulk();
+        if (!toIndex.isEmpty()) {
+            List<?> entities = readOnlyTransactionTemplate.execute(status ->
+                entityManager.createQuery("select e from " + entityClass.getName() + " e where e.id in :ids")
+                    .setParameter("ids", toIndex)
+                    .getResultList());
+            Set<Long> found = new HashSet<>();
+            for (Object entity : entities) {
+                Long id = (Long) entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+                found.add(id);
+                String source;
+                try {
+                    source = entityMapper.mapToString(entity);
+                } catch (IOException e) {
+                    log.warn("Could not map {} {} to a document: {}", entityType, id, e.getMessage());
+                    failedIds.add(id.toString());
+                    continue;
+                }
+                for (String index : indices) {
+                    bulk.add(client.prepareIndex(index, type, id.toString()).setSource(source));
+                }
+            }
+            // Entities deleted since the event was written must not stay in the index
+            toIndex.stream().filter(id -> !found.contains(id)).forEach(toDelete::add);
+        }
+        for (Long id : toDelete) {
+            for (String index : indices) {
+                bulk.add(client.prepareDelete(index, type, id.toString()));
+            }
+        }
+        if (bulk.numberOfActions() > 0) {
+            BulkResponse response = bulk.get();
+            if (response.hasFailures()) {
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed()) {
+                        failedIds.add(item.getId());
+                    }
+                }
+                log.warn("Bulk request of {} failed for {} documents: {}", entityType, failedIds.size(),
+                    response.buildFailureMessage());
+            }
+        }
+        return failedIds;
+    }
+
+    private Class<?> loadEntityClass(String entityType) {
+        try {
+            return Class.forName(entityType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown entity type in search outbox: " + entityType, e);
+        }
+    }
+
+    private long backoff(int attempts) {
+        JHipsterProperties.Search.Outbox outbox = jHipsterProperties.getSearch().getOutbox();
+        long backoff = outbox.getInitialBackoff() << Math.min(attempts - 1, 20);
+        return Math.min(backoff, outbox.getMaxBackoff());
+    }
+}
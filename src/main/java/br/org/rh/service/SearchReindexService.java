@@ -0,0 +1,449 @@
+package br.org.rh.service;
+
+import br.org.rh.config.CacheConfiguration;
+import br.org.rh.config.JHipsterProperties;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.ISet;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.ElasticsearchException;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Service rebuilding the ElasticSearch indices from the database.
+ *
+ * <p>
+ * Each entity is indexed into a new versioned index (e.g. "banco_20161018120000000"), then the alias named after the
+ * {@link Document} index name is atomically switched to it and the previous indices are dropped. The table is split
+ * in id slices, which parallel workers read through a forward-only Hibernate cursor and send as bulk requests. With
+ * MySQL, the cursor only reads jhipster.search.reindex.fetchSize rows at a time if the JDBC URL has
+ * useCursorFetch=true, otherwise each worker holds its whole slice in memory.
+ * While a reindex is running, the {@link SearchOutboxService} also writes to the new index, and records the ids of
+ * the entities it changed. Before the alias is switched, these entities are indexed again from the database, or
+ * deleted from the new index, so a worker which read an entity before its change or deletion does not leave it
+ * stale. The outbox is not drained while the targets change and while the alias is switched.
+ */
+@Service
+public class SearchReindexService {
+
+    /**
+     * Hazelcast map of the indices being rebuilt: alias name to new index name.
+     */
+    public static final String REINDEX_TARGETS = "search-reindex-targets";
+
+    /**
+     * Prefix of the Hazelcast sets of the ids changed by the search outbox while an index is being rebuilt.
+     */
+    public static final String REINDEX_CHANGED_IDS = "search-reindex-changed-";
+
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexService.class);
+
+    private final Map<String, AtomicLong> remainingDocuments = new ConcurrentHashMap<>();
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Meter documentsMeter;
+
+    @PostConstruct
+    public void init() {
+        documentsMeter = metricRegistry.meter("search.reindex.documents");
+        metricRegistry.register("search.reindex.remaining", (Gauge<Long>) () ->
+            remainingDocuments.values().stream().mapToLong(AtomicLong::get).sum());
+    }
+
+    /**
+     * Rebuild all the indices at startup, if jhipster.search.reindex.onStartup is set.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexOnStartup() {
+        if (jHipsterProperties.getSearch().getReindex().isOnStartup()) {
+            log.info("Rebuilding ElasticSearch indices at startup");
+            reindexAll();
+        }
+    }
+
+    /**
+     * Rebuild all the indices in the background.
+     */
+    @Async
+    public void reindexAllAsync() {
+        reindexAll();
+    }
+
+    /**
+     * Rebuild all the indices, one entity after the other.
+     */
+    public void reindexAll() {
+        for (Class<?> entityClass : getIndexedEntityClasses()) {
+            try {
+                reindex(entityClass);
+            } catch (RuntimeException e) {
+                log.error("Could not reindex {}", entityClass.getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index of one entity in the background.
+     *
+     * @param entityClass the class of the entity to reindex
+     */
+    @Async
+    public void reindexAsync(Class<?> entityClass) {
+        reindex(entityClass);
+    }
+
+    /**
+     * @return the JPA entities which are stored in ElasticSearch
+     */
+    public List<Class<?>> getIndexedEntityClasses() {
+        return entityManagerFactory.getMetamodel().getEntities().stream()
+            .map(EntityType::getJavaType)
+            .filter(javaType -> javaType.isAnnotationPresent(Document.class))
+            .sorted(Comparator.comparing(Class::getSimpleName))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Rebuild the index of one entity, then switch its alias to the new index.
+     *
+     * @param entityClass the class of the entity to reindex
+     */
+    public void reindex(Class<?> entityClass) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+            .getMappingContext().getPersistentEntity(entityClass);
+        String alias = persistentEntity.getIndexName();
+        String type = persistentEntity.getIndexType();
+        ILock lock = hazelcastInstance.getLock("search-reindex-" + alias);
+        if (!lock.tryLock()) {
+            log.warn("Index {} is already being rebuilt", alias);
+            return;
+        }
+        ILock drainLock = hazelcastInstance.getLock(SearchOutboxService.DRAIN_LOCK);
+        IMap<String, String> targets = hazelcastInstance.getMap(REINDEX_TARGETS);
+        ISet<Long> changedIds = hazelcastInstance.getSet(REINDEX_CHANGED_IDS + alias);
+        String index = alias + "_" + ZonedDateTime.now().format(INDEX_SUFFIX);
+        AtomicLong remaining = new AtomicLong();
+        boolean switching = false;
+        try {
+            long start = System.currentTimeMillis();
+            createIndex(entityClass, persistentEntity, alias, index, type);
+            // An outbox batch which did not see the new index finishes before the slices are read
+            drainLock.lock();
+            try {
+                changedIds.clear();
+                targets.put(alias, index);
+            } finally {
+                drainLock.unlock();
+            }
+            remainingDocuments.put(alias, remaining);
+            long indexed = indexAll(entityClass, index, type, remaining);
+
+            client.admin().indices().prepareUpdateSettings(index)
+                .setSettings(ImmutableSettings.settingsBuilder()
+                    .put("index.refresh_interval", persistentEntity.getRefreshInterval())
+                    .put("index.number_of_replicas", persistentEntity.getReplicas()))
+                .get();
+            drainLock.lock();
+            try {
+                reindexChanged(entityClass, index, type, changedIds);
+                client.admin().indices().prepareRefresh(index).get();
+                // Once the previous index may be gone, the new one must be kept whatever happens
+                switching = true;
+                switchAlias(alias, index);
+                targets.remove(alias);
+            } finally {
+                drainLock.unlock();
+            }
+            cacheManager.getCache(CacheConfiguration.SEARCH_CACHE_PREFIX + entityClass.getSimpleName()).clear();
+            log.info("Reindexed {} {} documents into {} in {} ms", indexed, entityClass.getSimpleName(), index,
+                System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            if (switching) {
+                log.error("Could not point alias {} to index {}, the index is kept for a retry", alias, index, e);
+            } else if (elasticsearchTemplate.indexExists(index)) {
+                elasticsearchTemplate.deleteIndex(index);
+            }
+            throw e;
+        } finally {
+            targets.remove(alias);
+            changedIds.destroy();
+            remainingDocuments.remove(alias);
+            lock.unlock();
+        }
+    }
+
+    private void createIndex(Class<?> entityClass, ElasticsearchPersistentEntity<?> persistentEntity, String alias,
+                             String index, String type) {
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder();
+        if (entityClass.isAnnotationPresent(Setting.class)) {
+            settings.loadFromSource(ElasticsearchTemplate.readFileFromClasspath(
+                entityClass.getAnnotation(Setting.class).settingPath()));
+        } else {
+            settings.put("index.number_of_shards", persistentEntity.getShards());
+        }
+        // Refresh and replication are only enabled once the index is fully loaded
+        settings.put("index.refresh_interval", "-1");
+        settings.put("index.number_of_replicas", 0);
+        client.admin().indices().prepareCreate(index).setSettings(settings).get();
+
+        String mapping = null;
+        if (entityClass.isAnnotationPresent(Mapping.class)) {
+            mapping = ElasticsearchTemplate.readFileFromClasspath(entityClass.getAnnotation(Mapping.class).mappingPath());
+        } else if (elasticsearchTemplate.indexExists(alias)) {
+            GetMappingsResponse response = client.admin().indices().prepareGetMappings(alias).setTypes(type).get();
+            Iterator<ImmutableOpenMap<String, MappingMetaData>> mappings = response.getMappings().valuesIt();
+            while (mappings.hasNext()) {
+                MappingMetaData mappingMetaData = mappings.next().get(type);
+                if (mappingMetaData != null) {
+                    mapping = mappingMetaData.source().toString();
+                }
+            }
+        }
+        if (mapping != null) {
+            elasticsearchTemplate.putMapping(index, type, mapping);
+        }
+    }
+
+    private long indexAll(Class<?> entityClass, String index, String type, AtomicLong remaining) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        Object[] bounds;
+        try {
+            bounds = (Object[]) entityManager
+                .createQuery("select min(e.id), max(e.id), count(e) from " + entityClass.getName() + " e")
+                .getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+        if (bounds[0] == null) {
+            return 0;
+        }
+        long minId = (Long) bounds[0];
+        long maxId = (Long) bounds[1];
+        remaining.set((Long) bounds[2]);
+
+        JHipsterProperties.Search.Reindex properties = jHipsterProperties.getSearch().getReindex();
+        ExecutorService workers = Executors.newFixedThreadPool(properties.getParallelism());
+        try {
+            List<Future<Long>> slices = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += properties.getSliceSize()) {
+                long sliceFrom = from;
+                long sliceTo = Math.min(from + properties.getSliceSize() - 1, maxId);
+                slices.add(workers.submit(() -> indexSlice(entityClass, index, type, sliceFrom, sliceTo, remaining)));
+            }
+            long indexed = 0;
+            for (Future<Long> slice : slices) {
+                indexed += slice.get();
+            }
+            return indexed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Reindex of " + index + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ElasticsearchException("Reindex of " + index + " failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Stream the entities of an id slice and send them to ElasticSearch in bulk requests.
+     */
+    private long indexSlice(Class<?> entityClass, String index, String type, long fromId, long toId,
+                            AtomicLong remaining) throws IOException {
+        int bulkSize = jHipsterProperties.getSearch().getReindex().getBulkSize();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            Session session = entityManager.unwrap(Session.class);
+            ScrollableResults results = session
+                .createQuery("from " + entityClass.getName() + " e where e.id between :fromId and :toId")
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.GET)
+                .setFetchSize(jHipsterProperties.getSearch().getReindex().getFetchSize())
+                .scroll(ScrollMode.FORWARD_ONLY);
+            long indexed = 0;
+            try {
+                BulkRequestBuilder bulk = client.prepareBulk();
+                while (results.next()) {
+                    Object entity = results.get(0);
+                    // Documents written meanwhile by the search outbox are more recent, so they are not overwritten.
+                    // Entities deleted meanwhile are removed again by reindexChanged.
+                    bulk.add(client.prepareIndex(index, type, session.getIdentifier(entity).toString())
+                        .setOpType(IndexRequest.OpType.CREATE)
+                        .setSource(entityMapper.mapToString(entity)));
+                    if (bulk.numberOfActions() == bulkSize) {
+                        indexed += sendBulk(bulk, remaining);
+                        bulk = client.prepareBulk();
+                        session.clear();
+                    }
+                }
+                if (bulk.numberOfActions() > 0) {
+                    indexed += sendBulk(bulk, remaining);
+                }
+            } finally {
+                results.close();
+            }
+            entityManager.getTransaction().commit();
+            return indexed;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    private int sendBulk(BulkRequestBuilder bulk, AtomicLong remaining) {
+        int size = bulk.numberOfActions();
+        BulkResponse response = bulk.get();
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed() && !item.getFailureMessage().startsWith("DocumentAlreadyExistsException")) {
+                    throw new ElasticsearchException("Bulk indexing failed for document " + item.getId() + ": " +
+                        item.getFailureMessage());
+                }
+            }
+        }
+        documentsMeter.mark(size);
+        remaining.addAndGet(-size);
+        return size;
+    }
+
+    /**
+     * Index again the entities changed by the search outbox during the reindex, or delete them from the new index if
+     * they no longer exist. The outbox must not be drained meanwhile.
+     */
+    private void reindexChanged(Class<?> entityClass, String index, String type, ISet<Long> changedIds) {
+        List<Long> ids = new ArrayList<>(changedIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        int bulkSize = jHipsterProperties.getSearch().getReindex().getBulkSize();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            for (int from = 0; from < ids.size(); from += bulkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + bulkSize, ids.size()));
+                List<?> entities = entityManager
+                    .createQuery("select e from " + entityClass.getName() + " e where e.id in :ids")
+                    .setParameter("ids", chunk)
+                    .getResultList();
+                Set<Long> deleted = new HashSet<>(chunk);
+                BulkRequestBuilder bulk = client.prepareBulk();
+                for (Object entity : entities) {
+                    Long id = (Long) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+                    deleted.remove(id);
+                    bulk.add(client.prepareIndex(index, type, id.toString()).setSource(entityMapper.mapToString(entity)));
+                }
+                for (Long id : deleted) {
+                    bulk.add(client.prepareDelete(index, type, id.toString()));
+                }
+                BulkResponse response = bulk.get();
+                if (response.hasFailures()) {
+                    throw new ElasticsearchException("Bulk indexing of the changed documents failed: " +
+                        response.buildFailureMessage());
+                }
+                entityManager.clear();
+            }
+        } catch (IOException e) {
+            throw new ElasticsearchException("Could not map a changed " + entityClass.getSimpleName(), e);
+        } finally {
+            entityManager.close();
+        }
+        log.debug("Reindexed {} {} changed during the reindex", ids.size(), entityClass.getSimpleName());
+    }
+
+    /**
+     * Point the alias to the new index, and drop the indices it was pointing to.
+     */
+    private void switchAlias(String alias, String index) {
+        boolean isAlias = client.admin().indices().prepareAliasesExist(alias).get().exists();
+        List<String> previousIndices = new ArrayList<>();
+        if (isAlias) {
+            client.admin().indices().prepareGetAliases(alias).get().getAliases().keysIt()
+                .forEachRemaining(previousIndices::add);
+        } else if (elasticsearchTemplate.indexExists(alias)) {
+            // First reindex: the index was created by Spring Data, it must be dropped before the alias is created
+            log.warn("Replacing index {} by an alias, searches on {} will fail until the alias is created", alias, alias);
+            elasticsearchTemplate.deleteIndex(alias);
+        }
+        IndicesAliasesRequestBuilder request = client.admin().indices().prepareAliases();
+        for (String previousIndex : previousIndices) {
+            request.removeAlias(previousIndex, alias);
+        }
+        request.addAlias(index, alias).get();
+        for (String previousIndex : previousIndices) {
+            elasticsearchTemplate.deleteIndex(previousIndex);
+        }
+    }
+}
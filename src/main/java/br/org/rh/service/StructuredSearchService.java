@@ -0,0 +1,200 @@
+package br.org.rh.service;
+
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.errors.CustomParameterizedException;
+import br.org.rh.web.rest.errors.ErrorConstants;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import javax.persistence.Column;
+import javax.persistence.Id;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.elasticsearch.index.query.FilterBuilders.*;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Service searching entities with structured queries, compiled into Elasticsearch filtered queries.
+ *
+ * <p>
+ * Only the columns of the entities can be searched, sorted and highlighted: text columns with "match", "prefix" and
+ * "term", the other columns with "term" only. Sorting is limited to the columns which are not text, and to the
+ * score, as sorting on analyzed text loads all its terms in memory. "prefix" and "term" values are lowercased, as
+ * the text columns are indexed with the standard analyzer.
+ */
+@Service
+public class StructuredSearchService {
+
+    private static final String SCORE = "_score";
+
+    private final Logger log = LoggerFactory.getLogger(StructuredSearchService.class);
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    /**
+     * Searchable fields of each entity class: field name to whether it is a text field.
+     */
+    private final Map<Class<?>, Map<String, Boolean>> searchableFields = new ConcurrentHashMap<>();
+
+    /**
+     * Search for a page of entities.
+     *
+     * @param entityClass the class of the entities
+     * @param request the structured search
+     * @param pageable the pagination information, sorted by score if it has no sort
+     * @return the page of entities, with their score and highlighted fragments
+     * @throws CustomParameterizedException if a field of the search cannot be searched, sorted or highlighted
+     */
+    public <T> Page<SearchHitDTO<T>> search(Class<T> entityClass, SearchRequestDTO request, Pageable pageable) {
+        log.debug("Request to search for a page of {} : {}", entityClass.getSimpleName(), request);
+        Map<String, Boolean> fields = searchableFields.computeIfAbsent(entityClass, this::getSearchableFields);
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+            .getMappingContext().getPersistentEntity(entityClass);
+
+        SearchRequestBuilder searchRequest = client.prepareSearch(persistentEntity.getIndexName())
+            .setTypes(persistentEntity.getIndexType())
+            .setQuery(buildQuery(request, fields))
+            .setFrom(pageable.getOffset())
+            .setSize(pageable.getPageSize());
+        if (request.getMinScore() != null) {
+            searchRequest.setMinScore(request.getMinScore());
+        }
+        for (String field : request.getHighlight()) {
+            checkField(fields, field, true);
+            searchRequest.addHighlightedField(field);
+        }
+        if (pageable.getSort() != null) {
+            searchRequest.setTrackScores(true);
+            for (Sort.Order order : pageable.getSort()) {
+                SortOrder sortOrder = order.isAscending() ? SortOrder.ASC : SortOrder.DESC;
+                if (SCORE.equals(order.getProperty())) {
+                    searchRequest.addSort(SortBuilders.scoreSort().order(sortOrder));
+                } else {
+                    checkSortField(fields, order.getProperty());
+                    searchRequest.addSort(SortBuilders.fieldSort(order.getProperty()).order(sortOrder));
+                }
+            }
+        }
+
+        SearchResponse response = searchRequest.get();
+        List<SearchHitDTO<T>> hits = new ArrayList<>(response.getHits().getHits().length);
+        for (SearchHit hit : response.getHits()) {
+            hits.add(new SearchHitDTO<>(mapEntity(hit, entityClass), hit.getScore(), getHighlights(hit)));
+        }
+        return new PageImpl<>(hits, pageable, response.getHits().getTotalHits());
+    }
+
+    private QueryBuilder buildQuery(SearchRequestDTO request, Map<String, Boolean> fields) {
+        BoolQueryBuilder query = boolQuery();
+        request.getMatch().forEach((field, value) -> {
+            checkField(fields, field, true);
+            query.must(matchQuery(field, value));
+        });
+        if (request.getQuery() != null) {
+            QueryStringQueryBuilder queryString = queryStringQuery(request.getQuery())
+                .allowLeadingWildcard(false)
+                .lenient(true);
+            fields.forEach((field, text) -> {
+                if (text) {
+                    queryString.field(field);
+                }
+            });
+            query.must(queryString);
+        }
+
+        BoolFilterBuilder filter = boolFilter();
+        request.getPrefix().forEach((field, value) -> {
+            checkField(fields, field, true);
+            filter.must(prefixFilter(field, value.toLowerCase(Locale.ROOT)));
+        });
+        request.getTerm().forEach((field, value) -> {
+            checkField(fields, field, false);
+            filter.must(termFilter(field, fields.get(field) ? value.toLowerCase(Locale.ROOT) : value));
+        });
+
+        QueryBuilder scoredQuery = query.hasClauses() ? query : matchAllQuery();
+        return filter.hasClauses() ? filteredQuery(scoredQuery, filter) : scoredQuery;
+    }
+
+    /**
+     * @param text true if the field must be a text field, false if it can be any field
+     */
+    private void checkField(Map<String, Boolean> fields, String field, boolean text) {
+        Boolean textField = fields.get(field);
+        if (textField == null || (text && !textField)) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_SEARCH_FIELD, field);
+        }
+    }
+
+    private void checkSortField(Map<String, Boolean> fields, String field) {
+        if (!Boolean.FALSE.equals(fields.get(field))) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_SEARCH_FIELD, field);
+        }
+    }
+
+    private Map<String, Boolean> getSearchableFields(Class<?> entityClass) {
+        Map<String, Boolean> fields = new HashMap<>();
+        for (Class<?> javaType = entityClass; javaType != Object.class; javaType = javaType.getSuperclass()) {
+            for (Field field : javaType.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Column.class) || field.isAnnotationPresent(Id.class)) {
+                    fields.put(field.getName(), field.getType() == String.class);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private <T> T mapEntity(SearchHit hit, Class<T> entityClass) {
+        try {
+            return entityMapper.mapToObject(hit.getSourceAsString(), entityClass);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, List<String>> getHighlights(SearchHit hit) {
+        Map<String, List<String>> highlights = new LinkedHashMap<>();
+        for (HighlightField highlightField : hit.getHighlightFields().values()) {
+            List<String> fragments = new ArrayList<>();
+            for (Text fragment : highlightField.getFragments()) {
+                fragments.add(fragment.string());
+            }
+            highlights.put(highlightField.getName(), fragments);
+        }
+        return highlights;
+    }
+}
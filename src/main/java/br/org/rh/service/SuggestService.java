@@ -0,0 +1,163 @@
+package br.org.rh.service;
+
+import br.org.rh.config.JHipsterProperties;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Service suggesting entities whose field starts with a prefix, for the typeahead fields of the front-end.
+ *
+ * <p>
+ * The suggested fields have an "autocomplete" sub-field, indexed with the edge n-grams of their words (see
+ * /config/elasticsearch/mappings), so a prefix is found with a single term lookup per word instead of a wildcard
+ * query. The last suggestions of each entity type are kept in an LRU cache on each node, as the same prefixes are
+ * typed again and again. They are dropped when entities of the type change on any node (see
+ * {@link EntityChangeTracker}), and after jhipster.search.suggest.timeToLiveSeconds, which bounds the time the
+ * search outbox takes to index the changes.
+ */
+@Service
+public class SuggestService {
+
+    private static final String AUTOCOMPLETE_FIELD = ".autocomplete";
+
+    private final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    /**
+     * Cached suggestions, by qualified name of the entity class.
+     */
+    private final Map<String, SuggestionCache> caches = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        entityChangeTracker.addListener(caches::remove);
+    }
+
+    /**
+     * Suggest the entities whose field has words starting with the words of a prefix.
+     *
+     * @param entityClass the class of the entities, whose mapping has an "autocomplete" sub-field for the field
+     * @param field the suggested field
+     * @param prefix the prefix typed by the user
+     * @param size the maximum number of entities, capped at jhipster.search.suggest.maxResults
+     * @return the entities, best matches first
+     */
+    public <T> List<T> suggest(Class<T> entityClass, String field, String prefix, int size) {
+        String normalizedPrefix = prefix.trim().toLowerCase(Locale.ROOT);
+        int maxResults = Math.max(0, Math.min(size, jHipsterProperties.getSearch().getSuggest().getMaxResults()));
+        if (normalizedPrefix.isEmpty() || maxResults == 0) {
+            return Collections.emptyList();
+        }
+        String key = field + ':' + maxResults + ':' + normalizedPrefix;
+        SuggestionCache cache = caches.computeIfAbsent(entityClass.getName(), type -> new SuggestionCache(
+            jHipsterProperties.getSearch().getSuggest().getMaxSize()));
+        @SuppressWarnings("unchecked")
+        List<T> suggestions = (List<T>) cache.get(key);
+        if (suggestions == null) {
+            suggestions = search(entityClass, field, normalizedPrefix, maxResults);
+            cache.put(key, suggestions);
+        }
+        return suggestions;
+    }
+
+    private <T> List<T> search(Class<T> entityClass, String field, String prefix, int size) {
+        log.debug("Request to suggest {} for {} prefix {}", entityClass.getSimpleName(), field, prefix);
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getElasticsearchConverter()
+            .getMappingContext().getPersistentEntity(entityClass);
+        // Every word must start with a typed word, the entities with whole typed words come first
+        SearchHit[] hits = client.prepareSearch(persistentEntity.getIndexName())
+            .setTypes(persistentEntity.getIndexType())
+            .setQuery(boolQuery()
+                .must(matchQuery(field + AUTOCOMPLETE_FIELD, prefix).operator(MatchQueryBuilder.Operator.AND))
+                .should(matchQuery(field, prefix)))
+            .setSize(size)
+            .get().getHits().getHits();
+        List<T> suggestions = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            try {
+                suggestions.add(entityMapper.mapToObject(hit.getSourceAsString(), entityClass));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return Collections.unmodifiableList(suggestions);
+    }
+
+    /**
+     * LRU cache of the suggestions of an entity type, by field, size and prefix.
+     */
+    private class SuggestionCache {
+
+        private final Map<String, Suggestions> entries;
+
+        SuggestionCache(int maxSize) {
+            entries = new LinkedHashMap<String, Suggestions>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Suggestions> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized List<?> get(String key) {
+            Suggestions suggestions = entries.get(key);
+            if (suggestions == null) {
+                return null;
+            }
+            if (suggestions.expiration - System.nanoTime() < 0) {
+                entries.remove(key);
+                return null;
+            }
+            return suggestions.entities;
+        }
+
+        synchronized void put(String key, List<?> entities) {
+            long timeToLive = TimeUnit.SECONDS.toNanos(jHipsterProperties.getSearch().getSuggest().getTimeToLiveSeconds());
+            entries.put(key, new Suggestions(entities, System.nanoTime() + timeToLive));
+        }
+    }
+
+    private static final class Suggestions {
+
+        private final List<?> entities;
+
+        private final long expiration;
+
+        Suggestions(List<?> entities, long expiration) {
+            this.entities = entities;
+            this.expiration = expiration;
+        }
+    }
+}
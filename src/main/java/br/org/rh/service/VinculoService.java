@@ -3,6 +3,7 @@ package br.org.rh.service;
 import br.org.rh.domain.Vinculo;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -19,6 +20,14 @@ public interface VinculoService {
      */
     Vinculo save(Vinculo vinculo);
 
+    /**
+     * Save a list of vinculos in a single transaction.
+     *
+     * @param vinculos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<Vinculo> saveAll(List<Vinculo> vinculos);
+
     /**
      *  Get all the vinculos.
      *  
@@ -27,6 +36,22 @@ public interface VinculoService {
      */
     Page<Vinculo> findAll(Pageable pageable);
 
+    /**
+     *  Get the vinculos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Vinculo> findAllAfter(Long id, int size);
+
+    /**
+     *  Count the vinculos.
+     *
+     *  @return the number of entities
+     */
+    long count();
+
     /**
      *  Get the "id" vinculo.
      *  
@@ -35,6 +60,14 @@ public interface VinculoService {
      */
     Vinculo findOne(Long id);
 
+    /**
+     *  Get the vinculos of a list of ids, read from the second level cache when possible.
+     *  
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    List<Vinculo> findAll(List<Long> ids);
+
     /**
      *  Delete the "id" vinculo.
      *  
@@ -49,4 +82,14 @@ public interface VinculoService {
      *  @return the list of entities
      */
     Page<Vinculo> search(String query, Pageable pageable);
+
+    /**
+     * Search for the vinculos corresponding to the query following an id, ordered by id.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    Slice<Vinculo> searchAfter(String query, Long id, int size);
 }
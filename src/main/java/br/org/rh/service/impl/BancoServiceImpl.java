@@ -1,21 +1,36 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.BancoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Banco;
 import br.org.rh.repository.BancoRepository;
 import br.org.rh.repository.search.BancoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +47,21 @@ public class BancoServiceImpl implements BancoService{
     
     @Inject
     private BancoSearchRepository bancoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
     
     /**
      * Save a banco.
@@ -39,10 +69,28 @@ public class BancoServiceImpl implements BancoService{
      * @param banco the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Banco", allEntries = true)
     public Banco save(Banco banco) {
         log.debug("Request to save Banco : {}", banco);
+        entityVersionService.fillMissingVersions(Banco.class, Collections.singletonList(banco), Banco::getId);
         Banco result = bancoRepository.save(banco);
-        bancoSearchRepository.save(result);
+        searchOutboxService.index(Banco.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of bancos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param bancos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Banco", allEntries = true)
+    public List<Banco> saveAll(List<Banco> bancos) {
+        log.debug("Request to save {} Bancos", bancos.size());
+        entityVersionService.fillMissingVersions(Banco.class, bancos, Banco::getId);
+        List<Banco> result = bancoRepository.save(bancos);
+        searchOutboxService.index(Banco.class, result.stream().map(Banco::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +101,37 @@ public class BancoServiceImpl implements BancoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Banco")
     public Page<Banco> findAll(Pageable pageable) {
         log.debug("Request to get all Bancos");
         Page<Banco> result = bancoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the bancos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Banco> findAllAfter(Long id, int size) {
+        log.debug("Request to get Bancos after : {}", id);
+        return bancoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the bancos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Bancos");
+        return bancoRepository.count();
+    }
+
     /**
      *  Get one banco by id.
      *
@@ -72,26 +145,90 @@ public class BancoServiceImpl implements BancoService{
         return banco;
     }
 
+    /**
+     *  Get the bancos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Banco> findAll(List<Long> ids) {
+        log.debug("Request to get Bancos : {}", ids);
+        return multiGetService.findAll(Banco.class, ids, Banco::getId);
+    }
+
+    /**
+     *  Get one banco by codigo.
+     *
+     *  @param codigo the codigo of the entity
+     *  @return the entity
+     */
+    @Transactional(readOnly = true)
+    public Banco findOneByCodigo(String codigo) {
+        log.debug("Request to get Banco by codigo : {}", codigo);
+        return naturalIdService.findOne(Banco.class, codigo);
+    }
+
+    /**
+     *  Get the bancos of a list of codigos.
+     *
+     *  @param codigos the codigos of the entities
+     *  @return the entities found, in the order of their codigos
+     */
+    @Transactional(readOnly = true)
+    public List<Banco> findAllByCodigo(List<String> codigos) {
+        log.debug("Request to get Bancos by codigos : {}", codigos);
+        return naturalIdService.findAll(Banco.class, codigos);
+    }
+
     /**
      *  Delete the  banco by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Banco", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Banco : {}", id);
         bancoRepository.delete(id);
-        bancoSearchRepository.delete(id);
+        searchOutboxService.delete(Banco.class, id);
     }
 
     /**
      * Search for the banco corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the bancos whose codigo or nome starts with the query are read from
+     * the database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Banco", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Banco> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Bancos for query {}", query);
-        return bancoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Banco.class, query, pageable,
+            () -> bancoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> bancoRepository.findAllByCodigoStartingWithOrNomeStartingWith(prefix, prefix, pageable));
+    }
+
+    /**
+     * Search for the bancos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Banco> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Bancos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return bancoSearchRepository.search(searchQuery);
     }
 }
@@ -1,21 +1,35 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.CargoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Cargo;
 import br.org.rh.repository.CargoRepository;
 import br.org.rh.repository.search.CargoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +46,18 @@ public class CargoServiceImpl implements CargoService{
     
     @Inject
     private CargoSearchRepository cargoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
     
     /**
      * Save a cargo.
@@ -39,10 +65,28 @@ public class CargoServiceImpl implements CargoService{
      * @param cargo the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Cargo", allEntries = true)
     public Cargo save(Cargo cargo) {
         log.debug("Request to save Cargo : {}", cargo);
+        entityVersionService.fillMissingVersions(Cargo.class, Collections.singletonList(cargo), Cargo::getId);
         Cargo result = cargoRepository.save(cargo);
-        cargoSearchRepository.save(result);
+        searchOutboxService.index(Cargo.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of cargos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param cargos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Cargo", allEntries = true)
+    public List<Cargo> saveAll(List<Cargo> cargos) {
+        log.debug("Request to save {} Cargos", cargos.size());
+        entityVersionService.fillMissingVersions(Cargo.class, cargos, Cargo::getId);
+        List<Cargo> result = cargoRepository.save(cargos);
+        searchOutboxService.index(Cargo.class, result.stream().map(Cargo::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +97,37 @@ public class CargoServiceImpl implements CargoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Cargo")
     public Page<Cargo> findAll(Pageable pageable) {
         log.debug("Request to get all Cargos");
         Page<Cargo> result = cargoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the cargos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Cargo> findAllAfter(Long id, int size) {
+        log.debug("Request to get Cargos after : {}", id);
+        return cargoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the cargos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Cargos");
+        return cargoRepository.count();
+    }
+
     /**
      *  Get one cargo by id.
      *
@@ -72,26 +141,66 @@ public class CargoServiceImpl implements CargoService{
         return cargo;
     }
 
+    /**
+     *  Get the cargos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Cargo> findAll(List<Long> ids) {
+        log.debug("Request to get Cargos : {}", ids);
+        return multiGetService.findAll(Cargo.class, ids, Cargo::getId);
+    }
+
     /**
      *  Delete the  cargo by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Cargo", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Cargo : {}", id);
         cargoRepository.delete(id);
-        cargoSearchRepository.delete(id);
+        searchOutboxService.delete(Cargo.class, id);
     }
 
     /**
      * Search for the cargo corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the cargos whose nome starts with the query are read from the
+     * database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Cargo", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Cargo> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Cargos for query {}", query);
-        return cargoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Cargo.class, query, pageable,
+            () -> cargoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> cargoRepository.findAllByNomeStartingWith(prefix, pageable));
+    }
+
+    /**
+     * Search for the cargos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Cargo> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Cargos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return cargoSearchRepository.search(searchQuery);
     }
 }
@@ -1,21 +1,35 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.EscolaridadeService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Escolaridade;
 import br.org.rh.repository.EscolaridadeRepository;
 import br.org.rh.repository.search.EscolaridadeSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +46,18 @@ public class EscolaridadeServiceImpl implements EscolaridadeService{
     
     @Inject
     private EscolaridadeSearchRepository escolaridadeSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
     
     /**
      * Save a escolaridade.
@@ -39,10 +65,28 @@ public class EscolaridadeServiceImpl implements EscolaridadeService{
      * @param escolaridade the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Escolaridade", allEntries = true)
     public Escolaridade save(Escolaridade escolaridade) {
         log.debug("Request to save Escolaridade : {}", escolaridade);
+        entityVersionService.fillMissingVersions(Escolaridade.class, Collections.singletonList(escolaridade), Escolaridade::getId);
         Escolaridade result = escolaridadeRepository.save(escolaridade);
-        escolaridadeSearchRepository.save(result);
+        searchOutboxService.index(Escolaridade.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of escolaridades in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param escolaridades the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Escolaridade", allEntries = true)
+    public List<Escolaridade> saveAll(List<Escolaridade> escolaridades) {
+        log.debug("Request to save {} Escolaridades", escolaridades.size());
+        entityVersionService.fillMissingVersions(Escolaridade.class, escolaridades, Escolaridade::getId);
+        List<Escolaridade> result = escolaridadeRepository.save(escolaridades);
+        searchOutboxService.index(Escolaridade.class, result.stream().map(Escolaridade::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +97,37 @@ public class EscolaridadeServiceImpl implements EscolaridadeService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Escolaridade")
     public Page<Escolaridade> findAll(Pageable pageable) {
         log.debug("Request to get all Escolaridades");
         Page<Escolaridade> result = escolaridadeRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the escolaridades following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Escolaridade> findAllAfter(Long id, int size) {
+        log.debug("Request to get Escolaridades after : {}", id);
+        return escolaridadeRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the escolaridades.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Escolaridades");
+        return escolaridadeRepository.count();
+    }
+
     /**
      *  Get one escolaridade by id.
      *
@@ -72,26 +141,66 @@ public class EscolaridadeServiceImpl implements EscolaridadeService{
         return escolaridade;
     }
 
+    /**
+     *  Get the escolaridades of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Escolaridade> findAll(List<Long> ids) {
+        log.debug("Request to get Escolaridades : {}", ids);
+        return multiGetService.findAll(Escolaridade.class, ids, Escolaridade::getId);
+    }
+
     /**
      *  Delete the  escolaridade by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Escolaridade", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Escolaridade : {}", id);
         escolaridadeRepository.delete(id);
-        escolaridadeSearchRepository.delete(id);
+        searchOutboxService.delete(Escolaridade.class, id);
     }
 
     /**
      * Search for the escolaridade corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the escolaridades whose nome starts with the query are read from the
+     * database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Escolaridade", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Escolaridade> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Escolaridades for query {}", query);
-        return escolaridadeSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Escolaridade.class, query, pageable,
+            () -> escolaridadeSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> escolaridadeRepository.findAllByNomeStartingWith(prefix, pageable));
+    }
+
+    /**
+     * Search for the escolaridades corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Escolaridade> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Escolaridades after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return escolaridadeSearchRepository.search(searchQuery);
     }
 }
@@ -1,21 +1,35 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.FormacaoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Formacao;
 import br.org.rh.repository.FormacaoRepository;
 import br.org.rh.repository.search.FormacaoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +46,18 @@ public class FormacaoServiceImpl implements FormacaoService{
     
     @Inject
     private FormacaoSearchRepository formacaoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
     
     /**
      * Save a formacao.
@@ -39,10 +65,28 @@ public class FormacaoServiceImpl implements FormacaoService{
      * @param formacao the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Formacao", allEntries = true)
     public Formacao save(Formacao formacao) {
         log.debug("Request to save Formacao : {}", formacao);
+        entityVersionService.fillMissingVersions(Formacao.class, Collections.singletonList(formacao), Formacao::getId);
         Formacao result = formacaoRepository.save(formacao);
-        formacaoSearchRepository.save(result);
+        searchOutboxService.index(Formacao.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of formacaos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param formacaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Formacao", allEntries = true)
+    public List<Formacao> saveAll(List<Formacao> formacaos) {
+        log.debug("Request to save {} Formacaos", formacaos.size());
+        entityVersionService.fillMissingVersions(Formacao.class, formacaos, Formacao::getId);
+        List<Formacao> result = formacaoRepository.save(formacaos);
+        searchOutboxService.index(Formacao.class, result.stream().map(Formacao::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +97,37 @@ public class FormacaoServiceImpl implements FormacaoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Formacao")
     public Page<Formacao> findAll(Pageable pageable) {
         log.debug("Request to get all Formacaos");
         Page<Formacao> result = formacaoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the formacaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Formacao> findAllAfter(Long id, int size) {
+        log.debug("Request to get Formacaos after : {}", id);
+        return formacaoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the formacaos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Formacaos");
+        return formacaoRepository.count();
+    }
+
     /**
      *  Get one formacao by id.
      *
@@ -72,26 +141,66 @@ public class FormacaoServiceImpl implements FormacaoService{
         return formacao;
     }
 
+    /**
+     *  Get the formacaos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Formacao> findAll(List<Long> ids) {
+        log.debug("Request to get Formacaos : {}", ids);
+        return multiGetService.findAll(Formacao.class, ids, Formacao::getId);
+    }
+
     /**
      *  Delete the  formacao by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Formacao", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Formacao : {}", id);
         formacaoRepository.delete(id);
-        formacaoSearchRepository.delete(id);
+        searchOutboxService.delete(Formacao.class, id);
     }
 
     /**
      * Search for the formacao corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the formacaos whose nome starts with the query are read from the
+     * database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Formacao", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Formacao> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Formacaos for query {}", query);
-        return formacaoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Formacao.class, query, pageable,
+            () -> formacaoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> formacaoRepository.findAllByNomeStartingWith(prefix, pageable));
+    }
+
+    /**
+     * Search for the formacaos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Formacao> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Formacaos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return formacaoSearchRepository.search(searchQuery);
     }
 }
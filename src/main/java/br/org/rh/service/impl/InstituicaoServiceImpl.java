@@ -1,21 +1,37 @@
 package br.org.rh.service.impl;
 
+import br.org.rh.service.InstituicaoHierarchyService;
 import br.org.rh.service.InstituicaoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Instituicao;
 import br.org.rh.repository.InstituicaoRepository;
 import br.org.rh.repository.search.InstituicaoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +48,24 @@ public class InstituicaoServiceImpl implements InstituicaoService{
     
     @Inject
     private InstituicaoSearchRepository instituicaoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+
+    @Inject
+    private InstituicaoHierarchyService instituicaoHierarchyService;
     
     /**
      * Save a instituicao.
@@ -39,10 +73,30 @@ public class InstituicaoServiceImpl implements InstituicaoService{
      * @param instituicao the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Instituicao", allEntries = true)
     public Instituicao save(Instituicao instituicao) {
         log.debug("Request to save Instituicao : {}", instituicao);
+        entityVersionService.fillMissingVersions(Instituicao.class, Collections.singletonList(instituicao), Instituicao::getId);
         Instituicao result = instituicaoRepository.save(instituicao);
-        instituicaoSearchRepository.save(result);
+        instituicaoHierarchyService.onSave(result);
+        searchOutboxService.index(Instituicao.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of instituicaos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param instituicaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Instituicao", allEntries = true)
+    public List<Instituicao> saveAll(List<Instituicao> instituicaos) {
+        log.debug("Request to save {} Instituicaos", instituicaos.size());
+        entityVersionService.fillMissingVersions(Instituicao.class, instituicaos, Instituicao::getId);
+        List<Instituicao> result = instituicaoRepository.save(instituicaos);
+        instituicaoHierarchyService.onSaveAll(result);
+        searchOutboxService.index(Instituicao.class, result.stream().map(Instituicao::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +107,37 @@ public class InstituicaoServiceImpl implements InstituicaoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Instituicao")
     public Page<Instituicao> findAll(Pageable pageable) {
         log.debug("Request to get all Instituicaos");
         Page<Instituicao> result = instituicaoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the instituicaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Instituicao> findAllAfter(Long id, int size) {
+        log.debug("Request to get Instituicaos after : {}", id);
+        return instituicaoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the instituicaos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Instituicaos");
+        return instituicaoRepository.count();
+    }
+
     /**
      *  Get one instituicao by id.
      *
@@ -72,26 +151,91 @@ public class InstituicaoServiceImpl implements InstituicaoService{
         return instituicao;
     }
 
+    /**
+     *  Get the instituicaos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Instituicao> findAll(List<Long> ids) {
+        log.debug("Request to get Instituicaos : {}", ids);
+        return multiGetService.findAll(Instituicao.class, ids, Instituicao::getId);
+    }
+
+    /**
+     *  Get one instituicao by sigla.
+     *
+     *  @param sigla the sigla of the entity
+     *  @return the entity
+     */
+    @Transactional(readOnly = true)
+    public Instituicao findOneBySigla(String sigla) {
+        log.debug("Request to get Instituicao by sigla : {}", sigla);
+        return naturalIdService.findOne(Instituicao.class, sigla);
+    }
+
+    /**
+     *  Get the instituicaos of a list of siglas.
+     *
+     *  @param siglas the siglas of the entities
+     *  @return the entities found, in the order of their siglas
+     */
+    @Transactional(readOnly = true)
+    public List<Instituicao> findAllBySigla(List<String> siglas) {
+        log.debug("Request to get Instituicaos by siglas : {}", siglas);
+        return naturalIdService.findAll(Instituicao.class, siglas);
+    }
+
     /**
      *  Delete the  instituicao by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Instituicao", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Instituicao : {}", id);
+        instituicaoHierarchyService.onDelete(id);
         instituicaoRepository.delete(id);
-        instituicaoSearchRepository.delete(id);
+        searchOutboxService.delete(Instituicao.class, id);
     }
 
     /**
      * Search for the instituicao corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the instituicaos whose sigla or nome starts with the query are read
+     * from the database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Instituicao", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Instituicao> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Instituicaos for query {}", query);
-        return instituicaoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Instituicao.class, query, pageable,
+            () -> instituicaoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> instituicaoRepository.findAllBySiglaStartingWithOrNomeStartingWith(prefix, prefix, pageable));
+    }
+
+    /**
+     * Search for the instituicaos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Instituicao> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Instituicaos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return instituicaoSearchRepository.search(searchQuery);
     }
 }
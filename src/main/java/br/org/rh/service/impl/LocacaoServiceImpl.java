@@ -1,21 +1,35 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.LocacaoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Locacao;
 import br.org.rh.repository.LocacaoRepository;
 import br.org.rh.repository.search.LocacaoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +46,18 @@ public class LocacaoServiceImpl implements LocacaoService{
     
     @Inject
     private LocacaoSearchRepository locacaoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
     
     /**
      * Save a locacao.
@@ -39,10 +65,28 @@ public class LocacaoServiceImpl implements LocacaoService{
      * @param locacao the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Locacao", allEntries = true)
     public Locacao save(Locacao locacao) {
         log.debug("Request to save Locacao : {}", locacao);
+        entityVersionService.fillMissingVersions(Locacao.class, Collections.singletonList(locacao), Locacao::getId);
         Locacao result = locacaoRepository.save(locacao);
-        locacaoSearchRepository.save(result);
+        searchOutboxService.index(Locacao.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of locacaos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param locacaos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Locacao", allEntries = true)
+    public List<Locacao> saveAll(List<Locacao> locacaos) {
+        log.debug("Request to save {} Locacaos", locacaos.size());
+        entityVersionService.fillMissingVersions(Locacao.class, locacaos, Locacao::getId);
+        List<Locacao> result = locacaoRepository.save(locacaos);
+        searchOutboxService.index(Locacao.class, result.stream().map(Locacao::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +97,37 @@ public class LocacaoServiceImpl implements LocacaoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Locacao")
     public Page<Locacao> findAll(Pageable pageable) {
         log.debug("Request to get all Locacaos");
         Page<Locacao> result = locacaoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the locacaos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Locacao> findAllAfter(Long id, int size) {
+        log.debug("Request to get Locacaos after : {}", id);
+        return locacaoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the locacaos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Locacaos");
+        return locacaoRepository.count();
+    }
+
     /**
      *  Get one locacao by id.
      *
@@ -72,26 +141,66 @@ public class LocacaoServiceImpl implements LocacaoService{
         return locacao;
     }
 
+    /**
+     *  Get the locacaos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Locacao> findAll(List<Long> ids) {
+        log.debug("Request to get Locacaos : {}", ids);
+        return multiGetService.findAll(Locacao.class, ids, Locacao::getId);
+    }
+
     /**
      *  Delete the  locacao by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Locacao", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Locacao : {}", id);
         locacaoRepository.delete(id);
-        locacaoSearchRepository.delete(id);
+        searchOutboxService.delete(Locacao.class, id);
     }
 
     /**
      * Search for the locacao corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the locacaos whose nome starts with the query are read from the
+     * database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Locacao", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Locacao> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Locacaos for query {}", query);
-        return locacaoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Locacao.class, query, pageable,
+            () -> locacaoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> locacaoRepository.findAllByNomeStartingWith(prefix, pageable));
+    }
+
+    /**
+     * Search for the locacaos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Locacao> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Locacaos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return locacaoSearchRepository.search(searchQuery);
     }
 }
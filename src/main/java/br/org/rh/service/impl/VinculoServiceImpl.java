@@ -1,21 +1,35 @@
 package br.org.rh.service.impl;
 
 import br.org.rh.service.VinculoService;
+import br.org.rh.service.EntityVersionService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchCircuitBreaker;
+import br.org.rh.service.SearchOutboxService;
 import br.org.rh.domain.Vinculo;
 import br.org.rh.repository.VinculoRepository;
 import br.org.rh.repository.search.VinculoSearchRepository;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -32,6 +46,18 @@ public class VinculoServiceImpl implements VinculoService{
     
     @Inject
     private VinculoSearchRepository vinculoSearchRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Inject
+    private EntityVersionService entityVersionService;
+
+    @Inject
+    private MultiGetService multiGetService;
     
     /**
      * Save a vinculo.
@@ -39,10 +65,28 @@ public class VinculoServiceImpl implements VinculoService{
      * @param vinculo the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "pages.Vinculo", allEntries = true)
     public Vinculo save(Vinculo vinculo) {
         log.debug("Request to save Vinculo : {}", vinculo);
+        entityVersionService.fillMissingVersions(Vinculo.class, Collections.singletonList(vinculo), Vinculo::getId);
         Vinculo result = vinculoRepository.save(vinculo);
-        vinculoSearchRepository.save(result);
+        searchOutboxService.index(Vinculo.class, result.getId());
+        return result;
+    }
+
+    /**
+     * Save a list of vinculos in a single transaction.
+     * Inserts and updates are sent as JDBC batches, and the whole list is queued for indexing.
+     *
+     * @param vinculos the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @CacheEvict(cacheNames = "pages.Vinculo", allEntries = true)
+    public List<Vinculo> saveAll(List<Vinculo> vinculos) {
+        log.debug("Request to save {} Vinculos", vinculos.size());
+        entityVersionService.fillMissingVersions(Vinculo.class, vinculos, Vinculo::getId);
+        List<Vinculo> result = vinculoRepository.save(vinculos);
+        searchOutboxService.index(Vinculo.class, result.stream().map(Vinculo::getId).collect(Collectors.toList()));
         return result;
     }
 
@@ -53,12 +97,37 @@ public class VinculoServiceImpl implements VinculoService{
      *  @return the list of entities
      */
     @Transactional(readOnly = true) 
+    @Cacheable("pages.Vinculo")
     public Page<Vinculo> findAll(Pageable pageable) {
         log.debug("Request to get all Vinculos");
         Page<Vinculo> result = vinculoRepository.findAll(pageable); 
         return result;
     }
 
+    /**
+     *  Get the vinculos following an id, ordered by id.
+     *
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Vinculo> findAllAfter(Long id, int size) {
+        log.debug("Request to get Vinculos after : {}", id);
+        return vinculoRepository.findAllByIdGreaterThanOrderByIdAsc(id == null ? Long.MIN_VALUE : id, new PageRequest(0, size));
+    }
+
+    /**
+     *  Count the vinculos.
+     *
+     *  @return the number of entities
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        log.debug("Request to count Vinculos");
+        return vinculoRepository.count();
+    }
+
     /**
      *  Get one vinculo by id.
      *
@@ -72,26 +141,66 @@ public class VinculoServiceImpl implements VinculoService{
         return vinculo;
     }
 
+    /**
+     *  Get the vinculos of a list of ids.
+     *
+     *  @param ids the ids of the entities
+     *  @return the entities found, in the order of their ids
+     */
+    @Transactional(readOnly = true)
+    public List<Vinculo> findAll(List<Long> ids) {
+        log.debug("Request to get Vinculos : {}", ids);
+        return multiGetService.findAll(Vinculo.class, ids, Vinculo::getId);
+    }
+
     /**
      *  Delete the  vinculo by id.
      *  
      *  @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "pages.Vinculo", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Vinculo : {}", id);
         vinculoRepository.delete(id);
-        vinculoSearchRepository.delete(id);
+        searchOutboxService.delete(Vinculo.class, id);
     }
 
     /**
      * Search for the vinculo corresponding to the query.
+     * <p>
+     * When ElasticSearch is slow or not available, the vinculos whose nome starts with the query are read from the
+     * database instead, and are not cached.
      *
      *  @param query the query of the search
      *  @return the list of entities
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "search.Vinculo", unless = "T(br.org.rh.service.SearchCircuitBreaker).isFallback(#result)")
     public Page<Vinculo> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Vinculos for query {}", query);
-        return vinculoSearchRepository.search(queryStringQuery(query), pageable);
+        return searchCircuitBreaker.search(Vinculo.class, query, pageable,
+            () -> vinculoSearchRepository.search(queryStringQuery(query), pageable),
+            prefix -> vinculoRepository.findAllByNomeStartingWith(prefix, pageable));
+    }
+
+    /**
+     * Search for the vinculos corresponding to the query following an id, ordered by id.
+     * <p>
+     * The slice starts with a range filter on the id instead of an offset, so each slice costs the same.
+     *
+     *  @param query the query of the search
+     *  @param id the id of the last entity of the previous slice, or null for the first slice
+     *  @param size the number of entities in the slice
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Vinculo> searchAfter(String query, Long id, int size) {
+        log.debug("Request to search for Vinculos after {} for query {}", id, query);
+        SearchQuery searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(filteredQuery(queryStringQuery(query), rangeFilter("id").gt(id == null ? Long.MIN_VALUE : id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC).unmappedType("long"))
+            .withPageable(new PageRequest(0, size))
+            .build();
+        return vinculoSearchRepository.search(searchQuery);
     }
 }
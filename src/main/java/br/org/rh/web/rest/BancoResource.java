@@ -2,21 +2,40 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Banco;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.BancoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +56,18 @@ public class BancoResource {
         
     @Inject
     private BancoService bancoService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
     
     /**
      * POST  /bancos : Create a new banco.
@@ -63,9 +94,12 @@ public class BancoResource {
     /**
      * PUT  /bancos : Updates an existing banco.
      *
-     * @param banco the banco to update
+     * @param banco the banco to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the banco
      * @return the ResponseEntity with status 200 (OK) and with body the updated banco,
      * or with status 400 (Bad Request) if the banco is not valid,
+     * or with status 409 (Conflict) if the banco was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the banco does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the banco couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +107,155 @@ public class BancoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Banco> updateBanco(@Valid @RequestBody Banco banco) throws URISyntaxException {
+    public ResponseEntity<Banco> updateBanco(@Valid @RequestBody Banco banco, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Banco : {}", banco);
         if (banco.getId() == null) {
             return createBanco(banco);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Banco current = bancoService.findOne(banco.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "banco", banco.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("banco", "preconditionfailed", "The banco was modified since it was read")).body(null);
+            }
+            if (banco.getVersion() == null) {
+                banco.setVersion(current.getVersion());
+            }
+        }
         Banco result = bancoService.save(banco);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("banco", banco.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("banco", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /bancos/_bulk : Create or update a list of bancos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param bancos the bancos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/bancos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveBancos(@RequestBody List<Banco> bancos) {
+        log.debug("REST request to bulk save {} Bancos", bancos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(bancos, Banco::getId, bancoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /bancos : get all the bancos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body
+     * @param webRequest the request, checked against the ETag of the bancos
+     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body,
+     * or with status 304 (Not Modified) if no banco changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/bancos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Banco>> getAllBancos(Pageable pageable)
+    public ResponseEntity<List<Banco>> getAllBancos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Bancos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("banco", entityChangeTracker.getVersion(Banco.class)))) {
+            return null;
+        }
         Page<Banco> page = bancoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/bancos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /bancos?after=:cursor : get the bancos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of bancos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/bancos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Banco>> getAllBancosAfter(@RequestParam(value = "after") String after,
+                                                         @RequestParam(value = "size", defaultValue = "20") int size,
+                                                         @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Bancos after : {}", after);
+        Slice<Banco> slice = bancoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? bancoService.count() : null, "/api/bancos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /bancos?ids=:ids : get the bancos of a list of ids.
+     *
+     * @param ids the ids of the bancos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the bancos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/bancos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Banco>> getBancosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Bancos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("banco", "toomanyids", "At most " + MultiGetService.MAX_IDS + " bancos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(bancoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /bancos/_export : export all the bancos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON banco per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/bancos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportBancos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Bancos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "bancos", exportFormat)) {
+            exportService.export(Banco.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /bancos/:id : get the "id" banco.
      *
      * @param id the id of the banco to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the banco, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the banco
+     * @return the ResponseEntity with status 200 (OK) and with body the banco, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the banco did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/bancos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Banco> getBanco(@PathVariable Long id) {
+    public ResponseEntity<Banco> getBanco(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Banco : {}", id);
         Banco banco = bancoService.findOne(id);
+        if (banco != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("banco", id, banco), ETagUtil.getLastModified(banco))) {
+            return null;
+        }
         return Optional.ofNullable(banco)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -123,18 +263,63 @@ public class BancoResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /bancos/by-codigo/:codigo : get the banco of the "codigo".
+     *
+     * @param codigo the codigo of the banco to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the banco, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/bancos/by-codigo/{codigo:.+}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Banco> getBancoByCodigo(@PathVariable String codigo) {
+        log.debug("REST request to get Banco by codigo : {}", codigo);
+        Banco banco = bancoService.findOneByCodigo(codigo);
+        return Optional.ofNullable(banco)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /bancos/by-codigo?codigos=:codigos : get the bancos of a list of codigos.
+     *
+     * @param codigos the codigos of the bancos to retrieve, at most {@link NaturalIdService#MAX_KEYS}
+     * @return the ResponseEntity with status 200 (OK) and with body the bancos found, in the order of their codigos,
+     * or with status 400 (Bad Request) if there are too many codigos
+     */
+    @RequestMapping(value = "/bancos/by-codigo",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Banco>> getBancosByCodigo(@RequestParam List<String> codigos) {
+        log.debug("REST request to get Bancos by codigos : {}", codigos);
+        if (codigos.size() > NaturalIdService.MAX_KEYS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("banco", "toomanykeys", "At most " + NaturalIdService.MAX_KEYS + " codigos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(bancoService.findAllByCodigo(codigos), HttpStatus.OK);
+    }
+
     /**
      * DELETE  /bancos/:id : delete the "id" banco.
      *
      * @param id the id of the banco to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the banco
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the banco does not match the If-Match ETag
      */
     @RequestMapping(value = "/bancos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteBanco(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteBanco(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Banco : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "banco", id, bancoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("banco", "preconditionfailed", "The banco was modified since it was read")).build();
+        }
         bancoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("banco", id.toString())).build();
     }
@@ -158,5 +343,94 @@ public class BancoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/bancos?query=:query&after=:cursor : search for the bancos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the banco search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of bancos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/bancos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Banco>> searchBancosAfter(@RequestParam String query,
+                                                         @RequestParam(value = "after") String after,
+                                                         @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Bancos after {} for query {}", after, query);
+        Slice<Banco> slice = bancoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/bancos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /_search/bancos/_export?query=:query : export all the bancos corresponding to the query.
+     *
+     * @param query the query of the banco search
+     * @param format the export format, "ndjson" (one JSON banco per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/bancos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchBancos(@RequestParam String query,
+                                   @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Bancos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "bancos", exportFormat)) {
+            exportService.exportSearch(Banco.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * GET  /_suggest/bancos?prefix=:prefix : suggest the bancos whose codigo starts with a prefix, for typeahead fields.
+     *
+     * @param prefix the prefix typed by the user, each of its words matching the start of a word of the codigo
+     * @param size the maximum number of bancos
+     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body, best matches first
+     */
+    @RequestMapping(value = "/_suggest/bancos",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Banco>> suggestBancos(@RequestParam String prefix,
+                                                     @RequestParam(value = "size", defaultValue = "10") int size) {
+        log.debug("REST request to suggest Bancos for prefix {}", prefix);
+        return new ResponseEntity<>(suggestService.suggest(Banco.class, "codigo", prefix, size), HttpStatus.OK);
+    }
 
+    /**
+     * POST  /_search/bancos : search for the bancos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of bancos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/bancos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Banco>>> structuredSearchBancos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Bancos : {}", request);
+        Page<SearchHitDTO<Banco>> page = structuredSearchService.search(Banco.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/bancos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
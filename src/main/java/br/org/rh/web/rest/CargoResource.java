@@ -2,21 +2,39 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Cargo;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.CargoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +55,18 @@ public class CargoResource {
         
     @Inject
     private CargoService cargoService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
     
     /**
      * POST  /cargos : Create a new cargo.
@@ -63,9 +93,12 @@ public class CargoResource {
     /**
      * PUT  /cargos : Updates an existing cargo.
      *
-     * @param cargo the cargo to update
+     * @param cargo the cargo to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the cargo
      * @return the ResponseEntity with status 200 (OK) and with body the updated cargo,
      * or with status 400 (Bad Request) if the cargo is not valid,
+     * or with status 409 (Conflict) if the cargo was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the cargo does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the cargo couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +106,155 @@ public class CargoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Cargo> updateCargo(@Valid @RequestBody Cargo cargo) throws URISyntaxException {
+    public ResponseEntity<Cargo> updateCargo(@Valid @RequestBody Cargo cargo, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Cargo : {}", cargo);
         if (cargo.getId() == null) {
             return createCargo(cargo);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Cargo current = cargoService.findOne(cargo.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "cargo", cargo.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("cargo", "preconditionfailed", "The cargo was modified since it was read")).body(null);
+            }
+            if (cargo.getVersion() == null) {
+                cargo.setVersion(current.getVersion());
+            }
+        }
         Cargo result = cargoService.save(cargo);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("cargo", cargo.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("cargo", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /cargos/_bulk : Create or update a list of cargos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param cargos the cargos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/cargos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveCargos(@RequestBody List<Cargo> cargos) {
+        log.debug("REST request to bulk save {} Cargos", cargos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(cargos, Cargo::getId, cargoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /cargos : get all the cargos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body
+     * @param webRequest the request, checked against the ETag of the cargos
+     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body,
+     * or with status 304 (Not Modified) if no cargo changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/cargos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Cargo>> getAllCargos(Pageable pageable)
+    public ResponseEntity<List<Cargo>> getAllCargos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Cargos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("cargo", entityChangeTracker.getVersion(Cargo.class)))) {
+            return null;
+        }
         Page<Cargo> page = cargoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/cargos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /cargos?after=:cursor : get the cargos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of cargos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/cargos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Cargo>> getAllCargosAfter(@RequestParam(value = "after") String after,
+                                                         @RequestParam(value = "size", defaultValue = "20") int size,
+                                                         @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Cargos after : {}", after);
+        Slice<Cargo> slice = cargoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? cargoService.count() : null, "/api/cargos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /cargos?ids=:ids : get the cargos of a list of ids.
+     *
+     * @param ids the ids of the cargos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the cargos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/cargos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Cargo>> getCargosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Cargos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("cargo", "toomanyids", "At most " + MultiGetService.MAX_IDS + " cargos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(cargoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /cargos/_export : export all the cargos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON cargo per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/cargos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportCargos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Cargos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "cargos", exportFormat)) {
+            exportService.export(Cargo.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /cargos/:id : get the "id" cargo.
      *
      * @param id the id of the cargo to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the cargo, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the cargo
+     * @return the ResponseEntity with status 200 (OK) and with body the cargo, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the cargo did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/cargos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Cargo> getCargo(@PathVariable Long id) {
+    public ResponseEntity<Cargo> getCargo(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Cargo : {}", id);
         Cargo cargo = cargoService.findOne(id);
+        if (cargo != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("cargo", id, cargo), ETagUtil.getLastModified(cargo))) {
+            return null;
+        }
         return Optional.ofNullable(cargo)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -127,14 +266,20 @@ public class CargoResource {
      * DELETE  /cargos/:id : delete the "id" cargo.
      *
      * @param id the id of the cargo to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the cargo
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the cargo does not match the If-Match ETag
      */
     @RequestMapping(value = "/cargos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteCargo(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteCargo(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Cargo : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "cargo", id, cargoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("cargo", "preconditionfailed", "The cargo was modified since it was read")).build();
+        }
         cargoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("cargo", id.toString())).build();
     }
@@ -158,5 +303,94 @@ public class CargoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/cargos?query=:query&after=:cursor : search for the cargos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the cargo search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of cargos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/cargos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Cargo>> searchCargosAfter(@RequestParam String query,
+                                                         @RequestParam(value = "after") String after,
+                                                         @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Cargos after {} for query {}", after, query);
+        Slice<Cargo> slice = cargoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/cargos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /_search/cargos/_export?query=:query : export all the cargos corresponding to the query.
+     *
+     * @param query the query of the cargo search
+     * @param format the export format, "ndjson" (one JSON cargo per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/cargos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchCargos(@RequestParam String query,
+                                   @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Cargos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "cargos", exportFormat)) {
+            exportService.exportSearch(Cargo.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * GET  /_suggest/cargos?prefix=:prefix : suggest the cargos whose nome starts with a prefix, for typeahead fields.
+     *
+     * @param prefix the prefix typed by the user, each of its words matching the start of a word of the nome
+     * @param size the maximum number of cargos
+     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body, best matches first
+     */
+    @RequestMapping(value = "/_suggest/cargos",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Cargo>> suggestCargos(@RequestParam String prefix,
+                                                     @RequestParam(value = "size", defaultValue = "10") int size) {
+        log.debug("REST request to suggest Cargos for prefix {}", prefix);
+        return new ResponseEntity<>(suggestService.suggest(Cargo.class, "nome", prefix, size), HttpStatus.OK);
+    }
 
+    /**
+     * POST  /_search/cargos : search for the cargos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of cargos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/cargos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Cargo>>> structuredSearchCargos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Cargos : {}", request);
+        Page<SearchHitDTO<Cargo>> page = structuredSearchService.search(Cargo.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/cargos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
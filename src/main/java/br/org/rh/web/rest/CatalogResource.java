@@ -0,0 +1,88 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.service.CatalogService;
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Enumeration;
+
+/**
+ * REST controller returning the reference entities in one response.
+ */
+@RestController
+@RequestMapping("/api")
+public class CatalogResource {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogResource.class);
+
+    @Inject
+    private CatalogService catalogService;
+
+    /**
+     * GET  /catalogs : get all the reference entities.
+     * <p>
+     * The body is a JSON object with one list per entity type ("bancos", "cargos", ...), compressed if the client
+     * accepts gzip. Each representation has its own strong ETag. It must be revalidated with If-None-Match, which
+     * returns 304 (Not Modified) while no entity changed, whichever representation the ETag was given to.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response the catalog is written to
+     * @throws IOException if the catalog could not be written
+     */
+    @RequestMapping(value = "/catalogs",
+        method = RequestMethod.GET)
+    @Timed
+    public void getCatalogs(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get the catalogs");
+        CatalogService.Catalog catalog = catalogService.getCatalog();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? catalog.getGzipEtag() : catalog.getEtag();
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+        // Both representations have the same content, so the ETag of one of them also validates the other one
+        if (matchesIfNoneMatch(request, gzip ? catalog.getEtag() : catalog.getGzipEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = catalog.getJson();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = catalog.getGzip();
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private boolean matchesIfNoneMatch(HttpServletRequest request, String etag) {
+        Enumeration<String> ifNoneMatch = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (ifNoneMatch != null && ifNoneMatch.hasMoreElements()) {
+            for (String tag : ifNoneMatch.nextElement().split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,10 @@ package br.org.rh.web.rest;
 
 import br.org.rh.domain.EntityAuditEvent;
 import br.org.rh.repository.EntityAuditEventRepository;
+import br.org.rh.service.EntityAuditArchiveService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.security.AuthoritiesConstants;
 import org.slf4j.Logger;
@@ -9,6 +13,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -21,8 +28,14 @@ import org.springframework.security.access.annotation.Secured;
 import com.codahale.metrics.annotation.Timed;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * REST controller for getting the audit events for entity
@@ -36,8 +49,14 @@ public class EntityAuditResource {
     @Inject
     private EntityAuditEventRepository entityAuditEventRepository;
 
+    @Inject
+    private EntityAuditArchiveService entityAuditArchiveService;
+
+    @Inject
+    private ExportService exportService;
+
     /**
-     * fetches all the audited entity types
+     * fetches all the audited entity types, including the types which only have archived events
      *
      * @return
      */
@@ -47,11 +66,14 @@ public class EntityAuditResource {
     @Timed
     @Secured(AuthoritiesConstants.ADMIN)
     public List<String> getAuditedEntities() {
-        return entityAuditEventRepository.findAllEntityTypes();
+        TreeSet<String> entityTypes = new TreeSet<>(entityAuditEventRepository.findAllEntityTypes());
+        entityTypes.addAll(entityAuditArchiveService.findEntityTypes());
+        return new ArrayList<>(entityTypes);
     }
 
     /**
      * fetches the last 100 change list for an entity class, if limit is passed fetches that many changes
+     * archived changes are returned when the table holds less than limit changes
      *
      * @return
      */
@@ -67,12 +89,73 @@ public class EntityAuditResource {
         Pageable pageRequest = createPageRequest(limit);
         Page<EntityAuditEvent> page = entityAuditEventRepository.findAllByEntityType(entityType, pageRequest);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/audits/entity/changes");
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        List<EntityAuditEvent> changes = new ArrayList<>(page.getContent());
+        if (changes.size() < limit) {
+            changes.addAll(entityAuditArchiveService.findLatest(entityType, null, limit - changes.size()));
+        }
+        return new ResponseEntity<>(changes, headers, HttpStatus.OK);
+
+    }
 
+    /**
+     * fetches the changes of an entity class preceding a cursor, most recent first, using keyset pagination
+     * archived changes follow the changes of the table
+     *
+     * @return
+     */
+    @RequestMapping(value = "/audits/entity/changes",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<List<EntityAuditEvent>> getChangesAfter(@RequestParam(value = "entityType") String entityType,
+                                                                  @RequestParam(value = "after") String after,
+                                                                  @RequestParam(value = "size", defaultValue = "20") int size,
+                                                                  @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of EntityAuditEvents after : {}", after);
+        PaginationUtil.checkSliceSize(size);
+        Long afterId = PaginationUtil.decodeCursor(after);
+        Slice<EntityAuditEvent> slice = entityAuditEventRepository.findAllByEntityTypeAndIdLessThanOrderByIdDesc(
+            entityType, afterId == null ? Long.MAX_VALUE : afterId, new PageRequest(0, size));
+        if (!slice.hasNext()) {
+            List<EntityAuditEvent> changes = new ArrayList<>(slice.getContent());
+            Long beforeId = changes.isEmpty() ? afterId : changes.get(changes.size() - 1).getId();
+            List<EntityAuditEvent> archived = entityAuditArchiveService.findLatest(entityType, beforeId,
+                size - changes.size() + 1);
+            boolean hasNext = changes.size() + archived.size() > size;
+            changes.addAll(archived.subList(0, Math.min(archived.size(), size - changes.size())));
+            slice = new SliceImpl<>(changes, new PageRequest(0, size), hasNext);
+        }
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? entityAuditEventRepository.countByEntityType(entityType) : null,
+            "/api/audits/entity/changes?entityType=" + entityType);
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * exports all the changes of an entity class, archived changes first, as ndjson or csv
+     *
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/audits/entity/_export",
+        method = RequestMethod.GET)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public void exportChanges(@RequestParam(value = "entityType") String entityType,
+                              @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export the EntityAuditEvents of {} as {}", entityType, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "audits", exportFormat)) {
+            exportService.exportAuditEvents(entityType, exportFormat, out);
+        }
     }
 
     /**
-     * fetches a previous version for for an entity class and id
+     * fetches a previous version for for an entity class and id, from the archive if it is no longer in the table
      *
      * @return
      */
@@ -86,6 +169,9 @@ public class EntityAuditResource {
                                                            @RequestParam(value = "commitVersion") Integer commitVersion)
         throws URISyntaxException {
         EntityAuditEvent prev = entityAuditEventRepository.findOneByEntityTypeAndEntityIdAndCommitVersion(qualifiedName, entityId, commitVersion);
+        if (prev == null) {
+            prev = entityAuditArchiveService.findPrevious(qualifiedName, entityId, commitVersion);
+        }
         return new ResponseEntity<>(prev, HttpStatus.OK);
 
     }
@@ -96,7 +182,7 @@ public class EntityAuditResource {
      * @return
      */
     private Pageable createPageRequest(int size) {
-        return new PageRequest(0, size);
+        return new PageRequest(0, size, Sort.Direction.DESC, "id");
     }
 
 }
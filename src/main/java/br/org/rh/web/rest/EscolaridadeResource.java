@@ -2,21 +2,38 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Escolaridade;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.EscolaridadeService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +54,15 @@ public class EscolaridadeResource {
         
     @Inject
     private EscolaridadeService escolaridadeService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
     
     /**
      * POST  /escolaridades : Create a new escolaridade.
@@ -63,9 +89,12 @@ public class EscolaridadeResource {
     /**
      * PUT  /escolaridades : Updates an existing escolaridade.
      *
-     * @param escolaridade the escolaridade to update
+     * @param escolaridade the escolaridade to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the escolaridade
      * @return the ResponseEntity with status 200 (OK) and with body the updated escolaridade,
      * or with status 400 (Bad Request) if the escolaridade is not valid,
+     * or with status 409 (Conflict) if the escolaridade was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the escolaridade does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the escolaridade couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +102,155 @@ public class EscolaridadeResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Escolaridade> updateEscolaridade(@Valid @RequestBody Escolaridade escolaridade) throws URISyntaxException {
+    public ResponseEntity<Escolaridade> updateEscolaridade(@Valid @RequestBody Escolaridade escolaridade, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Escolaridade : {}", escolaridade);
         if (escolaridade.getId() == null) {
             return createEscolaridade(escolaridade);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Escolaridade current = escolaridadeService.findOne(escolaridade.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "escolaridade", escolaridade.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("escolaridade", "preconditionfailed", "The escolaridade was modified since it was read")).body(null);
+            }
+            if (escolaridade.getVersion() == null) {
+                escolaridade.setVersion(current.getVersion());
+            }
+        }
         Escolaridade result = escolaridadeService.save(escolaridade);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("escolaridade", escolaridade.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("escolaridade", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /escolaridades/_bulk : Create or update a list of escolaridades.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param escolaridades the escolaridades to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/escolaridades/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveEscolaridades(@RequestBody List<Escolaridade> escolaridades) {
+        log.debug("REST request to bulk save {} Escolaridades", escolaridades.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(escolaridades, Escolaridade::getId, escolaridadeService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /escolaridades : get all the escolaridades.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of escolaridades in body
+     * @param webRequest the request, checked against the ETag of the escolaridades
+     * @return the ResponseEntity with status 200 (OK) and the list of escolaridades in body,
+     * or with status 304 (Not Modified) if no escolaridade changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/escolaridades",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Escolaridade>> getAllEscolaridades(Pageable pageable)
+    public ResponseEntity<List<Escolaridade>> getAllEscolaridades(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Escolaridades");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("escolaridade", entityChangeTracker.getVersion(Escolaridade.class)))) {
+            return null;
+        }
         Page<Escolaridade> page = escolaridadeService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/escolaridades");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /escolaridades?after=:cursor : get the escolaridades following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of escolaridades in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of escolaridades in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/escolaridades",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Escolaridade>> getAllEscolaridadesAfter(@RequestParam(value = "after") String after,
+                                                                       @RequestParam(value = "size", defaultValue = "20") int size,
+                                                                       @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Escolaridades after : {}", after);
+        Slice<Escolaridade> slice = escolaridadeService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? escolaridadeService.count() : null, "/api/escolaridades");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /escolaridades?ids=:ids : get the escolaridades of a list of ids.
+     *
+     * @param ids the ids of the escolaridades to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the escolaridades found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/escolaridades",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Escolaridade>> getEscolaridadesByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Escolaridades : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("escolaridade", "toomanyids", "At most " + MultiGetService.MAX_IDS + " escolaridades can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(escolaridadeService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /escolaridades/_export : export all the escolaridades, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON escolaridade per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/escolaridades/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportEscolaridades(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Escolaridades as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "escolaridades", exportFormat)) {
+            exportService.export(Escolaridade.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /escolaridades/:id : get the "id" escolaridade.
      *
      * @param id the id of the escolaridade to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the escolaridade, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the escolaridade
+     * @return the ResponseEntity with status 200 (OK) and with body the escolaridade, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the escolaridade did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/escolaridades/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Escolaridade> getEscolaridade(@PathVariable Long id) {
+    public ResponseEntity<Escolaridade> getEscolaridade(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Escolaridade : {}", id);
         Escolaridade escolaridade = escolaridadeService.findOne(id);
+        if (escolaridade != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("escolaridade", id, escolaridade), ETagUtil.getLastModified(escolaridade))) {
+            return null;
+        }
         return Optional.ofNullable(escolaridade)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -127,14 +262,20 @@ public class EscolaridadeResource {
      * DELETE  /escolaridades/:id : delete the "id" escolaridade.
      *
      * @param id the id of the escolaridade to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the escolaridade
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the escolaridade does not match the If-Match ETag
      */
     @RequestMapping(value = "/escolaridades/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteEscolaridade(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteEscolaridade(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Escolaridade : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "escolaridade", id, escolaridadeService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("escolaridade", "preconditionfailed", "The escolaridade was modified since it was read")).build();
+        }
         escolaridadeService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("escolaridade", id.toString())).build();
     }
@@ -158,5 +299,77 @@ public class EscolaridadeResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/escolaridades?query=:query&after=:cursor : search for the escolaridades corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the escolaridade search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of escolaridades in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of escolaridades in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/escolaridades",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Escolaridade>> searchEscolaridadesAfter(@RequestParam String query,
+                                                                       @RequestParam(value = "after") String after,
+                                                                       @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Escolaridades after {} for query {}", after, query);
+        Slice<Escolaridade> slice = escolaridadeService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/escolaridades");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
 
+    /**
+     * GET  /_search/escolaridades/_export?query=:query : export all the escolaridades corresponding to the query.
+     *
+     * @param query the query of the escolaridade search
+     * @param format the export format, "ndjson" (one JSON escolaridade per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/escolaridades/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchEscolaridades(@RequestParam String query,
+                                          @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Escolaridades for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "escolaridades", exportFormat)) {
+            exportService.exportSearch(Escolaridade.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * POST  /_search/escolaridades : search for the escolaridades matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of escolaridades in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/escolaridades",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Escolaridade>>> structuredSearchEscolaridades(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Escolaridades : {}", request);
+        Page<SearchHitDTO<Escolaridade>> page = structuredSearchService.search(Escolaridade.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/escolaridades");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
@@ -2,21 +2,38 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Formacao;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.FormacaoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +54,15 @@ public class FormacaoResource {
         
     @Inject
     private FormacaoService formacaoService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
     
     /**
      * POST  /formacaos : Create a new formacao.
@@ -63,9 +89,12 @@ public class FormacaoResource {
     /**
      * PUT  /formacaos : Updates an existing formacao.
      *
-     * @param formacao the formacao to update
+     * @param formacao the formacao to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the formacao
      * @return the ResponseEntity with status 200 (OK) and with body the updated formacao,
      * or with status 400 (Bad Request) if the formacao is not valid,
+     * or with status 409 (Conflict) if the formacao was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the formacao does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the formacao couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +102,155 @@ public class FormacaoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Formacao> updateFormacao(@Valid @RequestBody Formacao formacao) throws URISyntaxException {
+    public ResponseEntity<Formacao> updateFormacao(@Valid @RequestBody Formacao formacao, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Formacao : {}", formacao);
         if (formacao.getId() == null) {
             return createFormacao(formacao);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Formacao current = formacaoService.findOne(formacao.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "formacao", formacao.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("formacao", "preconditionfailed", "The formacao was modified since it was read")).body(null);
+            }
+            if (formacao.getVersion() == null) {
+                formacao.setVersion(current.getVersion());
+            }
+        }
         Formacao result = formacaoService.save(formacao);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("formacao", formacao.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("formacao", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /formacaos/_bulk : Create or update a list of formacaos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param formacaos the formacaos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/formacaos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveFormacaos(@RequestBody List<Formacao> formacaos) {
+        log.debug("REST request to bulk save {} Formacaos", formacaos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(formacaos, Formacao::getId, formacaoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /formacaos : get all the formacaos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of formacaos in body
+     * @param webRequest the request, checked against the ETag of the formacaos
+     * @return the ResponseEntity with status 200 (OK) and the list of formacaos in body,
+     * or with status 304 (Not Modified) if no formacao changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/formacaos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Formacao>> getAllFormacaos(Pageable pageable)
+    public ResponseEntity<List<Formacao>> getAllFormacaos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Formacaos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("formacao", entityChangeTracker.getVersion(Formacao.class)))) {
+            return null;
+        }
         Page<Formacao> page = formacaoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/formacaos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /formacaos?after=:cursor : get the formacaos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of formacaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of formacaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/formacaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Formacao>> getAllFormacaosAfter(@RequestParam(value = "after") String after,
+                                                               @RequestParam(value = "size", defaultValue = "20") int size,
+                                                               @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Formacaos after : {}", after);
+        Slice<Formacao> slice = formacaoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? formacaoService.count() : null, "/api/formacaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /formacaos?ids=:ids : get the formacaos of a list of ids.
+     *
+     * @param ids the ids of the formacaos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the formacaos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/formacaos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Formacao>> getFormacaosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Formacaos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("formacao", "toomanyids", "At most " + MultiGetService.MAX_IDS + " formacaos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(formacaoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /formacaos/_export : export all the formacaos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON formacao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/formacaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportFormacaos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Formacaos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "formacaos", exportFormat)) {
+            exportService.export(Formacao.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /formacaos/:id : get the "id" formacao.
      *
      * @param id the id of the formacao to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the formacao, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the formacao
+     * @return the ResponseEntity with status 200 (OK) and with body the formacao, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the formacao did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/formacaos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Formacao> getFormacao(@PathVariable Long id) {
+    public ResponseEntity<Formacao> getFormacao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Formacao : {}", id);
         Formacao formacao = formacaoService.findOne(id);
+        if (formacao != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("formacao", id, formacao), ETagUtil.getLastModified(formacao))) {
+            return null;
+        }
         return Optional.ofNullable(formacao)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -127,14 +262,20 @@ public class FormacaoResource {
      * DELETE  /formacaos/:id : delete the "id" formacao.
      *
      * @param id the id of the formacao to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the formacao
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the formacao does not match the If-Match ETag
      */
     @RequestMapping(value = "/formacaos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteFormacao(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteFormacao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Formacao : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "formacao", id, formacaoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("formacao", "preconditionfailed", "The formacao was modified since it was read")).build();
+        }
         formacaoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("formacao", id.toString())).build();
     }
@@ -158,5 +299,77 @@ public class FormacaoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/formacaos?query=:query&after=:cursor : search for the formacaos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the formacao search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of formacaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of formacaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/formacaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Formacao>> searchFormacaosAfter(@RequestParam String query,
+                                                               @RequestParam(value = "after") String after,
+                                                               @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Formacaos after {} for query {}", after, query);
+        Slice<Formacao> slice = formacaoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/formacaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
 
+    /**
+     * GET  /_search/formacaos/_export?query=:query : export all the formacaos corresponding to the query.
+     *
+     * @param query the query of the formacao search
+     * @param format the export format, "ndjson" (one JSON formacao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/formacaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchFormacaos(@RequestParam String query,
+                                      @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Formacaos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "formacaos", exportFormat)) {
+            exportService.exportSearch(Formacao.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * POST  /_search/formacaos : search for the formacaos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of formacaos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/formacaos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Formacao>>> structuredSearchFormacaos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Formacaos : {}", request);
+        Page<SearchHitDTO<Formacao>> page = structuredSearchService.search(Formacao.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/formacaos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,48 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.service.GlobalSearchService;
+import br.org.rh.web.rest.dto.SearchGroupDTO;
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * REST controller searching all the entities at once.
+ */
+@RestController
+@RequestMapping("/api")
+public class GlobalSearchResource {
+
+    private final Logger log = LoggerFactory.getLogger(GlobalSearchResource.class);
+
+    @Inject
+    private GlobalSearchService globalSearchService;
+
+    /**
+     * SEARCH  /_search?query=:query : search for the entities of all types corresponding to the query.
+     *
+     * @param query the query of the search
+     * @param size the maximum number of entities of each type
+     * @return the ResponseEntity with status 200 (OK) and with body a JSON object with the best entities of each type
+     * ("bancos", "cargos", ...) and their total number
+     */
+    @RequestMapping(value = "/_search",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Map<String, SearchGroupDTO<Object>>> searchAll(@RequestParam String query,
+                                                                         @RequestParam(value = "size", defaultValue = "5") int size) {
+        log.debug("REST request to search for all the entities for query {}", query);
+        return new ResponseEntity<>(globalSearchService.search(query, size), HttpStatus.OK);
+    }
+}
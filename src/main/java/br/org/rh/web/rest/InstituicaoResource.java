@@ -2,21 +2,42 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Instituicao;
+import br.org.rh.service.InstituicaoHierarchyService;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.InstituicaoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.dto.InstituicaoTreeDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +58,21 @@ public class InstituicaoResource {
         
     @Inject
     private InstituicaoService instituicaoService;
+
+    @Inject
+    private InstituicaoHierarchyService instituicaoHierarchyService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
     
     /**
      * POST  /instituicaos : Create a new instituicao.
@@ -63,9 +99,12 @@ public class InstituicaoResource {
     /**
      * PUT  /instituicaos : Updates an existing instituicao.
      *
-     * @param instituicao the instituicao to update
+     * @param instituicao the instituicao to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the instituicao
      * @return the ResponseEntity with status 200 (OK) and with body the updated instituicao,
      * or with status 400 (Bad Request) if the instituicao is not valid,
+     * or with status 409 (Conflict) if the instituicao was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the instituicao does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the instituicao couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +112,179 @@ public class InstituicaoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Instituicao> updateInstituicao(@Valid @RequestBody Instituicao instituicao) throws URISyntaxException {
+    public ResponseEntity<Instituicao> updateInstituicao(@Valid @RequestBody Instituicao instituicao, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Instituicao : {}", instituicao);
         if (instituicao.getId() == null) {
             return createInstituicao(instituicao);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Instituicao current = instituicaoService.findOne(instituicao.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "instituicao", instituicao.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("instituicao", "preconditionfailed", "The instituicao was modified since it was read")).body(null);
+            }
+            if (instituicao.getVersion() == null) {
+                instituicao.setVersion(current.getVersion());
+            }
+        }
+        if (instituicao.getInstituicao() != null &&
+            instituicaoHierarchyService.isDescendant(instituicao.getId(), instituicao.getInstituicao().getId())) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("instituicao", "hierarchycycle", "An instituicao cannot belong to itself or to one of its descendants")).body(null);
+        }
         Instituicao result = instituicaoService.save(instituicao);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("instituicao", instituicao.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("instituicao", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /instituicaos/_bulk : Create or update a list of instituicaos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param instituicaos the instituicaos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/instituicaos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveInstituicaos(@RequestBody List<Instituicao> instituicaos) {
+        log.debug("REST request to bulk save {} Instituicaos", instituicaos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(instituicaos, Instituicao::getId, instituicaoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /instituicaos : get all the instituicaos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body
+     * @param webRequest the request, checked against the ETag of the instituicaos
+     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body,
+     * or with status 304 (Not Modified) if no instituicao changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/instituicaos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Instituicao>> getAllInstituicaos(Pageable pageable)
+    public ResponseEntity<List<Instituicao>> getAllInstituicaos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Instituicaos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("instituicao", entityChangeTracker.getVersion(Instituicao.class)))) {
+            return null;
+        }
         Page<Instituicao> page = instituicaoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/instituicaos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /instituicaos?after=:cursor : get the instituicaos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of instituicaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/instituicaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> getAllInstituicaosAfter(@RequestParam(value = "after") String after,
+                                                                     @RequestParam(value = "size", defaultValue = "20") int size,
+                                                                     @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Instituicaos after : {}", after);
+        Slice<Instituicao> slice = instituicaoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? instituicaoService.count() : null, "/api/instituicaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /instituicaos?ids=:ids : get the instituicaos of a list of ids.
+     *
+     * @param ids the ids of the instituicaos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the instituicaos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/instituicaos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> getInstituicaosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Instituicaos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("instituicao", "toomanyids", "At most " + MultiGetService.MAX_IDS + " instituicaos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(instituicaoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /instituicaos/_export : export all the instituicaos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON instituicao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/instituicaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportInstituicaos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Instituicaos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "instituicaos", exportFormat)) {
+            exportService.export(Instituicao.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /instituicaos/:id : get the "id" instituicao.
      *
      * @param id the id of the instituicao to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the instituicao, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the instituicao
+     * @return the ResponseEntity with status 200 (OK) and with body the instituicao, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the instituicao did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/instituicaos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Instituicao> getInstituicao(@PathVariable Long id) {
+    public ResponseEntity<Instituicao> getInstituicao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Instituicao : {}", id);
         Instituicao instituicao = instituicaoService.findOne(id);
+        if (instituicao != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("instituicao", id, instituicao), ETagUtil.getLastModified(instituicao))) {
+            return null;
+        }
+        return Optional.ofNullable(instituicao)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /instituicaos/by-sigla/:sigla : get the instituicao of the "sigla".
+     *
+     * @param sigla the sigla of the instituicao to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the instituicao, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/instituicaos/by-sigla/{sigla:.+}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Instituicao> getInstituicaoBySigla(@PathVariable String sigla) {
+        log.debug("REST request to get Instituicao by sigla : {}", sigla);
+        Instituicao instituicao = instituicaoService.findOneBySigla(sigla);
         return Optional.ofNullable(instituicao)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -123,18 +292,100 @@ public class InstituicaoResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /instituicaos/by-sigla?siglas=:siglas : get the instituicaos of a list of siglas.
+     *
+     * @param siglas the siglas of the instituicaos to retrieve, at most {@link NaturalIdService#MAX_KEYS}
+     * @return the ResponseEntity with status 200 (OK) and with body the instituicaos found, in the order of their siglas,
+     * or with status 400 (Bad Request) if there are too many siglas
+     */
+    @RequestMapping(value = "/instituicaos/by-sigla",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> getInstituicaosBySigla(@RequestParam List<String> siglas) {
+        log.debug("REST request to get Instituicaos by siglas : {}", siglas);
+        if (siglas.size() > NaturalIdService.MAX_KEYS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("instituicao", "toomanykeys", "At most " + NaturalIdService.MAX_KEYS + " siglas can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(instituicaoService.findAllBySigla(siglas), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /instituicaos/:id/ancestors : get the ancestors of the "id" instituicao.
+     *
+     * @param id the id of the instituicao
+     * @return the ResponseEntity with status 200 (OK) and with body the ancestors, root first, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/instituicaos/{id}/ancestors",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> getInstituicaoAncestors(@PathVariable Long id) {
+        log.debug("REST request to get the ancestors of Instituicao : {}", id);
+        if (!instituicaoHierarchyService.isDescendant(id, id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(instituicaoHierarchyService.findAncestors(id), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /instituicaos/:id/descendants : get the descendants of the "id" instituicao.
+     *
+     * @param id the id of the instituicao
+     * @param maxDepth the maximum depth of the descendants, 1 for the direct children; all the descendants if absent
+     * @return the ResponseEntity with status 200 (OK) and with body the descendants, nearest first, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/instituicaos/{id}/descendants",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> getInstituicaoDescendants(@PathVariable Long id,
+                                                                       @RequestParam(value = "maxDepth", required = false) Integer maxDepth) {
+        log.debug("REST request to get the descendants of Instituicao : {}", id);
+        if (!instituicaoHierarchyService.isDescendant(id, id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(instituicaoHierarchyService.findDescendants(id, maxDepth), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /instituicaos/:id/subtree : get the "id" instituicao with all its descendants, as a tree.
+     *
+     * @param id the id of the root of the subtree
+     * @return the ResponseEntity with status 200 (OK) and with body the tree, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/instituicaos/{id}/subtree",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<InstituicaoTreeDTO> getInstituicaoSubtree(@PathVariable Long id) {
+        log.debug("REST request to get the subtree of Instituicao : {}", id);
+        return Optional.ofNullable(instituicaoHierarchyService.findSubtree(id))
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
     /**
      * DELETE  /instituicaos/:id : delete the "id" instituicao.
      *
      * @param id the id of the instituicao to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the instituicao
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the instituicao does not match the If-Match ETag
      */
     @RequestMapping(value = "/instituicaos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteInstituicao(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteInstituicao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Instituicao : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "instituicao", id, instituicaoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("instituicao", "preconditionfailed", "The instituicao was modified since it was read")).build();
+        }
         instituicaoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("instituicao", id.toString())).build();
     }
@@ -158,5 +409,94 @@ public class InstituicaoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/instituicaos?query=:query&after=:cursor : search for the instituicaos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the instituicao search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of instituicaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/instituicaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> searchInstituicaosAfter(@RequestParam String query,
+                                                                     @RequestParam(value = "after") String after,
+                                                                     @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Instituicaos after {} for query {}", after, query);
+        Slice<Instituicao> slice = instituicaoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/instituicaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /_search/instituicaos/_export?query=:query : export all the instituicaos corresponding to the query.
+     *
+     * @param query the query of the instituicao search
+     * @param format the export format, "ndjson" (one JSON instituicao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/instituicaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchInstituicaos(@RequestParam String query,
+                                         @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Instituicaos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "instituicaos", exportFormat)) {
+            exportService.exportSearch(Instituicao.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * GET  /_suggest/instituicaos?prefix=:prefix : suggest the instituicaos whose nome starts with a prefix, for typeahead fields.
+     *
+     * @param prefix the prefix typed by the user, each of its words matching the start of a word of the nome
+     * @param size the maximum number of instituicaos
+     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body, best matches first
+     */
+    @RequestMapping(value = "/_suggest/instituicaos",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Instituicao>> suggestInstituicaos(@RequestParam String prefix,
+                                                                 @RequestParam(value = "size", defaultValue = "10") int size) {
+        log.debug("REST request to suggest Instituicaos for prefix {}", prefix);
+        return new ResponseEntity<>(suggestService.suggest(Instituicao.class, "nome", prefix, size), HttpStatus.OK);
+    }
 
+    /**
+     * POST  /_search/instituicaos : search for the instituicaos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of instituicaos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/instituicaos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Instituicao>>> structuredSearchInstituicaos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Instituicaos : {}", request);
+        Page<SearchHitDTO<Instituicao>> page = structuredSearchService.search(Instituicao.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/instituicaos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
@@ -2,21 +2,38 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Locacao;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.LocacaoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +54,15 @@ public class LocacaoResource {
         
     @Inject
     private LocacaoService locacaoService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
     
     /**
      * POST  /locacaos : Create a new locacao.
@@ -63,9 +89,12 @@ public class LocacaoResource {
     /**
      * PUT  /locacaos : Updates an existing locacao.
      *
-     * @param locacao the locacao to update
+     * @param locacao the locacao to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the locacao
      * @return the ResponseEntity with status 200 (OK) and with body the updated locacao,
      * or with status 400 (Bad Request) if the locacao is not valid,
+     * or with status 409 (Conflict) if the locacao was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the locacao does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the locacao couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +102,155 @@ public class LocacaoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Locacao> updateLocacao(@Valid @RequestBody Locacao locacao) throws URISyntaxException {
+    public ResponseEntity<Locacao> updateLocacao(@Valid @RequestBody Locacao locacao, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Locacao : {}", locacao);
         if (locacao.getId() == null) {
             return createLocacao(locacao);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Locacao current = locacaoService.findOne(locacao.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "locacao", locacao.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("locacao", "preconditionfailed", "The locacao was modified since it was read")).body(null);
+            }
+            if (locacao.getVersion() == null) {
+                locacao.setVersion(current.getVersion());
+            }
+        }
         Locacao result = locacaoService.save(locacao);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("locacao", locacao.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("locacao", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /locacaos/_bulk : Create or update a list of locacaos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param locacaos the locacaos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/locacaos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveLocacaos(@RequestBody List<Locacao> locacaos) {
+        log.debug("REST request to bulk save {} Locacaos", locacaos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(locacaos, Locacao::getId, locacaoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /locacaos : get all the locacaos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of locacaos in body
+     * @param webRequest the request, checked against the ETag of the locacaos
+     * @return the ResponseEntity with status 200 (OK) and the list of locacaos in body,
+     * or with status 304 (Not Modified) if no locacao changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/locacaos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Locacao>> getAllLocacaos(Pageable pageable)
+    public ResponseEntity<List<Locacao>> getAllLocacaos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Locacaos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("locacao", entityChangeTracker.getVersion(Locacao.class)))) {
+            return null;
+        }
         Page<Locacao> page = locacaoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/locacaos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /locacaos?after=:cursor : get the locacaos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of locacaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of locacaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/locacaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Locacao>> getAllLocacaosAfter(@RequestParam(value = "after") String after,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size,
+                                                             @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Locacaos after : {}", after);
+        Slice<Locacao> slice = locacaoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? locacaoService.count() : null, "/api/locacaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /locacaos?ids=:ids : get the locacaos of a list of ids.
+     *
+     * @param ids the ids of the locacaos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the locacaos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/locacaos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Locacao>> getLocacaosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Locacaos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("locacao", "toomanyids", "At most " + MultiGetService.MAX_IDS + " locacaos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(locacaoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /locacaos/_export : export all the locacaos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON locacao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/locacaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportLocacaos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Locacaos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "locacaos", exportFormat)) {
+            exportService.export(Locacao.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /locacaos/:id : get the "id" locacao.
      *
      * @param id the id of the locacao to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the locacao, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the locacao
+     * @return the ResponseEntity with status 200 (OK) and with body the locacao, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the locacao did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/locacaos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Locacao> getLocacao(@PathVariable Long id) {
+    public ResponseEntity<Locacao> getLocacao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Locacao : {}", id);
         Locacao locacao = locacaoService.findOne(id);
+        if (locacao != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("locacao", id, locacao), ETagUtil.getLastModified(locacao))) {
+            return null;
+        }
         return Optional.ofNullable(locacao)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -127,14 +262,20 @@ public class LocacaoResource {
      * DELETE  /locacaos/:id : delete the "id" locacao.
      *
      * @param id the id of the locacao to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the locacao
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the locacao does not match the If-Match ETag
      */
     @RequestMapping(value = "/locacaos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteLocacao(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteLocacao(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Locacao : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "locacao", id, locacaoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("locacao", "preconditionfailed", "The locacao was modified since it was read")).build();
+        }
         locacaoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("locacao", id.toString())).build();
     }
@@ -158,5 +299,77 @@ public class LocacaoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/locacaos?query=:query&after=:cursor : search for the locacaos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the locacao search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of locacaos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of locacaos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/locacaos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Locacao>> searchLocacaosAfter(@RequestParam String query,
+                                                             @RequestParam(value = "after") String after,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Locacaos after {} for query {}", after, query);
+        Slice<Locacao> slice = locacaoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/locacaos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
 
+    /**
+     * GET  /_search/locacaos/_export?query=:query : export all the locacaos corresponding to the query.
+     *
+     * @param query the query of the locacao search
+     * @param format the export format, "ndjson" (one JSON locacao per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/locacaos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchLocacaos(@RequestParam String query,
+                                     @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Locacaos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "locacaos", exportFormat)) {
+            exportService.exportSearch(Locacao.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * POST  /_search/locacaos : search for the locacaos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of locacaos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/locacaos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Locacao>>> structuredSearchLocacaos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Locacaos : {}", request);
+        Page<SearchHitDTO<Locacao>> page = structuredSearchService.search(Locacao.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/locacaos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,73 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.security.AuthoritiesConstants;
+import br.org.rh.service.SearchReindexService;
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for rebuilding the ElasticSearch indices.
+ */
+@RestController
+@RequestMapping("/api")
+public class SearchReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexResource.class);
+
+    @Inject
+    private SearchReindexService searchReindexService;
+
+    /**
+     * POST  /_reindex : rebuild all the indices, in the background.
+     *
+     * @return the ResponseEntity with status 202 (Accepted) and the names of the indices being rebuilt
+     */
+    @RequestMapping(value = "/_reindex",
+        method = RequestMethod.POST)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<List<String>> reindexAll() {
+        log.debug("REST request to reindex all the entities");
+        searchReindexService.reindexAllAsync();
+        return new ResponseEntity<>(searchReindexService.getIndexedEntityClasses().stream()
+            .map(entityClass -> entityClass.getAnnotation(Document.class).indexName())
+            .collect(Collectors.toList()), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * POST  /_reindex/:index : rebuild one index, in the background.
+     *
+     * @param index the name of the index to rebuild, e.g. "banco"
+     * @return the ResponseEntity with status 202 (Accepted), or with status 404 (Not Found) if no entity is stored
+     * in this index
+     */
+    @RequestMapping(value = "/_reindex/{index}",
+        method = RequestMethod.POST)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Void> reindex(@PathVariable String index) {
+        log.debug("REST request to reindex : {}", index);
+        Optional<Class<?>> entityClass = searchReindexService.getIndexedEntityClasses().stream()
+            .filter(indexed -> indexed.getAnnotation(Document.class).indexName().equals(index))
+            .findFirst();
+        if (!entityClass.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        searchReindexService.reindexAsync(entityClass.get());
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+}
@@ -0,0 +1,70 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.security.AuthoritiesConstants;
+import br.org.rh.security.jwt.JWTFilter;
+import br.org.rh.security.jwt.TokenProvider;
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * REST controller for revoking JWT tokens before their expiration, on all the nodes.
+ */
+@RestController
+@RequestMapping("/api")
+public class TokenResource {
+
+    private final Logger log = LoggerFactory.getLogger(TokenResource.class);
+
+    @Inject
+    private TokenProvider tokenProvider;
+
+    /**
+     * DELETE  /tokens/current : revoke the token of the request, to log out.
+     *
+     * @param request the HTTP request, with the token in its Authorization header
+     * @return the ResponseEntity with status 200 (OK), or with status 400 (Bad Request) if the request has no token
+     */
+    @RequestMapping(value = "/tokens/current",
+        method = RequestMethod.DELETE)
+    @Timed
+    public ResponseEntity<Void> revokeCurrentToken(HttpServletRequest request) {
+        log.debug("REST request to revoke the current token");
+        String token = JWTFilter.resolveToken(request);
+        if (token == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        tokenProvider.revokeToken(token);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * POST  /tokens/_revoke : revoke a list of tokens, e.g. the sessions of a user.
+     *
+     * @param tokens the tokens to revoke
+     * @return the ResponseEntity with status 200 (OK) and with body the number of revoked tokens, not counting the
+     * invalid and expired ones
+     */
+    @RequestMapping(value = "/tokens/_revoke",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Long> revokeTokens(@RequestBody List<String> tokens) {
+        log.debug("REST request to revoke {} tokens", tokens.size());
+        long revoked = tokens.stream().filter(tokenProvider::revokeToken).count();
+        return new ResponseEntity<>(revoked, HttpStatus.OK);
+    }
+}
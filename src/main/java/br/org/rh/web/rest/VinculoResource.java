@@ -2,21 +2,38 @@ package br.org.rh.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import br.org.rh.domain.Vinculo;
+import br.org.rh.service.EntityChangeTracker;
 import br.org.rh.service.VinculoService;
+import br.org.rh.service.ExportFormat;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.dto.SearchHitDTO;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.BulkUtil;
+import br.org.rh.web.rest.util.ETagUtil;
+import br.org.rh.web.rest.util.ExportUtil;
 import br.org.rh.web.rest.util.HeaderUtil;
 import br.org.rh.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -37,6 +54,15 @@ public class VinculoResource {
         
     @Inject
     private VinculoService vinculoService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
     
     /**
      * POST  /vinculos : Create a new vinculo.
@@ -63,9 +89,12 @@ public class VinculoResource {
     /**
      * PUT  /vinculos : Updates an existing vinculo.
      *
-     * @param vinculo the vinculo to update
+     * @param vinculo the vinculo to update, with the version it was read at
+     * @param webRequest the request, checked against the If-Match ETag of the vinculo
      * @return the ResponseEntity with status 200 (OK) and with body the updated vinculo,
      * or with status 400 (Bad Request) if the vinculo is not valid,
+     * or with status 409 (Conflict) if the vinculo was updated since its version was read,
+     * or with status 412 (Precondition Failed) if the vinculo does not match the If-Match ETag,
      * or with status 500 (Internal Server Error) if the vinculo couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -73,49 +102,155 @@ public class VinculoResource {
         method = RequestMethod.PUT,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Vinculo> updateVinculo(@Valid @RequestBody Vinculo vinculo) throws URISyntaxException {
+    public ResponseEntity<Vinculo> updateVinculo(@Valid @RequestBody Vinculo vinculo, WebRequest webRequest) throws URISyntaxException {
         log.debug("REST request to update Vinculo : {}", vinculo);
         if (vinculo.getId() == null) {
             return createVinculo(vinculo);
         }
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null) {
+            Vinculo current = vinculoService.findOne(vinculo.getId());
+            if (!ETagUtil.checkIfMatch(webRequest, "vinculo", vinculo.getId(), current)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("vinculo", "preconditionfailed", "The vinculo was modified since it was read")).body(null);
+            }
+            if (vinculo.getVersion() == null) {
+                vinculo.setVersion(current.getVersion());
+            }
+        }
         Vinculo result = vinculoService.save(vinculo);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("vinculo", vinculo.getId().toString()))
+            .eTag(ETagUtil.generateEntityETag("vinculo", result.getId(), result))
             .body(result);
     }
 
+    /**
+     * POST  /vinculos/_bulk : Create or update a list of vinculos.
+     * <p>
+     * Items without an ID are created, the others are updated. Each item is validated on its own, and valid items
+     * are saved in chunks of {@link BulkUtil#CHUNK_SIZE}.
+     *
+     * @param vinculos the vinculos to create or update
+     * @return the ResponseEntity with status 200 (OK) and with body the status of each item, in the request order
+     */
+    @RequestMapping(value = "/vinculos/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> bulkSaveVinculos(@RequestBody List<Vinculo> vinculos) {
+        log.debug("REST request to bulk save {} Vinculos", vinculos.size());
+        List<BulkItemResultDTO> results = BulkUtil.saveInChunks(vinculos, Vinculo::getId, vinculoService::saveAll);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * GET  /vinculos : get all the vinculos.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and the list of vinculos in body
+     * @param webRequest the request, checked against the ETag of the vinculos
+     * @return the ResponseEntity with status 200 (OK) and the list of vinculos in body,
+     * or with status 304 (Not Modified) if no vinculo changed since the If-None-Match ETag
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/vinculos",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Vinculo>> getAllVinculos(Pageable pageable)
+    public ResponseEntity<List<Vinculo>> getAllVinculos(Pageable pageable, WebRequest webRequest)
         throws URISyntaxException {
         log.debug("REST request to get a page of Vinculos");
+        if (webRequest.checkNotModified(ETagUtil.generateCollectionETag("vinculo", entityChangeTracker.getVersion(Vinculo.class)))) {
+            return null;
+        }
         Page<Vinculo> page = vinculoService.findAll(pageable); 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/vinculos");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /vinculos?after=:cursor : get the vinculos following a cursor, ordered by id.
+     *
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of vinculos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @param count whether the X-Total-Count header should be computed
+     * @return the ResponseEntity with status 200 (OK) and the list of vinculos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/vinculos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Vinculo>> getAllVinculosAfter(@RequestParam(value = "after") String after,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size,
+                                                             @RequestParam(value = "count", defaultValue = "false") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get a slice of Vinculos after : {}", after);
+        Slice<Vinculo> slice = vinculoService.findAllAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId,
+            count ? vinculoService.count() : null, "/api/vinculos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /vinculos?ids=:ids : get the vinculos of a list of ids.
+     *
+     * @param ids the ids of the vinculos to retrieve, at most {@link MultiGetService#MAX_IDS}
+     * @return the ResponseEntity with status 200 (OK) and with body the vinculos found, in the order of their ids,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @RequestMapping(value = "/vinculos",
+        method = RequestMethod.GET,
+        params = "ids",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Vinculo>> getVinculosByIds(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Vinculos : {}", ids);
+        if (ids.size() > MultiGetService.MAX_IDS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("vinculo", "toomanyids", "At most " + MultiGetService.MAX_IDS + " vinculos can be read at once")).body(null);
+        }
+        return new ResponseEntity<>(vinculoService.findAll(ids), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /vinculos/_export : export all the vinculos, ordered by id.
+     *
+     * @param format the export format, "ndjson" (one JSON vinculo per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/vinculos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportVinculos(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Vinculos as {}", format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "vinculos", exportFormat)) {
+            exportService.export(Vinculo.class, exportFormat, out);
+        }
+    }
+
     /**
      * GET  /vinculos/:id : get the "id" vinculo.
      *
      * @param id the id of the vinculo to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the vinculo, or with status 404 (Not Found)
+     * @param webRequest the request, checked against the ETag and last modification date of the vinculo
+     * @return the ResponseEntity with status 200 (OK) and with body the vinculo, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if the vinculo did not change since the If-None-Match ETag or If-Modified-Since date
      */
     @RequestMapping(value = "/vinculos/{id}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Vinculo> getVinculo(@PathVariable Long id) {
+    public ResponseEntity<Vinculo> getVinculo(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to get Vinculo : {}", id);
         Vinculo vinculo = vinculoService.findOne(id);
+        if (vinculo != null && ETagUtil.checkNotModified(webRequest, ETagUtil.generateEntityETag("vinculo", id, vinculo), ETagUtil.getLastModified(vinculo))) {
+            return null;
+        }
         return Optional.ofNullable(vinculo)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -127,14 +262,20 @@ public class VinculoResource {
      * DELETE  /vinculos/:id : delete the "id" vinculo.
      *
      * @param id the id of the vinculo to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @param webRequest the request, checked against the If-Match ETag of the vinculo
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 412 (Precondition Failed) if the vinculo does not match the If-Match ETag
      */
     @RequestMapping(value = "/vinculos/{id}",
         method = RequestMethod.DELETE,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> deleteVinculo(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteVinculo(@PathVariable Long id, WebRequest webRequest) {
         log.debug("REST request to delete Vinculo : {}", id);
+        if (webRequest.getHeader(HttpHeaders.IF_MATCH) != null &&
+            !ETagUtil.checkIfMatch(webRequest, "vinculo", id, vinculoService.findOne(id))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(HeaderUtil.createFailureAlert("vinculo", "preconditionfailed", "The vinculo was modified since it was read")).build();
+        }
         vinculoService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("vinculo", id.toString())).build();
     }
@@ -158,5 +299,77 @@ public class VinculoResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/vinculos?query=:query&after=:cursor : search for the vinculos corresponding
+     * to the query following a cursor, ordered by id.
+     * <p>
+     * Each slice costs the same however deep it is, unlike the pages of the search without cursor, which are
+     * only reachable up to {@link PaginationUtil#MAX_SEARCH_RESULT_WINDOW} results.
+     *
+     * @param query the query of the vinculo search
+     * @param after the cursor of the "next" link, empty for the first slice
+     * @param size the number of vinculos in the slice, at most {@link PaginationUtil#MAX_SLICE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of vinculos in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/vinculos",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Vinculo>> searchVinculosAfter(@RequestParam String query,
+                                                             @RequestParam(value = "after") String after,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a slice of Vinculos after {} for query {}", after, query);
+        Slice<Vinculo> slice = vinculoService.searchAfter(query, PaginationUtil.decodeCursor(after),
+            PaginationUtil.checkSliceSize(size));
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateSearchKeysetPaginationHttpHeaders(query, slice, lastId,
+            "/api/_search/vinculos");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
 
+    /**
+     * GET  /_search/vinculos/_export?query=:query : export all the vinculos corresponding to the query.
+     *
+     * @param query the query of the vinculo search
+     * @param format the export format, "ndjson" (one JSON vinculo per line) or "csv"
+     * @param request the HTTP request, the export is compressed if it accepts gzip
+     * @param response the HTTP response the export is streamed to
+     * @throws IOException if the export could not be written
+     */
+    @RequestMapping(value = "/_search/vinculos/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportSearchVinculos(@RequestParam String query,
+                                     @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Vinculos for query {} as {}", query, format);
+        ExportFormat exportFormat = ExportUtil.parseFormat(format);
+        try (OutputStream out = ExportUtil.openExportStream(request, response, "vinculos", exportFormat)) {
+            exportService.exportSearch(Vinculo.class, query, exportFormat, out);
+        }
+    }
+
+    /**
+     * POST  /_search/vinculos : search for the vinculos matching a structured search.
+     *
+     * @param request the structured search, by field
+     * @param pageable the pagination information, sorted by score by default
+     * @return the ResponseEntity with status 200 (OK) and the list of vinculos in body, with their score and highlights,
+     * or with status 400 (Bad Request) if a field cannot be searched, sorted or highlighted
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/vinculos",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SearchHitDTO<Vinculo>>> structuredSearchVinculos(@RequestBody SearchRequestDTO request, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Vinculos : {}", request);
+        Page<SearchHitDTO<Vinculo>> page = structuredSearchService.search(Vinculo.class, request, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/_search/vinculos");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
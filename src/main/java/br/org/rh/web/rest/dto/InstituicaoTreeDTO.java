@@ -0,0 +1,115 @@
+package br.org.rh.web.rest.dto;
+
+import br.org.rh.domain.Instituicao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node of the Instituicao hierarchy, with its sub-instituicaos.
+ */
+public class InstituicaoTreeDTO {
+
+    private Long id;
+
+    private String sigla;
+
+    private String nome;
+
+    private String email;
+
+    private String telefone;
+
+    private String endereco;
+
+    private Long instituicaoId;
+
+    private List<InstituicaoTreeDTO> children = new ArrayList<>();
+
+    public InstituicaoTreeDTO() {
+    }
+
+    public InstituicaoTreeDTO(Instituicao instituicao) {
+        this.id = instituicao.getId();
+        this.sigla = instituicao.getSigla();
+        this.nome = instituicao.getNome();
+        this.email = instituicao.getEmail();
+        this.telefone = instituicao.getTelefone();
+        this.endereco = instituicao.getEndereco();
+        this.instituicaoId = instituicao.getInstituicao() == null ? null : instituicao.getInstituicao().getId();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSigla() {
+        return sigla;
+    }
+
+    public void setSigla(String sigla) {
+        this.sigla = sigla;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getTelefone() {
+        return telefone;
+    }
+
+    public void setTelefone(String telefone) {
+        this.telefone = telefone;
+    }
+
+    public String getEndereco() {
+        return endereco;
+    }
+
+    public void setEndereco(String endereco) {
+        this.endereco = endereco;
+    }
+
+    public Long getInstituicaoId() {
+        return instituicaoId;
+    }
+
+    public void setInstituicaoId(Long instituicaoId) {
+        this.instituicaoId = instituicaoId;
+    }
+
+    public List<InstituicaoTreeDTO> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<InstituicaoTreeDTO> children) {
+        this.children = children;
+    }
+
+    @Override
+    public String toString() {
+        return "InstituicaoTreeDTO{" +
+            "id=" + id +
+            ", sigla='" + sigla + "'" +
+            ", instituicaoId=" + instituicaoId +
+            ", children=" + children.size() +
+            '}';
+    }
+}
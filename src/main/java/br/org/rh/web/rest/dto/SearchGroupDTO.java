@@ -0,0 +1,45 @@
+package br.org.rh.web.rest.dto;
+
+import java.util.List;
+
+/**
+ * The best entities of a type found by a search, with the number of entities of this type matching the search.
+ */
+public class SearchGroupDTO<T> {
+
+    private long total;
+
+    private List<T> results;
+
+    public SearchGroupDTO() {
+    }
+
+    public SearchGroupDTO(long total, List<T> results) {
+        this.total = total;
+        this.results = results;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public void setResults(List<T> results) {
+        this.results = results;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchGroupDTO{" +
+            "total=" + total +
+            ", results=" + results +
+            '}';
+    }
+}
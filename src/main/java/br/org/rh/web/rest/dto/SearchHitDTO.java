@@ -0,0 +1,61 @@
+package br.org.rh.web.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An entity found by a structured search, with its score and the highlighted fragments of its fields.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class SearchHitDTO<T> {
+
+    private T entity;
+
+    private float score;
+
+    private Map<String, List<String>> highlights;
+
+    public SearchHitDTO() {
+    }
+
+    public SearchHitDTO(T entity, float score, Map<String, List<String>> highlights) {
+        this.entity = entity;
+        this.score = score;
+        this.highlights = highlights;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    public void setEntity(T entity) {
+        this.entity = entity;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+
+    public Map<String, List<String>> getHighlights() {
+        return highlights;
+    }
+
+    public void setHighlights(Map<String, List<String>> highlights) {
+        this.highlights = highlights;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHitDTO{" +
+            "entity=" + entity +
+            ", score=" + score +
+            ", highlights=" + highlights +
+            '}';
+    }
+}
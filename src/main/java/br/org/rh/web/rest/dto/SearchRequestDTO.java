@@ -0,0 +1,88 @@
+package br.org.rh.web.rest.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A structured search of entities, by field.
+ * <p>
+ * "match" values are analyzed full-text queries, which score the results. "prefix" and "term" values are
+ * filters, which do not score the results and are cached by Elasticsearch. "query" is a raw query_string query,
+ * only run if it is set.
+ */
+public class SearchRequestDTO {
+
+    private Map<String, String> match = new LinkedHashMap<>();
+
+    private Map<String, String> prefix = new LinkedHashMap<>();
+
+    private Map<String, String> term = new LinkedHashMap<>();
+
+    private List<String> highlight = new ArrayList<>();
+
+    private Float minScore;
+
+    private String query;
+
+    public Map<String, String> getMatch() {
+        return match;
+    }
+
+    public void setMatch(Map<String, String> match) {
+        this.match = match;
+    }
+
+    public Map<String, String> getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(Map<String, String> prefix) {
+        this.prefix = prefix;
+    }
+
+    public Map<String, String> getTerm() {
+        return term;
+    }
+
+    public void setTerm(Map<String, String> term) {
+        this.term = term;
+    }
+
+    public List<String> getHighlight() {
+        return highlight;
+    }
+
+    public void setHighlight(List<String> highlight) {
+        this.highlight = highlight;
+    }
+
+    public Float getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(Float minScore) {
+        this.minScore = minScore;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchRequestDTO{" +
+            "match=" + match +
+            ", prefix=" + prefix +
+            ", term=" + term +
+            ", highlight=" + highlight +
+            ", minScore=" + minScore +
+            ", query='" + query + '\'' +
+            '}';
+    }
+}
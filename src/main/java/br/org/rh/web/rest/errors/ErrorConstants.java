@@ -3,10 +3,16 @@ package br.org.rh.web.rest.errors;
 public final class ErrorConstants {
 
     public static final String ERR_CONCURRENCY_FAILURE = "error.concurrencyFailure";
+    public static final String ERR_DATA_INTEGRITY_VIOLATION = "error.dataIntegrityViolation";
     public static final String ERR_ACCESS_DENIED = "error.accessDenied";
     public static final String ERR_VALIDATION = "error.validation";
     public static final String ERR_METHOD_NOT_SUPPORTED = "error.methodNotSupported";
     public static final String ERR_INTERNAL_SERVER_ERROR = "error.internalServerError";
+    public static final String ERR_INVALID_CURSOR = "error.invalidCursor";
+    public static final String ERR_INVALID_SLICE_SIZE = "error.invalidSliceSize";
+    public static final String ERR_INVALID_EXPORT_FORMAT = "error.invalidExportFormat";
+    public static final String ERR_INVALID_SEARCH_FIELD = "error.invalidSearchField";
+    public static final String ERR_INVALID_SEARCH_QUERY = "error.invalidSearchQuery";
 
     private ErrorConstants() {
     }
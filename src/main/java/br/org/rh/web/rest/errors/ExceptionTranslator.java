@@ -2,6 +2,7 @@ package br.org.rh.web.rest.errors;
 
 import java.util.List;
 
+import com.netflix.hystrix.exception.HystrixBadRequestException;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
@@ -44,6 +45,13 @@ public class ExceptionTranslator {
         return ex.getErrorDTO();
     }
 
+    @ExceptionHandler(HystrixBadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ErrorDTO processBadRequestException(HystrixBadRequestException ex) {
+        return new ErrorDTO(ErrorConstants.ERR_INVALID_SEARCH_QUERY, ex.getMessage());
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     @ResponseBody
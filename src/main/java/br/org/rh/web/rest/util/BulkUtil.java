@@ -0,0 +1,127 @@
+package br.org.rh.web.rest.util;
+
+import br.org.rh.web.rest.dto.BulkItemResultDTO;
+import br.org.rh.web.rest.errors.ErrorConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Utility class for bulk write endpoints.
+ *
+ * <p>
+ * Items are validated one by one, then saved in chunks of {@link #CHUNK_SIZE}: each chunk is persisted in its own
+ * transaction, so Hibernate can send it as JDBC batches.
+ * When a chunk fails, its items are saved again one by one, each in its own transaction, so only the failing items
+ * are rejected: with 409 (Conflict) for a stale version or a duplicate, 400 (Bad Request) for an invalid hierarchy,
+ * and 500 (Internal Server Error) otherwise. Their error is an error key, the cause is only logged.
+ */
+public final class BulkUtil {
+
+    /**
+     * Number of items per transaction, should be a multiple of hibernate.jdbc.batch_size.
+     */
+    public static final int CHUNK_SIZE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(BulkUtil.class);
+
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private BulkUtil() {
+    }
+
+    /**
+     * Validate and save a list of entities, chunk by chunk.
+     *
+     * @param items the entities to create or update
+     * @param idGetter returns the id of an entity
+     * @param saver saves a chunk of entities in a single transaction, returning them in the same order
+     * @return the status of each item, in the order of the request
+     */
+    public static <T> List<BulkItemResultDTO> saveInChunks(List<T> items, Function<T, Long> idGetter,
+                                                           Function<List<T>, List<T>> saver) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[items.size()];
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (item == null) {
+                results[i] = new BulkItemResultDTO(i, null, HttpStatus.BAD_REQUEST.value(), "null item");
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                results[i] = new BulkItemResultDTO(i, idGetter.apply(item), HttpStatus.BAD_REQUEST.value(),
+                    violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            chunk.add(item);
+            chunkIndexes.add(i);
+            if (chunk.size() == CHUNK_SIZE) {
+                saveChunk(chunk, chunkIndexes, idGetter, saver, results);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, chunkIndexes, idGetter, saver, results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static <T> void saveChunk(List<T> chunk, List<Integer> chunkIndexes, Function<T, Long> idGetter,
+                                      Function<List<T>, List<T>> saver, BulkItemResultDTO[] results) {
+        boolean[] created = new boolean[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            created[i] = idGetter.apply(chunk.get(i)) == null;
+        }
+        try {
+            List<T> saved = saver.apply(new ArrayList<>(chunk));
+            for (int i = 0; i < saved.size(); i++) {
+                HttpStatus status = created[i] ? HttpStatus.CREATED : HttpStatus.OK;
+                results[chunkIndexes.get(i)] =
+                    new BulkItemResultDTO(chunkIndexes.get(i), idGetter.apply(saved.get(i)), status.value(), null);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk chunk of {} items failed, saving them one by one: {}", chunk.size(), e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                results[chunkIndexes.get(i)] = saveItem(chunk.get(i), chunkIndexes.get(i), created[i], idGetter, saver);
+            }
+        }
+    }
+
+    private static <T> BulkItemResultDTO saveItem(T item, int index, boolean created, Function<T, Long> idGetter,
+                                                  Function<List<T>, List<T>> saver) {
+        Long id = created ? null : idGetter.apply(item);
+        try {
+            T saved = saver.apply(Collections.singletonList(item)).get(0);
+            HttpStatus status = created ? HttpStatus.CREATED : HttpStatus.OK;
+            return new BulkItemResultDTO(index, idGetter.apply(saved), status.value(), null);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Bulk item {} is stale: {}", index, e.getMessage());
+            return new BulkItemResultDTO(index, id, HttpStatus.CONFLICT.value(), ErrorConstants.ERR_CONCURRENCY_FAILURE);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Bulk item {} violates a constraint: {}", index, e.getMessage());
+            return new BulkItemResultDTO(index, id, HttpStatus.CONFLICT.value(),
+                ErrorConstants.ERR_DATA_INTEGRITY_VIOLATION);
+        } catch (IllegalArgumentException e) {
+            log.warn("Bulk item {} is invalid: {}", index, e.getMessage());
+            return new BulkItemResultDTO(index, id, HttpStatus.BAD_REQUEST.value(), ErrorConstants.ERR_VALIDATION);
+        } catch (RuntimeException e) {
+            log.error("Bulk item {} could not be saved", index, e);
+            return new BulkItemResultDTO(index, id, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                ErrorConstants.ERR_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
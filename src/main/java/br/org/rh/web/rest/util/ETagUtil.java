@@ -0,0 +1,107 @@
+package br.org.rh.web.rest.util;
+
+import br.org.rh.domain.AbstractAuditingEntity;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.ZonedDateTime;
+
+/**
+ * Utility class for the ETags of the entity resources, checked with WebRequest#checkNotModified on reads and
+ * against If-Match on writes.
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Generate the ETag of a list of entities.
+     *
+     * @param entityName the name of the entity, e.g. "banco"
+     * @param version the version of the entity type, read before the entities
+     * @return the weak ETag, quoted
+     */
+    public static String generateCollectionETag(String entityName, long version) {
+        return "W/\"" + entityName + "s-" + version + "\"";
+    }
+
+    /**
+     * Generate the ETag of an entity, from its version.
+     * <p>
+     * The version changes with each update of the entity, so the ETag is strong and can be sent in If-Match.
+     *
+     * @param entityName the name of the entity, e.g. "banco"
+     * @param id the id of the entity
+     * @param entity the entity
+     * @return the strong ETag, quoted
+     */
+    public static String generateEntityETag(String entityName, Long id, AbstractAuditingEntity entity) {
+        return "\"" + entityName + "-" + id + "-" + entity.getVersion() + "\"";
+    }
+
+    /**
+     * Check a request against the ETag and the last modification date of an entity, and set both headers.
+     * <p>
+     * If-None-Match takes precedence over If-Modified-Since, as required by RFC 7232: WebRequest#checkNotModified
+     * with both values would only answer 304 if both headers are sent and match.
+     *
+     * @param webRequest the request
+     * @param etag the ETag of the entity
+     * @param lastModified the last modification date of the entity, in milliseconds since the epoch
+     * @return true if the response status was set to 304 (Not Modified), and no body must be returned
+     */
+    public static boolean checkNotModified(WebRequest webRequest, String etag, long lastModified) {
+        HttpServletResponse response = ((ServletWebRequest) webRequest).getResponse();
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            boolean notModified = webRequest.checkNotModified(etag);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            return notModified;
+        }
+        boolean notModified = webRequest.checkNotModified(lastModified);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        return notModified;
+    }
+
+    /**
+     * Check the If-Match header of a request against the current state of an entity, before it is updated or deleted.
+     * <p>
+     * ETags are compared with the strong comparison function of RFC 7232: weak ETags never match.
+     *
+     * @param webRequest the request
+     * @param entityName the name of the entity, e.g. "banco"
+     * @param id the id of the entity
+     * @param entity the current entity, null if it does not exist
+     * @return true if the request has no If-Match header, or if one of its ETags matches the entity
+     */
+    public static boolean checkIfMatch(WebRequest webRequest, String entityName, Long id, AbstractAuditingEntity entity) {
+        String ifMatch = webRequest.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null) {
+            return true;
+        }
+        if (entity == null) {
+            return false;
+        }
+        String etag = generateEntityETag(entityName, id, entity);
+        for (String clientETag : ifMatch.split(",")) {
+            clientETag = clientETag.trim();
+            if (clientETag.equals("*") || clientETag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param entity the entity
+     * @return the last modification date of the entity, in milliseconds since the epoch
+     */
+    public static long getLastModified(AbstractAuditingEntity entity) {
+        ZonedDateTime lastModifiedDate = entity.getLastModifiedDate() != null ?
+            entity.getLastModifiedDate() : entity.getCreatedDate();
+        return lastModifiedDate.toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,67 @@
+package br.org.rh.web.rest.util;
+
+import br.org.rh.service.ExportFormat;
+import br.org.rh.web.rest.errors.CustomParameterizedException;
+import br.org.rh.web.rest.errors.ErrorConstants;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class for the export endpoints.
+ */
+public final class ExportUtil {
+
+    /**
+     * Size of the buffer between the export and the servlet output stream.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExportUtil() {
+    }
+
+    /**
+     * Parse the "format" request parameter.
+     *
+     * @param format "ndjson" or "csv"
+     * @return the export format
+     * @throws CustomParameterizedException if the format is not supported
+     */
+    public static ExportFormat parseFormat(String format) {
+        for (ExportFormat exportFormat : ExportFormat.values()) {
+            if (exportFormat.getExtension().equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_EXPORT_FORMAT, format);
+    }
+
+    /**
+     * Set the export headers, and open the response stream, compressed if the client accepts gzip.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @param name the name of the exported file, without extension
+     * @param format the export format
+     * @return the buffered stream to write the export to, which must be closed
+     * @throws IOException if the response stream could not be opened
+     */
+    public static OutputStream openExportStream(HttpServletRequest request, HttpServletResponse response,
+                                                String name, ExportFormat format) throws IOException {
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE);
+    }
+}
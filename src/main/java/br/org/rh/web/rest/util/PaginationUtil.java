@@ -1,11 +1,16 @@
 package br.org.rh.web.rest.util;
 
+import br.org.rh.web.rest.errors.CustomParameterizedException;
+import br.org.rh.web.rest.errors.ErrorConstants;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
  * Utility class for handling pagination.
@@ -16,6 +21,17 @@ import java.net.URISyntaxException;
  */
 public class PaginationUtil {
 
+    /**
+     * Number of search results reachable with page and size: deeper results must be read with a cursor, as
+     * Elasticsearch collects all the results before the page on each shard.
+     */
+    public static final int MAX_SEARCH_RESULT_WINDOW = 10000;
+
+    /**
+     * Maximum size of a slice read with a cursor, the same as the maximum size of a page.
+     */
+    public static final int MAX_SLICE_SIZE = 2000;
+
     public static HttpHeaders generatePaginationHttpHeaders(Page<?> page, String baseUrl)
         throws URISyntaxException {
 
@@ -52,8 +68,10 @@ public class PaginationUtil {
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-Total-Count", "" + page.getTotalElements());
+        // Pages past the result window are not advertised
+        int reachablePages = Math.min(page.getTotalPages(), Math.max(1, MAX_SEARCH_RESULT_WINDOW / page.getSize()));
         String link = "";
-        if ((page.getNumber() + 1) < page.getTotalPages()) {
+        if ((page.getNumber() + 1) < reachablePages) {
             link = "<" + generateUri(baseUrl, page.getNumber() + 1, page.getSize()) + "&query=" + query + ">; rel=\"next\",";
         }
         // prev link
@@ -62,12 +80,93 @@ public class PaginationUtil {
         }
         // last and first link
         int lastPage = 0;
-        if (page.getTotalPages() > 0) {
-            lastPage = page.getTotalPages() - 1;
+        if (reachablePages > 0) {
+            lastPage = reachablePages - 1;
         }
         link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + "&query=" + query + ">; rel=\"last\",";
         link += "<" + generateUri(baseUrl, 0, page.getSize()) + "&query=" + query + ">; rel=\"first\"";
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(Slice<?> slice, Long lastId, Long totalCount,
+                                                                  String baseUrl) throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        if (totalCount != null) {
+            headers.add("X-Total-Count", "" + totalCount);
+        }
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateKeysetUri(baseUrl, encodeCursor(lastId), slice.getSize()) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, "", slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateKeysetUri(String baseUrl, String after, int size) throws URISyntaxException {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", after).queryParam("size", size).toUriString();
+    }
+
+    public static HttpHeaders generateSearchKeysetPaginationHttpHeaders(String query, Slice<?> slice, Long lastId,
+                                                                        String baseUrl) throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateSearchKeysetUri(baseUrl, query, encodeCursor(lastId), slice.getSize()) + ">; rel=\"next\",";
+        }
+        link += "<" + generateSearchKeysetUri(baseUrl, query, "", slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateSearchKeysetUri(String baseUrl, String query, String after, int size) throws URISyntaxException {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("query", query).queryParam("after", after)
+            .queryParam("size", size).toUriString();
+    }
+
+    /**
+     * Check the size of a slice read with a cursor.
+     *
+     * @param size the size of the slice
+     * @return the size
+     * @throws CustomParameterizedException if the size is not between 1 and {@link #MAX_SLICE_SIZE}
+     */
+    public static int checkSliceSize(int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_SLICE_SIZE, String.valueOf(size),
+                String.valueOf(MAX_SLICE_SIZE));
+        }
+        return size;
+    }
+
+    /**
+     * Encode the id of the last entity of a page as an opaque cursor.
+     *
+     * @param id the id of the last entity of the page
+     * @return the cursor
+     */
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor created by {@link #encodeCursor(Long)}.
+     *
+     * @param cursor the cursor
+     * @return the id of the last entity of the previous page, or null for the first page
+     * @throws CustomParameterizedException if the cursor is not valid
+     */
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_CURSOR, cursor);
+        }
+    }
 }
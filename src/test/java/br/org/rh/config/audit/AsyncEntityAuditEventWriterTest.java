@@ -0,0 +1,240 @@
+package br.org.rh.config.audit;
+
+import br.org.rh.config.JHipsterProperties;
+import br.org.rh.domain.Banco;
+import br.org.rh.domain.EntityAuditEvent;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the AsyncEntityAuditEventWriter.
+ *
+ * @see AsyncEntityAuditEventWriter
+ */
+public class AsyncEntityAuditEventWriterTest {
+
+    private static final long BAD_ENTITY_ID = 13L;
+
+    private JHipsterProperties jHipsterProperties;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private PlatformTransactionManager transactionManager;
+
+    private MetricRegistry metricRegistry;
+
+    private AsyncEntityAuditEventWriter writer;
+
+    /**
+     * The entity ids of the written events, in the order they were written.
+     */
+    private final List<Long> written = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getAudit().setFlushInterval(50);
+        jHipsterProperties.getAudit().setOfferTimeout(10);
+
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        whenBatchUpdate()
+            .thenAnswer(invocation -> {
+                Collection<?> batch = (Collection<?>) invocation.getArguments()[1];
+                batch.forEach(event -> written.add(((EntityAuditEvent) event).getEntityId()));
+                return new int[0][];
+            });
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        metricRegistry = new MetricRegistry();
+
+        EntityAuditVersionSequencer entityAuditVersionSequencer = Mockito.mock(EntityAuditVersionSequencer.class);
+        doAnswer(invocation -> {
+            ((List<?>) invocation.getArguments()[0]).forEach(event -> ((EntityAuditEvent) event).setCommitVersion(1));
+            return null;
+        }).when(entityAuditVersionSequencer).assignVersions(anyListOf(EntityAuditEvent.class));
+
+        writer = new AsyncEntityAuditEventWriter();
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(writer, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(writer, "entityAuditVersionSequencer", entityAuditVersionSequencer);
+        ReflectionTestUtils.setField(writer, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(writer, "metricRegistry", metricRegistry);
+        ReflectionTestUtils.setField(writer, "transactionManager", transactionManager);
+    }
+
+    @After
+    public void stopWriter() throws Exception {
+        writer.stop();
+    }
+
+    @Test
+    public void writeQueuedEventsInBatches() throws Exception {
+        jHipsterProperties.getAudit().setBatchSize(2);
+        writer.start();
+
+        for (long id = 1; id <= 5; id++) {
+            writer.writeAuditEvent(createBanco(id), EntityAuditAction.CREATE);
+        }
+        waitForWrittenEvents(5);
+
+        assertThat(written).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(metricRegistry.meter("audit.events.written").getCount()).isEqualTo(5);
+        assertThat(metricRegistry.histogram("audit.batch.size").getSnapshot().getMax()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void dropEventsWhenQueueIsFull() throws Exception {
+        jHipsterProperties.getAudit().setQueueCapacity(2);
+        jHipsterProperties.getAudit().setBatchSize(1);
+        // The first batch blocks the writer thread until the queue overflows
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch overflowed = new CountDownLatch(1);
+        whenBatchUpdate()
+            .thenAnswer(invocation -> {
+                writing.countDown();
+                overflowed.await(10, TimeUnit.SECONDS);
+                Collection<?> batch = (Collection<?>) invocation.getArguments()[1];
+                batch.forEach(event -> written.add(((EntityAuditEvent) event).getEntityId()));
+                return new int[0][];
+            });
+        writer.start();
+
+        writer.writeAuditEvent(createBanco(1L), EntityAuditAction.CREATE);
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        for (long id = 2; id <= 4; id++) {
+            writer.writeAuditEvent(createBanco(id), EntityAuditAction.CREATE);
+        }
+        overflowed.countDown();
+        waitForWrittenEvents(3);
+
+        assertThat(written).containsExactly(1L, 2L, 3L);
+        assertThat(metricRegistry.meter("audit.events.backpressure").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("audit.events.dropped").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void flushQueuedEventsOnStop() throws Exception {
+        // The batch is neither full nor due when the writer is stopped
+        jHipsterProperties.getAudit().setFlushInterval(60000);
+        writer.start();
+
+        for (long id = 1; id <= 3; id++) {
+            writer.writeAuditEvent(createBanco(id), EntityAuditAction.CREATE);
+        }
+        long start = System.currentTimeMillis();
+        writer.stop();
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+        assertThat(written).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void retryBatchOnTransientError() throws Exception {
+        whenBatchUpdate()
+            .thenThrow(new DeadlockLoserDataAccessException("Deadlock", null))
+            .thenAnswer(invocation -> {
+                Collection<?> batch = (Collection<?>) invocation.getArguments()[1];
+                batch.forEach(event -> written.add(((EntityAuditEvent) event).getEntityId()));
+                return new int[0][];
+            });
+        writer.start();
+
+        writer.writeAuditEvent(createBanco(1L), EntityAuditAction.CREATE);
+        writer.writeAuditEvent(createBanco(2L), EntityAuditAction.CREATE);
+        writer.stop();
+
+        assertThat(written).containsExactly(1L, 2L);
+        assertThat(metricRegistry.meter("audit.events.failed").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void writeEventsOneByOneWhenBatchFails() throws Exception {
+        whenBatchUpdate()
+            .thenThrow(new DataIntegrityViolationException("Data too long"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+            ((PreparedStatementSetter) invocation.getArguments()[1]).setValues(ps);
+            ArgumentCaptor<Long> entityId = ArgumentCaptor.forClass(Long.class);
+            verify(ps).setLong(eq(1), entityId.capture());
+            if (entityId.getValue() == BAD_ENTITY_ID) {
+                throw new DataIntegrityViolationException("Data too long");
+            }
+            written.add(entityId.getValue());
+            return 1;
+        });
+        writer.start();
+
+        writer.writeAuditEvent(createBanco(1L), EntityAuditAction.CREATE);
+        writer.writeAuditEvent(createBanco(BAD_ENTITY_ID), EntityAuditAction.CREATE);
+        writer.writeAuditEvent(createBanco(2L), EntityAuditAction.CREATE);
+        writer.stop();
+
+        // Only the rejected event is lost
+        assertThat(written).containsExactly(1L, 2L);
+        assertThat(metricRegistry.meter("audit.events.written").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.meter("audit.events.failed").getCount()).isEqualTo(1);
+        // The failed batch was rolled back
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+
+    private OngoingStubbing<int[][]> whenBatchUpdate() {
+        return when(jdbcTemplate.batchUpdate(anyString(), anyCollectionOf(EntityAuditEvent.class), anyInt(),
+            anyStatementSetter()));
+    }
+
+    private static ParameterizedPreparedStatementSetter<EntityAuditEvent> anyStatementSetter() {
+        return any();
+    }
+
+    private void waitForWrittenEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (written.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Banco createBanco(Long id) {
+        Banco banco = new Banco();
+        banco.setId(id);
+        banco.setCodigo("AAAAA");
+        banco.setNome("AAAAA");
+        banco.setCreatedBy("system");
+        return banco;
+    }
+}
@@ -5,6 +5,8 @@ import static java.lang.System.currentTimeMillis;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
+import br.org.rh.service.SearchReindexService;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
@@ -17,10 +19,18 @@ public class IndexReinitializer {
     @Inject
     private ElasticsearchTemplate elasticsearchTemplate;
 
+    @Inject
+    private SearchReindexService searchReindexService;
+
     @PostConstruct
     public void resetIndex() {
         long t = currentTimeMillis();
         elasticsearchTemplate.deleteIndex("_all");
+        // Recreate the indices with their settings and mappings, as the repositories do at startup
+        for (Class<?> entityClass : searchReindexService.getIndexedEntityClasses()) {
+            elasticsearchTemplate.createIndex(entityClass);
+            elasticsearchTemplate.putMapping(entityClass);
+        }
         t = currentTimeMillis() - t;
         logger.debug("ElasticSearch indexes reset in {} ms", t);
     }
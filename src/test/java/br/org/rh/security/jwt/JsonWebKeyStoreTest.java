@@ -0,0 +1,204 @@
+package br.org.rh.security.jwt;
+
+import br.org.rh.config.JHipsterProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the JsonWebKeyStore.
+ *
+ * @see JsonWebKeyStore
+ */
+public class JsonWebKeyStoreTest {
+
+    static KeyPair firstKey;
+
+    static KeyPair secondKey;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JHipsterProperties jHipsterProperties;
+
+    private JsonWebKeyStore jsonWebKeyStore;
+
+    private File keystore;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        firstKey = generator.generateKeyPair();
+        secondKey = generator.generateKeyPair();
+    }
+
+    @Before
+    public void setup() throws IOException {
+        keystore = temporaryFolder.newFile("jwks.json");
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setAlgorithm("RS256");
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setKeystore(keystore.getPath());
+        jsonWebKeyStore = new JsonWebKeyStore();
+        ReflectionTestUtils.setField(jsonWebKeyStore, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(jsonWebKeyStore, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    public void loadKeys() throws Exception {
+        writeKeySet(keystore, publicKey("first", firstKey), privateKey("second", secondKey));
+        jsonWebKeyStore.init();
+
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(1);
+        assertThat(jsonWebKeyStore.getVerificationKey("first")).isEqualTo(firstKey.getPublic());
+        assertThat(jsonWebKeyStore.getVerificationKey("second")).isEqualTo(secondKey.getPublic());
+        // The first key with a private part signs the tokens
+        assertThat(jsonWebKeyStore.getSigningKeyId()).isEqualTo("second");
+        assertThat(((RSAPrivateKey) jsonWebKeyStore.getSigningKey()).getPrivateExponent())
+            .isEqualTo(((RSAPrivateKey) secondKey.getPrivate()).getPrivateExponent());
+    }
+
+    @Test
+    public void unknownKidHasNoKey() throws Exception {
+        writeKeySet(keystore, privateKey("first", firstKey));
+        jsonWebKeyStore.init();
+
+        assertThat(jsonWebKeyStore.getVerificationKey("unknown")).isNull();
+        assertThat(jsonWebKeyStore.getVerificationKey(null)).isNull();
+    }
+
+    @Test
+    public void noKeystore() throws Exception {
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setKeystore(null);
+        jsonWebKeyStore.init();
+
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(0);
+        assertThat(jsonWebKeyStore.getSigningKey()).isNull();
+        assertThat(jsonWebKeyStore.getVerificationKey("first")).isNull();
+    }
+
+    @Test
+    public void rejectKeyOfAnotherType() throws Exception {
+        ObjectNode ecKey = new ObjectMapper().createObjectNode()
+            .put("kid", "ec").put("kty", "EC").put("crv", "P-256").put("x", "AA").put("y", "AA").put("d", "AA");
+        writeKeySet(keystore, ecKey, privateKey("first", firstKey));
+        try {
+            jsonWebKeyStore.init();
+            fail("EC keys cannot be used with RS256");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("ec");
+        }
+    }
+
+    @Test
+    public void rejectKeyOfAnotherAlgorithm() throws Exception {
+        writeKeySet(keystore, privateKey("first", firstKey).put("alg", "RS512"));
+        try {
+            jsonWebKeyStore.init();
+            fail("RS512 keys cannot be used with RS256");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("RS512");
+        }
+    }
+
+    @Test
+    public void rejectKeysWithSharedSecretAlgorithm() throws Exception {
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setAlgorithm("HS512");
+        writeKeySet(keystore, privateKey("first", firstKey));
+        try {
+            jsonWebKeyStore.init();
+            fail("RSA keys cannot be used with HS512");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("HS512");
+        }
+    }
+
+    @Test
+    public void reloadRotatedKeys() throws Exception {
+        writeKeySet(keystore, privateKey("first", firstKey));
+        jsonWebKeyStore.init();
+
+        // Unchanged file
+        jsonWebKeyStore.refresh();
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(1);
+
+        // The new key is added first, the old key still verifies its tokens
+        writeKeySet(keystore, privateKey("second", secondKey), publicKey("first", firstKey));
+        keystore.setLastModified(keystore.lastModified() + 2000);
+        jsonWebKeyStore.refresh();
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(2);
+        assertThat(jsonWebKeyStore.getSigningKeyId()).isEqualTo("second");
+        assertThat(jsonWebKeyStore.getVerificationKey("first")).isEqualTo(firstKey.getPublic());
+
+        // The old key is removed once its tokens expired
+        writeKeySet(keystore, privateKey("second", secondKey));
+        keystore.setLastModified(keystore.lastModified() + 2000);
+        jsonWebKeyStore.refresh();
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(3);
+        assertThat(jsonWebKeyStore.getVerificationKey("first")).isNull();
+    }
+
+    @Test
+    public void keepKeysWhenReloadFails() throws Exception {
+        writeKeySet(keystore, privateKey("first", firstKey));
+        jsonWebKeyStore.init();
+
+        Files.write(keystore.toPath(), "{\"keys\": [".getBytes(StandardCharsets.UTF_8));
+        keystore.setLastModified(keystore.lastModified() + 2000);
+        jsonWebKeyStore.refresh();
+        assertThat(jsonWebKeyStore.getVersion()).isEqualTo(1);
+        assertThat(jsonWebKeyStore.getSigningKeyId()).isEqualTo("first");
+    }
+
+    static ObjectNode publicKey(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return new ObjectMapper().createObjectNode()
+            .put("kid", kid)
+            .put("kty", "RSA")
+            .put("n", encode(publicKey.getModulus()))
+            .put("e", encode(publicKey.getPublicExponent()));
+    }
+
+    static ObjectNode privateKey(String kid, KeyPair keyPair) {
+        return publicKey(kid, keyPair)
+            .put("d", encode(((RSAPrivateKey) keyPair.getPrivate()).getPrivateExponent()));
+    }
+
+    static void writeKeySet(File file, ObjectNode... keys) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode keySet = objectMapper.createObjectNode();
+        ArrayNode keyArray = keySet.putArray("keys");
+        keyArray.addAll(Arrays.asList(keys));
+        objectMapper.writeValue(file, keySet);
+    }
+
+    private static String encode(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
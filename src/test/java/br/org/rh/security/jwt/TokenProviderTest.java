@@ -0,0 +1,230 @@
+package br.org.rh.security.jwt;
+
+import br.org.rh.config.JHipsterProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static br.org.rh.security.jwt.JsonWebKeyStoreTest.privateKey;
+import static br.org.rh.security.jwt.JsonWebKeyStoreTest.writeKeySet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the TokenProvider.
+ *
+ * @see TokenProvider
+ */
+public class TokenProviderTest {
+
+    private static final String SECRET = "0089c8f39d28df4bcd31edbfc2cb5f031ec50319";
+
+    private static KeyPair signingKey;
+
+    private static KeyPair otherKey;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JHipsterProperties jHipsterProperties;
+
+    private TokenRevocationList tokenRevocationList;
+
+    private JsonWebKeyStore jsonWebKeyStore;
+
+    private TokenProvider tokenProvider;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        signingKey = generator.generateKeyPair();
+        otherKey = generator.generateKeyPair();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        File keystore = temporaryFolder.newFile("jwks.json");
+        writeKeySet(keystore, privateKey("signing", signingKey));
+        jHipsterProperties = new JHipsterProperties();
+        JHipsterProperties.Security.Authentication.Jwt jwt = jHipsterProperties.getSecurity().getAuthentication().getJwt();
+        jwt.setSecret(SECRET);
+        jwt.setAlgorithm("RS256");
+        jwt.setKeystore(keystore.getPath());
+
+        jsonWebKeyStore = new JsonWebKeyStore();
+        ReflectionTestUtils.setField(jsonWebKeyStore, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(jsonWebKeyStore, "objectMapper", new ObjectMapper());
+        jsonWebKeyStore.init();
+
+        tokenRevocationList = Mockito.mock(TokenRevocationList.class);
+        tokenProvider = createTokenProvider();
+        tokenProvider.init();
+    }
+
+    @Test
+    public void createAndVerifyToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        Authentication authentication = tokenProvider.getAuthentication(token);
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    public void rejectUnknownKid() {
+        String token = createToken(SignatureAlgorithm.RS256, "unknown", otherKey);
+
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+    }
+
+    @Test
+    public void rejectUnexpectedAlgorithm() {
+        String token = Jwts.builder()
+            .setHeaderParam(JwsHeader.KEY_ID, "signing")
+            .setSubject("user")
+            .claim("auth", "ROLE_USER")
+            .setExpiration(new Date(System.currentTimeMillis() + 60000))
+            .signWith(SignatureAlgorithm.HS512, SECRET)
+            .compact();
+
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+    }
+
+    @Test
+    public void rejectEllipticCurveAlgorithm() {
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setAlgorithm("ES256");
+        try {
+            createTokenProvider().init();
+            fail("ES256 is not supported");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("ES256");
+        }
+    }
+
+    @Test
+    public void getCachedToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.getAuthentication(token)).isNotNull();
+        assertThat(getVerifiedTokens()).hasSize(1);
+
+        // A cached token is neither parsed nor verified again
+        ReflectionTestUtils.setField(tokenProvider, "jwtParser", null);
+        Authentication authentication = tokenProvider.getAuthentication(token);
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("user");
+    }
+
+    @Test
+    public void verifyExpiredCachedToken() throws Exception {
+        String token = createToken("user", 2500);
+        assertThat(tokenProvider.getAuthentication(token)).isNotNull();
+        assertThat(getVerifiedTokens()).hasSize(1);
+
+        // The expiration of the token has a precision of one second
+        Thread.sleep(3000);
+        try {
+            tokenProvider.getAuthentication(token);
+            fail("The token is expired");
+        } catch (ExpiredJwtException e) {
+            assertThat(e.getClaims().getSubject()).isEqualTo("user");
+        }
+    }
+
+    @Test
+    public void rejectInvalidSignature() {
+        String token = createToken(SignatureAlgorithm.RS256, "signing", otherKey);
+
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+        assertThat(getVerifiedTokens()).isEmpty();
+    }
+
+    @Test
+    public void removeRevokedTokenFromCache() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.getAuthentication(token)).isNotNull();
+        assertThat(getVerifiedTokens()).hasSize(1);
+
+        // Revoked on another node
+        when(tokenRevocationList.isRevoked(anyString())).thenReturn(true);
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+        assertThat(getVerifiedTokens()).isEmpty();
+    }
+
+    @Test
+    public void boundCacheSize() {
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setCacheMaxSize(2);
+        tokenProvider = createTokenProvider();
+        tokenProvider.init();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(tokenProvider.getAuthentication(createToken("user" + i, 60000))).isNotNull();
+        }
+        assertThat(getVerifiedTokens()).hasSize(2);
+
+        // Tokens which do not fit in the cache are still verified
+        Authentication authentication = tokenProvider.getAuthentication(createToken("user3", 60000));
+        assertThat(authentication.getName()).isEqualTo("user3");
+        assertThat(getVerifiedTokens()).hasSize(2);
+    }
+
+    private String createToken(SignatureAlgorithm algorithm, String kid, KeyPair keyPair) {
+        return Jwts.builder()
+            .setHeaderParam(JwsHeader.KEY_ID, kid)
+            .setSubject("user")
+            .claim("auth", "ROLE_USER")
+            .setExpiration(new Date(System.currentTimeMillis() + 60000))
+            .signWith(algorithm, keyPair.getPrivate())
+            .compact();
+    }
+
+    private String createToken(String subject, long validityInMillis) {
+        return Jwts.builder()
+            .setHeaderParam(JwsHeader.KEY_ID, "signing")
+            .setSubject(subject)
+            .claim("auth", "ROLE_USER")
+            .setExpiration(new Date(System.currentTimeMillis() + validityInMillis))
+            .signWith(SignatureAlgorithm.RS256, signingKey.getPrivate())
+            .compact();
+    }
+
+    private Map<?, ?> getVerifiedTokens() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(tokenProvider, "verifiedTokens");
+    }
+
+    private TokenProvider createTokenProvider() {
+        TokenProvider provider = new TokenProvider();
+        ReflectionTestUtils.setField(provider, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(provider, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(provider, "jsonWebKeyStore", jsonWebKeyStore);
+        return provider;
+    }
+
+    private static Authentication createAuthentication() {
+        return new UsernamePasswordAuthenticationToken("user", "",
+            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
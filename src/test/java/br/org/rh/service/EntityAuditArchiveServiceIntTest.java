@@ -0,0 +1,186 @@
+package br.org.rh.service;
+
+import br.org.rh.RhApp;
+import br.org.rh.config.JHipsterProperties;
+import br.org.rh.domain.EntityAuditEvent;
+import br.org.rh.repository.EntityAuditEventRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the EntityAuditArchiveService.
+ *
+ * @see EntityAuditArchiveService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+@Transactional
+public class EntityAuditArchiveServiceIntTest {
+
+    private static final String ENTITY_TYPE = "br.org.rh.domain.Banco";
+
+    private static final Long ENTITY_ID = 1L;
+
+    private static final ZonedDateTime ARCHIVE_BEFORE = ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Inject
+    private EntityAuditArchiveService entityAuditArchiveService;
+
+    @Inject
+    private EntityAuditEventRepository entityAuditEventRepository;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    private String directory;
+
+    private Path archiveDirectory;
+
+    private EntityAuditEvent firstVersion;
+
+    private EntityAuditEvent secondVersion;
+
+    private EntityAuditEvent thirdVersion;
+
+    @Before
+    public void initTest() throws Exception {
+        directory = jHipsterProperties.getAudit().getArchive().getDirectory();
+        jHipsterProperties.getAudit().getArchive().setDirectory(temporaryFolder.getRoot().getPath());
+        archiveDirectory = temporaryFolder.getRoot().toPath().resolve(ENTITY_TYPE);
+
+        // One version a month
+        firstVersion = createEvent(1, ZonedDateTime.of(1999, 1, 15, 0, 0, 0, 0, ZoneOffset.UTC));
+        secondVersion = createEvent(2, ZonedDateTime.of(1999, 2, 15, 0, 0, 0, 0, ZoneOffset.UTC));
+        thirdVersion = createEvent(3, ZonedDateTime.of(1999, 3, 15, 0, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(entityAuditArchiveService.archive(ARCHIVE_BEFORE)).isEqualTo(3);
+    }
+
+    @After
+    public void restoreDirectory() {
+        jHipsterProperties.getAudit().getArchive().setDirectory(directory);
+    }
+
+    @Test
+    public void archiveEvents() throws Exception {
+        assertThat(entityAuditEventRepository.findAllByModifiedDateBeforeOrderByIdAsc(ARCHIVE_BEFORE,
+            new PageRequest(0, 10))).isEmpty();
+        assertThat(entityAuditArchiveService.findEntityTypes()).containsExactly(ENTITY_TYPE);
+        for (String month : new String[] {"1999-01", "1999-02", "1999-03"}) {
+            assertThat(archiveDirectory.resolve(month + ".ndjson.gz")).exists();
+            assertThat(archiveDirectory.resolve(month + ".index.json")).exists();
+        }
+
+        // The index holds the ids of the events and the versions of the entity
+        ObjectNode index = (ObjectNode) objectMapper.readTree(archiveDirectory.resolve("1999-02.index.json").toFile());
+        assertThat(index.get("minId").asLong()).isEqualTo(secondVersion.getId());
+        assertThat(index.get("maxId").asLong()).isEqualTo(secondVersion.getId());
+        assertThat(index.get("versions").get(ENTITY_ID.toString()).get(0).asInt()).isEqualTo(2);
+        assertThat(index.get("versions").get(ENTITY_ID.toString()).get(1).asInt()).isEqualTo(2);
+    }
+
+    @Test
+    public void findPrevious() {
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 4).getId())
+            .isEqualTo(thirdVersion.getId());
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 3).getId())
+            .isEqualTo(secondVersion.getId());
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 2).getId())
+            .isEqualTo(firstVersion.getId());
+
+        // No version precedes the first one
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 1)).isNull();
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID + 1, 3)).isNull();
+        assertThat(entityAuditArchiveService.findPrevious("br.org.rh.domain.Cargo", ENTITY_ID, 3)).isNull();
+    }
+
+    @Test
+    public void findPreviousInIndexedFile() throws Exception {
+        // Without the versions of the entity in the index of February, the previous version is read from January
+        Path indexFile = archiveDirectory.resolve("1999-02.index.json");
+        ObjectNode index = (ObjectNode) objectMapper.readTree(indexFile.toFile());
+        index.putObject("versions");
+        objectMapper.writeValue(indexFile.toFile(), index);
+
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 3).getId())
+            .isEqualTo(firstVersion.getId());
+    }
+
+    @Test
+    public void findPreviousWithoutIndex() throws Exception {
+        for (String month : new String[] {"1999-01", "1999-02", "1999-03"}) {
+            Files.delete(archiveDirectory.resolve(month + ".index.json"));
+        }
+
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 3).getId())
+            .isEqualTo(secondVersion.getId());
+
+        // The next archive run indexes the files
+        assertThat(entityAuditArchiveService.archive(ARCHIVE_BEFORE)).isEqualTo(0);
+        assertThat(archiveDirectory.resolve("1999-01.index.json")).exists();
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 3).getId())
+            .isEqualTo(secondVersion.getId());
+    }
+
+    @Test
+    public void findLatest() {
+        List<EntityAuditEvent> latest = entityAuditArchiveService.findLatest(ENTITY_TYPE, null, 2);
+        assertThat(latest).extracting("id").containsExactly(thirdVersion.getId(), secondVersion.getId());
+
+        // The next page starts before the last event of the previous one
+        latest = entityAuditArchiveService.findLatest(ENTITY_TYPE, secondVersion.getId(), 2);
+        assertThat(latest).extracting("id").containsExactly(firstVersion.getId());
+    }
+
+    @Test
+    public void appendToArchive() throws Exception {
+        EntityAuditEvent fourthVersion = createEvent(4, ZonedDateTime.of(1999, 3, 20, 0, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(entityAuditArchiveService.archive(ARCHIVE_BEFORE)).isEqualTo(1);
+
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 5).getId())
+            .isEqualTo(fourthVersion.getId());
+        assertThat(entityAuditArchiveService.findPrevious(ENTITY_TYPE, ENTITY_ID, 4).getId())
+            .isEqualTo(thirdVersion.getId());
+    }
+
+    private EntityAuditEvent createEvent(int commitVersion, ZonedDateTime modifiedDate) {
+        EntityAuditEvent event = new EntityAuditEvent();
+        event.setEntityId(ENTITY_ID);
+        event.setEntityType(ENTITY_TYPE);
+        event.setAction(commitVersion == 1 ? "CREATE" : "UPDATE");
+        event.setEntityValue("{\"id\":" + ENTITY_ID + ",\"nome\":\"Version " + commitVersion + "\"}");
+        event.setCommitVersion(commitVersion);
+        event.setModifiedBy("system");
+        event.setModifiedDate(modifiedDate);
+        return entityAuditEventRepository.saveAndFlush(event);
+    }
+}
@@ -0,0 +1,82 @@
+package br.org.rh.service;
+
+import br.org.rh.RhApp;
+import br.org.rh.config.JHipsterProperties;
+import br.org.rh.domain.SearchOutboxEvent;
+import br.org.rh.domain.enumeration.SearchOutboxAction;
+import br.org.rh.repository.SearchOutboxEventRepository;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the SearchOutboxService.
+ *
+ * @see SearchOutboxService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+@Transactional
+public class SearchOutboxServiceIntTest {
+
+    private static final String UNKNOWN_ENTITY_TYPE = "br.org.rh.domain.Unknown";
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Test
+    public void retryFailedEvent() {
+        SearchOutboxEvent event = searchOutboxEventRepository.saveAndFlush(
+            new SearchOutboxEvent(UNKNOWN_ENTITY_TYPE, 1L, SearchOutboxAction.INDEX));
+
+        searchOutboxService.drain();
+
+        SearchOutboxEvent failedEvent = searchOutboxEventRepository.findOne(event.getId());
+        assertThat(failedEvent.getAttempts()).isEqualTo(1);
+        assertThat(failedEvent.isDead()).isFalse();
+        assertThat(failedEvent.getNextAttemptDate()).isAfter(ZonedDateTime.now());
+    }
+
+    @Test
+    public void giveUpOnEventFailingTooManyTimes() {
+        SearchOutboxEvent event = new SearchOutboxEvent(UNKNOWN_ENTITY_TYPE, 1L, SearchOutboxAction.INDEX);
+        event.setAttempts(jHipsterProperties.getSearch().getOutbox().getMaxAttempts() - 1);
+        event = searchOutboxEventRepository.saveAndFlush(event);
+        long deadEvents = metricRegistry.meter("search.outbox.dead").getCount();
+
+        searchOutboxService.drain();
+
+        // The event is kept, but is neither drained nor counted as pending or late anymore
+        SearchOutboxEvent deadEvent = searchOutboxEventRepository.findOne(event.getId());
+        assertThat(deadEvent.isDead()).isTrue();
+        assertThat(metricRegistry.meter("search.outbox.dead").getCount()).isEqualTo(deadEvents + 1);
+        assertThat(searchOutboxEventRepository.findAllDue(ZonedDateTime.now().plusYears(1), new PageRequest(0, 10)))
+            .doesNotContain(deadEvent);
+        assertThat(searchOutboxEventRepository
+            .findFirstByDeadFalseAndNextAttemptDateLessThanEqualOrderByNextAttemptDateAsc(ZonedDateTime.now().plusYears(1)))
+            .isNotEqualTo(deadEvent);
+    }
+}
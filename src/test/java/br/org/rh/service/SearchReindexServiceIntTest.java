@@ -0,0 +1,155 @@
+package br.org.rh.service;
+
+import br.org.rh.RhApp;
+import br.org.rh.domain.Vinculo;
+import br.org.rh.repository.VinculoRepository;
+import br.org.rh.repository.search.VinculoSearchRepository;
+
+import org.elasticsearch.client.Client;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the SearchReindexService.
+ * <p>
+ * The reindex reads the database with its own transactions, so the test data is committed, and deleted afterwards.
+ *
+ * @see SearchReindexService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class SearchReindexServiceIntTest {
+
+    private static final String ALIAS = "vinculo";
+
+    @Inject
+    private SearchReindexService searchReindexService;
+
+    @Inject
+    private VinculoRepository vinculoRepository;
+
+    @Inject
+    private VinculoSearchRepository vinculoSearchRepository;
+
+    @Inject
+    private VinculoService vinculoService;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private EntityMapper entityMapper;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private Client client;
+
+    private Vinculo vinculo;
+
+    @Before
+    public void initTest() {
+        // Start from the index created by Spring Data, as the IndexReinitializer leaves it
+        for (String index : getAliasedIndices()) {
+            elasticsearchTemplate.deleteIndex(index);
+        }
+        if (!elasticsearchTemplate.indexExists(ALIAS)) {
+            elasticsearchTemplate.createIndex(Vinculo.class);
+            elasticsearchTemplate.putMapping(Vinculo.class);
+        }
+        vinculo = new Vinculo();
+        vinculo.setNome("AAAAA");
+        vinculo.setDescricao("AAAAA");
+        vinculo = vinculoRepository.saveAndFlush(vinculo);
+    }
+
+    @After
+    public void cleanUp() {
+        vinculoRepository.delete(vinculo.getId());
+        vinculoSearchRepository.delete(vinculo.getId());
+    }
+
+    @Test
+    public void reindexIntoVersionedIndices() {
+        // The first reindex replaces the index by an alias to a versioned index
+        searchReindexService.reindex(Vinculo.class);
+        List<String> firstIndices = getAliasedIndices();
+        assertThat(firstIndices).hasSize(1);
+        assertThat(firstIndices.get(0)).startsWith(ALIAS + "_");
+        assertThat(client.admin().indices().prepareGetMappings(firstIndices.get(0)).setTypes(ALIAS).get()
+            .getMappings().get(firstIndices.get(0)).get(ALIAS)).isNotNull();
+        assertThat(vinculoSearchRepository.findOne(vinculo.getId())).isNotNull();
+
+        // The next reindex switches the alias to a new index, and drops the previous one
+        searchReindexService.reindex(Vinculo.class);
+        List<String> secondIndices = getAliasedIndices();
+        assertThat(secondIndices).hasSize(1);
+        assertThat(secondIndices.get(0)).startsWith(ALIAS + "_").isNotEqualTo(firstIndices.get(0));
+        assertThat(elasticsearchTemplate.indexExists(firstIndices.get(0))).isFalse();
+        assertThat(vinculoSearchRepository.findOne(vinculo.getId())).isNotNull();
+    }
+
+    @Test
+    public void reindexEntityDeletedAfterRead() {
+        Vinculo deletedVinculo = new Vinculo();
+        deletedVinculo.setNome("BBBBB");
+        deletedVinculo.setDescricao("BBBBB");
+        Long deletedId = vinculoRepository.saveAndFlush(deletedVinculo).getId();
+
+        // The entity is deleted, and the deletion drained, once a worker has read it but before it is indexed
+        SearchReindexService target = AopTestUtils.getTargetObject(searchReindexService);
+        ReflectionTestUtils.setField(target, "entityMapper", new EntityMapper() {
+            @Override
+            public String mapToString(Object object) throws IOException {
+                if (deletedId.equals(((Vinculo) object).getId())) {
+                    vinculoService.delete(deletedId);
+                    searchOutboxService.drain();
+                }
+                return entityMapper.mapToString(object);
+            }
+
+            @Override
+            public <T> T mapToObject(String source, Class<T> clazz) throws IOException {
+                return entityMapper.mapToObject(source, clazz);
+            }
+        });
+        try {
+            searchReindexService.reindex(Vinculo.class);
+        } finally {
+            ReflectionTestUtils.setField(target, "entityMapper", entityMapper);
+        }
+
+        assertThat(vinculoRepository.findOne(deletedId)).isNull();
+        assertThat(vinculoSearchRepository.findOne(deletedId)).isNull();
+        assertThat(vinculoSearchRepository.findOne(vinculo.getId())).isNotNull();
+    }
+
+    private List<String> getAliasedIndices() {
+        List<String> indices = new ArrayList<>();
+        if (client.admin().indices().prepareAliasesExist(ALIAS).get().exists()) {
+            client.admin().indices().prepareGetAliases(ALIAS).get().getAliases().keysIt()
+                .forEachRemaining(indices::add);
+        }
+        return indices;
+    }
+}
@@ -4,15 +4,35 @@ import br.org.rh.RhApp;
 import br.org.rh.domain.Banco;
 import br.org.rh.repository.BancoRepository;
 import br.org.rh.service.BancoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.errors.ErrorConstants;
+import br.org.rh.web.rest.errors.ExceptionTranslator;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.BancoSearchRepository;
 
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandKey;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +45,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +82,24 @@ public class BancoResourceIntTest {
     @Inject
     private BancoSearchRepository bancoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,8 +115,13 @@ public class BancoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         BancoResource bancoResource = new BancoResource();
         ReflectionTestUtils.setField(bancoResource, "bancoService", bancoService);
+        ReflectionTestUtils.setField(bancoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(bancoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(bancoResource, "structuredSearchService", structuredSearchService);
+        ReflectionTestUtils.setField(bancoResource, "suggestService", suggestService);
         this.restBancoMockMvc = MockMvcBuilders.standaloneSetup(bancoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
+            .setControllerAdvice(new ExceptionTranslator())
             .setMessageConverters(jacksonMessageConverter).build();
     }
 
@@ -96,6 +144,7 @@ public class BancoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(banco)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Banco in the database
         List<Banco> bancos = bancoRepository.findAll();
@@ -145,6 +194,67 @@ public class BancoResourceIntTest {
         assertThat(bancos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveBancos() throws Exception {
+        int databaseSizeBeforeCreate = bancoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid banco
+        restBancoMockMvc.perform(post("/api/bancos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(banco, new Banco()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Banco was saved
+        List<Banco> bancos = bancoRepository.findAll();
+        assertThat(bancos).hasSize(databaseSizeBeforeCreate + 1);
+        Banco testBanco = bancos.get(bancos.size() - 1);
+        assertThat(bancoSearchRepository.exists(testBanco.getId())).isTrue();
+    }
+
+    @Test
+    public void bulkSaveBancosWithFailingItems() throws Exception {
+        // The chunk is committed, so its failure is not hidden by the transaction of the test
+        Banco existingBanco = bancoService.save(banco);
+        Banco duplicateBanco = new Banco();
+        duplicateBanco.setCodigo(DEFAULT_CODIGO);
+        duplicateBanco.setNome(UPDATED_NOME);
+        Banco staleBanco = new Banco();
+        staleBanco.setId(existingBanco.getId());
+        staleBanco.setCodigo(DEFAULT_CODIGO);
+        staleBanco.setNome(UPDATED_NOME);
+        staleBanco.setVersion(existingBanco.getVersion() + 1);
+        Banco newBanco = new Banco();
+        newBanco.setCodigo(UPDATED_CODIGO);
+        newBanco.setNome(UPDATED_NOME);
+        try {
+            // Only the failing items are rejected, with an error key
+            restBancoMockMvc.perform(post("/api/bancos/_bulk")
+                    .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                    .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(duplicateBanco, staleBanco, newBanco))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.[0].status").value(409))
+                    .andExpect(jsonPath("$.[0].error").value(ErrorConstants.ERR_DATA_INTEGRITY_VIOLATION))
+                    .andExpect(jsonPath("$.[1].status").value(409))
+                    .andExpect(jsonPath("$.[1].id").value(existingBanco.getId().intValue()))
+                    .andExpect(jsonPath("$.[1].error").value(ErrorConstants.ERR_CONCURRENCY_FAILURE))
+                    .andExpect(jsonPath("$.[2].status").value(201))
+                    .andExpect(jsonPath("$.[2].id").value(notNullValue()));
+
+            assertThat(bancoRepository.findOne(existingBanco.getId()).getNome()).isEqualTo(DEFAULT_NOME);
+            assertThat(bancoRepository.findAll()).extracting("codigo").containsOnlyOnce(DEFAULT_CODIGO, UPDATED_CODIGO);
+        } finally {
+            bancoRepository.findAll().stream()
+                .filter(savedBanco -> DEFAULT_CODIGO.equals(savedBanco.getCodigo()) ||
+                    UPDATED_CODIGO.equals(savedBanco.getCodigo()))
+                .forEach(savedBanco -> bancoService.delete(savedBanco.getId()));
+            searchOutboxService.drain();
+        }
+    }
+
     @Test
     @Transactional
     public void getAllBancos() throws Exception {
@@ -160,6 +270,114 @@ public class BancoResourceIntTest {
                 .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllBancosAfter() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the bancos following the cursor of the previous id
+        restBancoMockMvc.perform(get("/api/bancos?after=" + PaginationUtil.encodeCursor(banco.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(bancoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(banco.getId().intValue()))
+                .andExpect(jsonPath("$.[0].codigo").value(DEFAULT_CODIGO.toString()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Get the bancos following the cursor of the banco
+        restBancoMockMvc.perform(get("/api/bancos?after=" + PaginationUtil.encodeCursor(banco.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(banco.getId().intValue()))));
+    }
+
+    @Test
+    public void getAllBancosAfterWithInvalidSize() throws Exception {
+        restBancoMockMvc.perform(get("/api/bancos?after=&size=0"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_INVALID_SLICE_SIZE));
+        restBancoMockMvc.perform(get("/api/bancos?after=&size=" + (PaginationUtil.MAX_SLICE_SIZE + 1)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_INVALID_SLICE_SIZE));
+        restBancoMockMvc.perform(get("/api/bancos?after=&size=" + PaginationUtil.MAX_SLICE_SIZE))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void searchBancoAfterWithInvalidSize() throws Exception {
+        restBancoMockMvc.perform(get("/api/_search/bancos?query=*&after=&size=-1"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_INVALID_SLICE_SIZE));
+        restBancoMockMvc.perform(get("/api/_search/bancos?query=*&after=&size=" + (PaginationUtil.MAX_SLICE_SIZE + 1)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_INVALID_SLICE_SIZE));
+    }
+
+    @Test
+    @Transactional
+    public void getBancosByIds() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the bancos of a list of ids, skipping the unknown and repeated ones
+        restBancoMockMvc.perform(get("/api/bancos?ids={ids}", Long.MAX_VALUE + "," + banco.getId() + "," + banco.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(banco.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, banco.getId().toString()));
+        restBancoMockMvc.perform(get("/api/bancos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportBancos() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Export the bancos as NDJSON
+        restBancoMockMvc.perform(get("/api/bancos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + banco.getId() + ",")));
+
+        // Export the bancos as CSV
+        restBancoMockMvc.perform(get("/api/bancos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + banco.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void exportBancosInBatches() throws Exception {
+        // Initialize the database with more bancos than a fetch
+        List<Banco> bancos = new ArrayList<>();
+        for (int i = 0; i <= ExportService.FETCH_SIZE; i++) {
+            Banco other = new Banco();
+            other.setCodigo(DEFAULT_CODIGO + i);
+            other.setNome(DEFAULT_NOME);
+            bancos.add(other);
+        }
+        bancoRepository.save(bancos);
+        bancoRepository.flush();
+        long count = bancoRepository.count();
+
+        // Export all the bancos as NDJSON, one banco per line
+        String export = restBancoMockMvc.perform(get("/api/bancos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(export.split("\n")).hasSize((int) count);
+        assertThat(export).contains("\"id\":" + bancos.get(ExportService.FETCH_SIZE).getId() + ",");
+    }
+
     @Test
     @Transactional
     public void getBanco() throws Exception {
@@ -175,6 +393,92 @@ public class BancoResourceIntTest {
             .andExpect(jsonPath("$.nome").value(DEFAULT_NOME.toString()));
     }
 
+    @Test
+    public void getAllBancosModifiedAfterCommit() throws Exception {
+        // Initialize the database, committing the transaction
+        bancoService.save(banco);
+        try {
+            String etag = restBancoMockMvc.perform(get("/api/bancos"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+            // Update the banco: the ETag of the list changes as soon as the transaction is committed
+            banco.setNome(UPDATED_NOME);
+            bancoService.save(banco);
+            restBancoMockMvc.perform(get("/api/bancos").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+        } finally {
+            bancoService.delete(banco.getId());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getBancoNotModified() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the banco again with its ETag
+        String etag = restBancoMockMvc.perform(get("/api/bancos/{id}", banco.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restBancoMockMvc.perform(get("/api/bancos/{id}", banco.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the bancos again with the ETag of the list
+        etag = restBancoMockMvc.perform(get("/api/bancos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restBancoMockMvc.perform(get("/api/bancos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateBancoPreconditionFailed() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+        int databaseSizeBeforeDelete = bancoRepository.findAll().size();
+
+        // Get the banco with its ETag
+        String etag = restBancoMockMvc.perform(get("/api/bancos/{id}", banco.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The banco is updated by someone else
+        banco.setCodigo(UPDATED_CODIGO);
+        bancoRepository.flush();
+
+        // Update and delete the banco with the stale ETag
+        restBancoMockMvc.perform(put("/api/bancos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(banco)))
+                .andExpect(status().isPreconditionFailed());
+        restBancoMockMvc.perform(delete("/api/bancos/{id}", banco.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the banco with the current ETag
+        String currentEtag = restBancoMockMvc.perform(get("/api/bancos/{id}", banco.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restBancoMockMvc.perform(delete("/api/bancos/{id}", banco.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Banco> bancos = bancoRepository.findAll();
+        assertThat(bancos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingBanco() throws Exception {
@@ -183,6 +487,65 @@ public class BancoResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getBancoByCodigo() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the banco by its codigo
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo/{codigo}", DEFAULT_CODIGO))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.id").value(banco.getId().intValue()))
+            .andExpect(jsonPath("$.codigo").value(DEFAULT_CODIGO.toString()))
+            .andExpect(jsonPath("$.nome").value(DEFAULT_NOME.toString()));
+
+        // Get an unknown codigo
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo/{codigo}", UPDATED_CODIGO))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getBancoByStaleCodigo() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Resolve another codigo to the banco, as a stale natural id cache entry would
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.getPersistenceContext().getNaturalIdHelper().cacheNaturalIdCrossReferenceFromLoad(
+            session.getFactory().getEntityPersister(Banco.class.getName()), banco.getId(), new Object[] {UPDATED_CODIGO});
+
+        // The stale codigo does not return the banco, which is returned once for its own codigo
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo/{codigo}", UPDATED_CODIGO))
+            .andExpect(status().isNotFound());
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo?codigos={updated},{codigo}", UPDATED_CODIGO, DEFAULT_CODIGO))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].codigo").value(DEFAULT_CODIGO.toString()));
+    }
+
+    @Test
+    @Transactional
+    public void getBancosByCodigo() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the bancos of a list of codigos, skipping the unknown and repeated ones
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo?codigos={codigo},{unknown},{codigo}", DEFAULT_CODIGO, UPDATED_CODIGO, DEFAULT_CODIGO))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(banco.getId().intValue()))
+            .andExpect(jsonPath("$.[0].codigo").value(DEFAULT_CODIGO.toString()));
+
+        // Too many codigos are rejected
+        String codigos = String.join(",", Collections.nCopies(NaturalIdService.MAX_KEYS + 1, DEFAULT_CODIGO));
+        restBancoMockMvc.perform(get("/api/bancos/by-codigo?codigos={codigos}", codigos))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateBanco() throws Exception {
@@ -201,6 +564,7 @@ public class BancoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedBanco)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Banco in the database
         List<Banco> bancos = bancoRepository.findAll();
@@ -226,6 +590,7 @@ public class BancoResourceIntTest {
         restBancoMockMvc.perform(delete("/api/bancos/{id}", banco.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean bancoExistsInEs = bancoSearchRepository.exists(banco.getId());
@@ -241,6 +606,7 @@ public class BancoResourceIntTest {
     public void searchBanco() throws Exception {
         // Initialize the database
         bancoService.save(banco);
+        searchOutboxService.drain();
 
         // Search the banco
         restBancoMockMvc.perform(get("/api/_search/bancos?query=id:" + banco.getId()))
@@ -250,4 +616,115 @@ public class BancoResourceIntTest {
             .andExpect(jsonPath("$.[*].codigo").value(hasItem(DEFAULT_CODIGO.toString())))
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchBancoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        bancoRepository.saveAndFlush(banco);
+
+        // Search the banco by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchBanco.circuitBreaker.forceOpen", true);
+        try {
+            restBancoMockMvc.perform(get("/api/_search/bancos?query=" + DEFAULT_CODIGO.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(banco.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchBanco.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchBancoWithInvalidQuery() throws Exception {
+        // Search with a query which cannot be parsed, more times than the circuit breaker tolerates
+        for (int i = 0; i < 25; i++) {
+            restBancoMockMvc.perform(get("/api/_search/bancos?query=nome:(" + DEFAULT_NOME))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.invalidSearchQuery"));
+        }
+
+        // The circuit is still closed once the health of the command is computed again
+        Thread.sleep(1000);
+        assertThat(HystrixCircuitBreaker.Factory.getInstance(HystrixCommandKey.Factory.asKey("searchBanco")).isOpen())
+            .isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void searchBancoAfter() throws Exception {
+        // Initialize the database
+        bancoService.save(banco);
+        searchOutboxService.drain();
+
+        // Search the bancos following the cursor of the previous id
+        restBancoMockMvc.perform(get("/api/_search/bancos?query=id:" + banco.getId() + "&after=" + PaginationUtil.encodeCursor(banco.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(banco.getId().intValue()));
+
+        // Search the bancos following the cursor of the banco
+        restBancoMockMvc.perform(get("/api/_search/bancos?query=id:" + banco.getId() + "&after=" + PaginationUtil.encodeCursor(banco.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(banco.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchBancos() throws Exception {
+        // Initialize the database
+        bancoService.save(banco);
+        searchOutboxService.drain();
+
+        // Export the bancos found by the search as NDJSON
+        restBancoMockMvc.perform(get("/api/_search/bancos/_export?query=id:" + banco.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + banco.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchBanco() throws Exception {
+        // Initialize the database
+        bancoService.save(banco);
+        searchOutboxService.drain();
+
+        // Search the banco by id and codigo, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", banco.getId().toString());
+        request.getMatch().put("codigo", DEFAULT_CODIGO);
+        request.getHighlight().add("codigo");
+        restBancoMockMvc.perform(post("/api/_search/bancos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(banco.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.codigo").value(hasItem(DEFAULT_CODIGO.toString())))
+            .andExpect(jsonPath("$.[*].highlights.codigo.[*]").value(hasItem(containsString("<em>"))));
+    }
+
+    @Test
+    @Transactional
+    public void suggestBanco() throws Exception {
+        // Initialize the database
+        bancoService.save(banco);
+        searchOutboxService.drain();
+
+        // Suggest the banco from the start of its codigo, whatever its case
+        restBancoMockMvc.perform(get("/api/_suggest/bancos?prefix=" + DEFAULT_CODIGO.substring(0, 2).toLowerCase()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(banco.getId().intValue())))
+            .andExpect(jsonPath("$.[*].codigo").value(hasItem(DEFAULT_CODIGO.toString())));
+
+        // A prefix which does not start the codigo suggests nothing
+        restBancoMockMvc.perform(get("/api/_suggest/bancos?prefix=" + UPDATED_CODIGO.substring(0, 2)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(banco.getId().intValue()))));
+    }
 }
@@ -1,18 +1,35 @@
 package br.org.rh.web.rest;
 
 import br.org.rh.RhApp;
+import br.org.rh.config.CacheConfiguration;
 import br.org.rh.domain.Cargo;
 import br.org.rh.repository.CargoRepository;
 import br.org.rh.service.CargoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.CargoSearchRepository;
 
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +42,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +76,24 @@ public class CargoResourceIntTest {
     @Inject
     private CargoSearchRepository cargoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,6 +109,10 @@ public class CargoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         CargoResource cargoResource = new CargoResource();
         ReflectionTestUtils.setField(cargoResource, "cargoService", cargoService);
+        ReflectionTestUtils.setField(cargoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(cargoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(cargoResource, "structuredSearchService", structuredSearchService);
+        ReflectionTestUtils.setField(cargoResource, "suggestService", suggestService);
         this.restCargoMockMvc = MockMvcBuilders.standaloneSetup(cargoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -96,6 +137,7 @@ public class CargoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(cargo)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Cargo in the database
         List<Cargo> cargos = cargoRepository.findAll();
@@ -145,6 +187,27 @@ public class CargoResourceIntTest {
         assertThat(cargos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveCargos() throws Exception {
+        int databaseSizeBeforeCreate = cargoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid cargo
+        restCargoMockMvc.perform(post("/api/cargos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(cargo, new Cargo()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Cargo was saved
+        List<Cargo> cargos = cargoRepository.findAll();
+        assertThat(cargos).hasSize(databaseSizeBeforeCreate + 1);
+        Cargo testCargo = cargos.get(cargos.size() - 1);
+        assertThat(cargoSearchRepository.exists(testCargo.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllCargos() throws Exception {
@@ -160,6 +223,101 @@ public class CargoResourceIntTest {
                 .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
 
+    @Test
+    public void getAllCargosEvictedBySave() throws Exception {
+        // The cached pages are only put and evicted once the transactions are committed
+        IMap<Object, Object> pages = hazelcastInstance.getMap(CacheConfiguration.PAGES_CACHE_PREFIX + "Cargo");
+        Cargo otherCargo = new Cargo();
+        otherCargo.setNome(UPDATED_NOME);
+        otherCargo.setDescricao(UPDATED_DESCRICAO);
+        try {
+            // Initialize the database, and cache the first page
+            cargoService.save(cargo);
+            restCargoMockMvc.perform(get("/api/cargos?sort=id,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(cargo.getId().intValue())));
+            assertThat(pages).isNotEmpty();
+
+            // Saving another cargo evicts the cached pages
+            cargoService.save(otherCargo);
+            assertThat(pages).isEmpty();
+
+            restCargoMockMvc.perform(get("/api/cargos?sort=id,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(otherCargo.getId().intValue())));
+        } finally {
+            if (cargo.getId() != null) {
+                cargoService.delete(cargo.getId());
+            }
+            if (otherCargo.getId() != null) {
+                cargoService.delete(otherCargo.getId());
+            }
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getAllCargosAfter() throws Exception {
+        // Initialize the database
+        cargoRepository.saveAndFlush(cargo);
+
+        // Get the cargos following the cursor of the previous id
+        restCargoMockMvc.perform(get("/api/cargos?after=" + PaginationUtil.encodeCursor(cargo.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(cargoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(cargo.getId().intValue()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].descricao").value(DEFAULT_DESCRICAO.toString()));
+
+        // Get the cargos following the cursor of the cargo
+        restCargoMockMvc.perform(get("/api/cargos?after=" + PaginationUtil.encodeCursor(cargo.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(cargo.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getCargosByIds() throws Exception {
+        // Initialize the database
+        cargoRepository.saveAndFlush(cargo);
+
+        // Get the cargos of a list of ids, skipping the unknown and repeated ones
+        restCargoMockMvc.perform(get("/api/cargos?ids={ids}", Long.MAX_VALUE + "," + cargo.getId() + "," + cargo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(cargo.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, cargo.getId().toString()));
+        restCargoMockMvc.perform(get("/api/cargos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportCargos() throws Exception {
+        // Initialize the database
+        cargoRepository.saveAndFlush(cargo);
+
+        // Export the cargos as NDJSON
+        restCargoMockMvc.perform(get("/api/cargos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + cargo.getId() + ",")));
+
+        // Export the cargos as CSV
+        restCargoMockMvc.perform(get("/api/cargos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + cargo.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getCargo() throws Exception {
@@ -175,6 +333,72 @@ public class CargoResourceIntTest {
             .andExpect(jsonPath("$.descricao").value(DEFAULT_DESCRICAO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getCargoNotModified() throws Exception {
+        // Initialize the database
+        cargoRepository.saveAndFlush(cargo);
+
+        // Get the cargo again with its ETag
+        String etag = restCargoMockMvc.perform(get("/api/cargos/{id}", cargo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restCargoMockMvc.perform(get("/api/cargos/{id}", cargo.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the cargos again with the ETag of the list
+        etag = restCargoMockMvc.perform(get("/api/cargos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restCargoMockMvc.perform(get("/api/cargos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateCargoPreconditionFailed() throws Exception {
+        // Initialize the database
+        cargoRepository.saveAndFlush(cargo);
+        int databaseSizeBeforeDelete = cargoRepository.findAll().size();
+
+        // Get the cargo with its ETag
+        String etag = restCargoMockMvc.perform(get("/api/cargos/{id}", cargo.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The cargo is updated by someone else
+        cargo.setNome(UPDATED_NOME);
+        cargoRepository.flush();
+
+        // Update and delete the cargo with the stale ETag
+        restCargoMockMvc.perform(put("/api/cargos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(cargo)))
+                .andExpect(status().isPreconditionFailed());
+        restCargoMockMvc.perform(delete("/api/cargos/{id}", cargo.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the cargo with the current ETag
+        String currentEtag = restCargoMockMvc.perform(get("/api/cargos/{id}", cargo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restCargoMockMvc.perform(delete("/api/cargos/{id}", cargo.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Cargo> cargos = cargoRepository.findAll();
+        assertThat(cargos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingCargo() throws Exception {
@@ -201,6 +425,7 @@ public class CargoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedCargo)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Cargo in the database
         List<Cargo> cargos = cargoRepository.findAll();
@@ -226,6 +451,7 @@ public class CargoResourceIntTest {
         restCargoMockMvc.perform(delete("/api/cargos/{id}", cargo.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean cargoExistsInEs = cargoSearchRepository.exists(cargo.getId());
@@ -241,6 +467,7 @@ public class CargoResourceIntTest {
     public void searchCargo() throws Exception {
         // Initialize the database
         cargoService.save(cargo);
+        searchOutboxService.drain();
 
         // Search the cargo
         restCargoMockMvc.perform(get("/api/_search/cargos?query=id:" + cargo.getId()))
@@ -250,4 +477,99 @@ public class CargoResourceIntTest {
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())))
             .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchCargoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        cargoRepository.saveAndFlush(cargo);
+
+        // Search the cargo by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchCargo.circuitBreaker.forceOpen", true);
+        try {
+            restCargoMockMvc.perform(get("/api/_search/cargos?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(cargo.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchCargo.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchCargoAfter() throws Exception {
+        // Initialize the database
+        cargoService.save(cargo);
+        searchOutboxService.drain();
+
+        // Search the cargos following the cursor of the previous id
+        restCargoMockMvc.perform(get("/api/_search/cargos?query=id:" + cargo.getId() + "&after=" + PaginationUtil.encodeCursor(cargo.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(cargo.getId().intValue()));
+
+        // Search the cargos following the cursor of the cargo
+        restCargoMockMvc.perform(get("/api/_search/cargos?query=id:" + cargo.getId() + "&after=" + PaginationUtil.encodeCursor(cargo.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(cargo.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchCargos() throws Exception {
+        // Initialize the database
+        cargoService.save(cargo);
+        searchOutboxService.drain();
+
+        // Export the cargos found by the search as NDJSON
+        restCargoMockMvc.perform(get("/api/_search/cargos/_export?query=id:" + cargo.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + cargo.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchCargo() throws Exception {
+        // Initialize the database
+        cargoService.save(cargo);
+        searchOutboxService.drain();
+
+        // Search the cargo by id and nome, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", cargo.getId().toString());
+        request.getMatch().put("nome", DEFAULT_NOME);
+        request.getHighlight().add("nome");
+        restCargoMockMvc.perform(post("/api/_search/cargos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(cargo.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.nome").value(hasItem(DEFAULT_NOME.toString())))
+            .andExpect(jsonPath("$.[*].highlights.nome.[*]").value(hasItem(containsString("<em>"))));
+    }
+
+    @Test
+    @Transactional
+    public void suggestCargo() throws Exception {
+        // Initialize the database
+        cargoService.save(cargo);
+        searchOutboxService.drain();
+
+        // Suggest the cargo from the start of its nome, whatever its case
+        restCargoMockMvc.perform(get("/api/_suggest/cargos?prefix=" + DEFAULT_NOME.substring(0, 2).toLowerCase()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(cargo.getId().intValue())))
+            .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())));
+
+        // A prefix which does not start the nome suggests nothing
+        restCargoMockMvc.perform(get("/api/_suggest/cargos?prefix=" + UPDATED_NOME.substring(0, 2)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(cargo.getId().intValue()))));
+    }
 }
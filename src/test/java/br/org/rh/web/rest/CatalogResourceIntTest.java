@@ -0,0 +1,120 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.RhApp;
+import br.org.rh.domain.Banco;
+import br.org.rh.repository.BancoRepository;
+import br.org.rh.service.CatalogService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+/**
+ * Test class for the CatalogResource REST controller.
+ *
+ * @see CatalogResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class CatalogResourceIntTest {
+
+    private static final String DEFAULT_CODIGO = "AAAAA";
+    private static final String DEFAULT_NOME = "AAAAA";
+
+    @Inject
+    private BancoRepository bancoRepository;
+
+    @Inject
+    private CatalogService catalogService;
+
+    private MockMvc restCatalogMockMvc;
+
+    private Banco banco;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        CatalogResource catalogResource = new CatalogResource();
+        ReflectionTestUtils.setField(catalogResource, "catalogService", catalogService);
+        this.restCatalogMockMvc = MockMvcBuilders.standaloneSetup(catalogResource).build();
+    }
+
+    @Before
+    public void initTest() {
+        banco = new Banco();
+        banco.setCodigo(DEFAULT_CODIGO);
+        banco.setNome(DEFAULT_NOME);
+    }
+
+    @Test
+    @Transactional
+    public void getCatalogs() throws Exception {
+        // Initialize the database
+        bancoRepository.saveAndFlush(banco);
+
+        // Get the catalogs
+        String etag = restCatalogMockMvc.perform(get("/api/catalogs"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(header().string(HttpHeaders.ETAG, catalogService.getCatalog().getEtag()))
+            .andExpect(jsonPath("$.bancos.[*].id").value(hasItem(banco.getId().intValue())))
+            .andExpect(jsonPath("$.cargos").isArray())
+            .andExpect(jsonPath("$.vinculos").isArray())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Unchanged catalogs are not sent again
+        restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+        // Compressed catalogs have their own ETag
+        String gzipEtag = restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, catalogService.getCatalog().getGzipEtag()))
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, gzipEtag));
+
+        // The ETag of one representation also validates the other one
+        restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+        restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, gzipEtag));
+
+        // A change of an entity changes the catalogs
+        bancoRepository.delete(banco);
+        bancoRepository.flush();
+        restCatalogMockMvc.perform(get("/api/catalogs").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.bancos.[*].id").value(not(hasItem(banco.getId().intValue()))));
+    }
+}
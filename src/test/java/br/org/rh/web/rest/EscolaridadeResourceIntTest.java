@@ -4,15 +4,28 @@ import br.org.rh.RhApp;
 import br.org.rh.domain.Escolaridade;
 import br.org.rh.repository.EscolaridadeRepository;
 import br.org.rh.service.EscolaridadeService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.EscolaridadeSearchRepository;
 
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +38,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +72,18 @@ public class EscolaridadeResourceIntTest {
     @Inject
     private EscolaridadeSearchRepository escolaridadeSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,6 +99,9 @@ public class EscolaridadeResourceIntTest {
         MockitoAnnotations.initMocks(this);
         EscolaridadeResource escolaridadeResource = new EscolaridadeResource();
         ReflectionTestUtils.setField(escolaridadeResource, "escolaridadeService", escolaridadeService);
+        ReflectionTestUtils.setField(escolaridadeResource, "exportService", exportService);
+        ReflectionTestUtils.setField(escolaridadeResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(escolaridadeResource, "structuredSearchService", structuredSearchService);
         this.restEscolaridadeMockMvc = MockMvcBuilders.standaloneSetup(escolaridadeResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -96,6 +126,7 @@ public class EscolaridadeResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(escolaridade)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Escolaridade in the database
         List<Escolaridade> escolaridades = escolaridadeRepository.findAll();
@@ -145,6 +176,27 @@ public class EscolaridadeResourceIntTest {
         assertThat(escolaridades).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveEscolaridades() throws Exception {
+        int databaseSizeBeforeCreate = escolaridadeRepository.findAll().size();
+
+        // Bulk create a valid and an invalid escolaridade
+        restEscolaridadeMockMvc.perform(post("/api/escolaridades/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(escolaridade, new Escolaridade()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Escolaridade was saved
+        List<Escolaridade> escolaridades = escolaridadeRepository.findAll();
+        assertThat(escolaridades).hasSize(databaseSizeBeforeCreate + 1);
+        Escolaridade testEscolaridade = escolaridades.get(escolaridades.size() - 1);
+        assertThat(escolaridadeSearchRepository.exists(testEscolaridade.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllEscolaridades() throws Exception {
@@ -160,6 +212,69 @@ public class EscolaridadeResourceIntTest {
                 .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllEscolaridadesAfter() throws Exception {
+        // Initialize the database
+        escolaridadeRepository.saveAndFlush(escolaridade);
+
+        // Get the escolaridades following the cursor of the previous id
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades?after=" + PaginationUtil.encodeCursor(escolaridade.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(escolaridadeRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(escolaridade.getId().intValue()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].descricao").value(DEFAULT_DESCRICAO.toString()));
+
+        // Get the escolaridades following the cursor of the escolaridade
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades?after=" + PaginationUtil.encodeCursor(escolaridade.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(escolaridade.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getEscolaridadesByIds() throws Exception {
+        // Initialize the database
+        escolaridadeRepository.saveAndFlush(escolaridade);
+
+        // Get the escolaridades of a list of ids, skipping the unknown and repeated ones
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades?ids={ids}", Long.MAX_VALUE + "," + escolaridade.getId() + "," + escolaridade.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(escolaridade.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, escolaridade.getId().toString()));
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportEscolaridades() throws Exception {
+        // Initialize the database
+        escolaridadeRepository.saveAndFlush(escolaridade);
+
+        // Export the escolaridades as NDJSON
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + escolaridade.getId() + ",")));
+
+        // Export the escolaridades as CSV
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + escolaridade.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getEscolaridade() throws Exception {
@@ -175,6 +290,72 @@ public class EscolaridadeResourceIntTest {
             .andExpect(jsonPath("$.descricao").value(DEFAULT_DESCRICAO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getEscolaridadeNotModified() throws Exception {
+        // Initialize the database
+        escolaridadeRepository.saveAndFlush(escolaridade);
+
+        // Get the escolaridade again with its ETag
+        String etag = restEscolaridadeMockMvc.perform(get("/api/escolaridades/{id}", escolaridade.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades/{id}", escolaridade.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the escolaridades again with the ETag of the list
+        etag = restEscolaridadeMockMvc.perform(get("/api/escolaridades"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restEscolaridadeMockMvc.perform(get("/api/escolaridades").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateEscolaridadePreconditionFailed() throws Exception {
+        // Initialize the database
+        escolaridadeRepository.saveAndFlush(escolaridade);
+        int databaseSizeBeforeDelete = escolaridadeRepository.findAll().size();
+
+        // Get the escolaridade with its ETag
+        String etag = restEscolaridadeMockMvc.perform(get("/api/escolaridades/{id}", escolaridade.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The escolaridade is updated by someone else
+        escolaridade.setNome(UPDATED_NOME);
+        escolaridadeRepository.flush();
+
+        // Update and delete the escolaridade with the stale ETag
+        restEscolaridadeMockMvc.perform(put("/api/escolaridades")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(escolaridade)))
+                .andExpect(status().isPreconditionFailed());
+        restEscolaridadeMockMvc.perform(delete("/api/escolaridades/{id}", escolaridade.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the escolaridade with the current ETag
+        String currentEtag = restEscolaridadeMockMvc.perform(get("/api/escolaridades/{id}", escolaridade.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restEscolaridadeMockMvc.perform(delete("/api/escolaridades/{id}", escolaridade.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Escolaridade> escolaridades = escolaridadeRepository.findAll();
+        assertThat(escolaridades).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingEscolaridade() throws Exception {
@@ -201,6 +382,7 @@ public class EscolaridadeResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedEscolaridade)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Escolaridade in the database
         List<Escolaridade> escolaridades = escolaridadeRepository.findAll();
@@ -226,6 +408,7 @@ public class EscolaridadeResourceIntTest {
         restEscolaridadeMockMvc.perform(delete("/api/escolaridades/{id}", escolaridade.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean escolaridadeExistsInEs = escolaridadeSearchRepository.exists(escolaridade.getId());
@@ -241,6 +424,7 @@ public class EscolaridadeResourceIntTest {
     public void searchEscolaridade() throws Exception {
         // Initialize the database
         escolaridadeService.save(escolaridade);
+        searchOutboxService.drain();
 
         // Search the escolaridade
         restEscolaridadeMockMvc.perform(get("/api/_search/escolaridades?query=id:" + escolaridade.getId()))
@@ -250,4 +434,79 @@ public class EscolaridadeResourceIntTest {
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())))
             .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchEscolaridadeFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        escolaridadeRepository.saveAndFlush(escolaridade);
+
+        // Search the escolaridade by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchEscolaridade.circuitBreaker.forceOpen", true);
+        try {
+            restEscolaridadeMockMvc.perform(get("/api/_search/escolaridades?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(escolaridade.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchEscolaridade.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchEscolaridadeAfter() throws Exception {
+        // Initialize the database
+        escolaridadeService.save(escolaridade);
+        searchOutboxService.drain();
+
+        // Search the escolaridades following the cursor of the previous id
+        restEscolaridadeMockMvc.perform(get("/api/_search/escolaridades?query=id:" + escolaridade.getId() + "&after=" + PaginationUtil.encodeCursor(escolaridade.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(escolaridade.getId().intValue()));
+
+        // Search the escolaridades following the cursor of the escolaridade
+        restEscolaridadeMockMvc.perform(get("/api/_search/escolaridades?query=id:" + escolaridade.getId() + "&after=" + PaginationUtil.encodeCursor(escolaridade.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(escolaridade.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchEscolaridades() throws Exception {
+        // Initialize the database
+        escolaridadeService.save(escolaridade);
+        searchOutboxService.drain();
+
+        // Export the escolaridades found by the search as NDJSON
+        restEscolaridadeMockMvc.perform(get("/api/_search/escolaridades/_export?query=id:" + escolaridade.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + escolaridade.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchEscolaridade() throws Exception {
+        // Initialize the database
+        escolaridadeService.save(escolaridade);
+        searchOutboxService.drain();
+
+        // Search the escolaridade by id and nome, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", escolaridade.getId().toString());
+        request.getMatch().put("nome", DEFAULT_NOME);
+        request.getHighlight().add("nome");
+        restEscolaridadeMockMvc.perform(post("/api/_search/escolaridades?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(escolaridade.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.nome").value(hasItem(DEFAULT_NOME.toString())))
+            .andExpect(jsonPath("$.[*].highlights.nome.[*]").value(hasItem(containsString("<em>"))));
+    }
 }
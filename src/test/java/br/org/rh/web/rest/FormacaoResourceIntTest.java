@@ -4,15 +4,28 @@ import br.org.rh.RhApp;
 import br.org.rh.domain.Formacao;
 import br.org.rh.repository.FormacaoRepository;
 import br.org.rh.service.FormacaoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.FormacaoSearchRepository;
 
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +38,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +72,18 @@ public class FormacaoResourceIntTest {
     @Inject
     private FormacaoSearchRepository formacaoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,6 +99,9 @@ public class FormacaoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         FormacaoResource formacaoResource = new FormacaoResource();
         ReflectionTestUtils.setField(formacaoResource, "formacaoService", formacaoService);
+        ReflectionTestUtils.setField(formacaoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(formacaoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(formacaoResource, "structuredSearchService", structuredSearchService);
         this.restFormacaoMockMvc = MockMvcBuilders.standaloneSetup(formacaoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -96,6 +126,7 @@ public class FormacaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(formacao)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Formacao in the database
         List<Formacao> formacaos = formacaoRepository.findAll();
@@ -127,6 +158,27 @@ public class FormacaoResourceIntTest {
         assertThat(formacaos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveFormacaos() throws Exception {
+        int databaseSizeBeforeCreate = formacaoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid formacao
+        restFormacaoMockMvc.perform(post("/api/formacaos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(formacao, new Formacao()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Formacao was saved
+        List<Formacao> formacaos = formacaoRepository.findAll();
+        assertThat(formacaos).hasSize(databaseSizeBeforeCreate + 1);
+        Formacao testFormacao = formacaos.get(formacaos.size() - 1);
+        assertThat(formacaoSearchRepository.exists(testFormacao.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllFormacaos() throws Exception {
@@ -142,6 +194,69 @@ public class FormacaoResourceIntTest {
                 .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllFormacaosAfter() throws Exception {
+        // Initialize the database
+        formacaoRepository.saveAndFlush(formacao);
+
+        // Get the formacaos following the cursor of the previous id
+        restFormacaoMockMvc.perform(get("/api/formacaos?after=" + PaginationUtil.encodeCursor(formacao.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(formacaoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(formacao.getId().intValue()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].descricao").value(DEFAULT_DESCRICAO.toString()));
+
+        // Get the formacaos following the cursor of the formacao
+        restFormacaoMockMvc.perform(get("/api/formacaos?after=" + PaginationUtil.encodeCursor(formacao.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(formacao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getFormacaosByIds() throws Exception {
+        // Initialize the database
+        formacaoRepository.saveAndFlush(formacao);
+
+        // Get the formacaos of a list of ids, skipping the unknown and repeated ones
+        restFormacaoMockMvc.perform(get("/api/formacaos?ids={ids}", Long.MAX_VALUE + "," + formacao.getId() + "," + formacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(formacao.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, formacao.getId().toString()));
+        restFormacaoMockMvc.perform(get("/api/formacaos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportFormacaos() throws Exception {
+        // Initialize the database
+        formacaoRepository.saveAndFlush(formacao);
+
+        // Export the formacaos as NDJSON
+        restFormacaoMockMvc.perform(get("/api/formacaos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + formacao.getId() + ",")));
+
+        // Export the formacaos as CSV
+        restFormacaoMockMvc.perform(get("/api/formacaos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + formacao.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getFormacao() throws Exception {
@@ -157,6 +272,72 @@ public class FormacaoResourceIntTest {
             .andExpect(jsonPath("$.descricao").value(DEFAULT_DESCRICAO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getFormacaoNotModified() throws Exception {
+        // Initialize the database
+        formacaoRepository.saveAndFlush(formacao);
+
+        // Get the formacao again with its ETag
+        String etag = restFormacaoMockMvc.perform(get("/api/formacaos/{id}", formacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restFormacaoMockMvc.perform(get("/api/formacaos/{id}", formacao.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the formacaos again with the ETag of the list
+        etag = restFormacaoMockMvc.perform(get("/api/formacaos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restFormacaoMockMvc.perform(get("/api/formacaos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateFormacaoPreconditionFailed() throws Exception {
+        // Initialize the database
+        formacaoRepository.saveAndFlush(formacao);
+        int databaseSizeBeforeDelete = formacaoRepository.findAll().size();
+
+        // Get the formacao with its ETag
+        String etag = restFormacaoMockMvc.perform(get("/api/formacaos/{id}", formacao.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The formacao is updated by someone else
+        formacao.setNome(UPDATED_NOME);
+        formacaoRepository.flush();
+
+        // Update and delete the formacao with the stale ETag
+        restFormacaoMockMvc.perform(put("/api/formacaos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(formacao)))
+                .andExpect(status().isPreconditionFailed());
+        restFormacaoMockMvc.perform(delete("/api/formacaos/{id}", formacao.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the formacao with the current ETag
+        String currentEtag = restFormacaoMockMvc.perform(get("/api/formacaos/{id}", formacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restFormacaoMockMvc.perform(delete("/api/formacaos/{id}", formacao.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Formacao> formacaos = formacaoRepository.findAll();
+        assertThat(formacaos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingFormacao() throws Exception {
@@ -183,6 +364,7 @@ public class FormacaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedFormacao)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Formacao in the database
         List<Formacao> formacaos = formacaoRepository.findAll();
@@ -208,6 +390,7 @@ public class FormacaoResourceIntTest {
         restFormacaoMockMvc.perform(delete("/api/formacaos/{id}", formacao.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean formacaoExistsInEs = formacaoSearchRepository.exists(formacao.getId());
@@ -223,6 +406,7 @@ public class FormacaoResourceIntTest {
     public void searchFormacao() throws Exception {
         // Initialize the database
         formacaoService.save(formacao);
+        searchOutboxService.drain();
 
         // Search the formacao
         restFormacaoMockMvc.perform(get("/api/_search/formacaos?query=id:" + formacao.getId()))
@@ -232,4 +416,79 @@ public class FormacaoResourceIntTest {
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())))
             .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchFormacaoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        formacaoRepository.saveAndFlush(formacao);
+
+        // Search the formacao by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchFormacao.circuitBreaker.forceOpen", true);
+        try {
+            restFormacaoMockMvc.perform(get("/api/_search/formacaos?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(formacao.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchFormacao.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchFormacaoAfter() throws Exception {
+        // Initialize the database
+        formacaoService.save(formacao);
+        searchOutboxService.drain();
+
+        // Search the formacaos following the cursor of the previous id
+        restFormacaoMockMvc.perform(get("/api/_search/formacaos?query=id:" + formacao.getId() + "&after=" + PaginationUtil.encodeCursor(formacao.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(formacao.getId().intValue()));
+
+        // Search the formacaos following the cursor of the formacao
+        restFormacaoMockMvc.perform(get("/api/_search/formacaos?query=id:" + formacao.getId() + "&after=" + PaginationUtil.encodeCursor(formacao.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(formacao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchFormacaos() throws Exception {
+        // Initialize the database
+        formacaoService.save(formacao);
+        searchOutboxService.drain();
+
+        // Export the formacaos found by the search as NDJSON
+        restFormacaoMockMvc.perform(get("/api/_search/formacaos/_export?query=id:" + formacao.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + formacao.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchFormacao() throws Exception {
+        // Initialize the database
+        formacaoService.save(formacao);
+        searchOutboxService.drain();
+
+        // Search the formacao by id and nome, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", formacao.getId().toString());
+        request.getMatch().put("nome", DEFAULT_NOME);
+        request.getHighlight().add("nome");
+        restFormacaoMockMvc.perform(post("/api/_search/formacaos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(formacao.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.nome").value(hasItem(DEFAULT_NOME.toString())))
+            .andExpect(jsonPath("$.[*].highlights.nome.[*]").value(hasItem(containsString("<em>"))));
+    }
 }
@@ -0,0 +1,109 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.RhApp;
+import br.org.rh.domain.Banco;
+import br.org.rh.domain.Cargo;
+import br.org.rh.service.BancoService;
+import br.org.rh.service.CargoService;
+import br.org.rh.service.GlobalSearchService;
+import br.org.rh.service.SearchOutboxService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+/**
+ * Test class for the GlobalSearchResource REST controller.
+ *
+ * @see GlobalSearchResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class GlobalSearchResourceIntTest {
+
+    private static final String DEFAULT_CODIGO = "AAAAA";
+    private static final String DEFAULT_NOME = "AAAAA";
+    private static final String DEFAULT_DESCRICAO = "AAAAA";
+
+    @Inject
+    private BancoService bancoService;
+
+    @Inject
+    private CargoService cargoService;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private GlobalSearchService globalSearchService;
+
+    private MockMvc restGlobalSearchMockMvc;
+
+    private Banco banco;
+
+    private Cargo cargo;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        GlobalSearchResource globalSearchResource = new GlobalSearchResource();
+        ReflectionTestUtils.setField(globalSearchResource, "globalSearchService", globalSearchService);
+        this.restGlobalSearchMockMvc = MockMvcBuilders.standaloneSetup(globalSearchResource).build();
+    }
+
+    @Before
+    public void initTest() {
+        banco = new Banco();
+        banco.setCodigo(DEFAULT_CODIGO);
+        banco.setNome(DEFAULT_NOME);
+        cargo = new Cargo();
+        cargo.setNome(DEFAULT_NOME);
+        cargo.setDescricao(DEFAULT_DESCRICAO);
+    }
+
+    @Test
+    @Transactional
+    public void searchAll() throws Exception {
+        // Initialize the database
+        bancoService.save(banco);
+        cargoService.save(cargo);
+        searchOutboxService.drain();
+
+        // Search all the entities with the id of the banco
+        restGlobalSearchMockMvc.perform(get("/api/_search?query=id:" + banco.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.bancos.total").value(1))
+            .andExpect(jsonPath("$.bancos.results.[*].id").value(hasItem(banco.getId().intValue())))
+            .andExpect(jsonPath("$.bancos.results.[*].codigo").value(hasItem(DEFAULT_CODIGO)))
+            .andExpect(jsonPath("$.vinculos.results").isArray());
+
+        // Search all the entities with the id of the cargo
+        restGlobalSearchMockMvc.perform(get("/api/_search?query=id:" + cargo.getId() + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.cargos.results.[*].id").value(hasItem(cargo.getId().intValue())))
+            .andExpect(jsonPath("$.bancos.total").value(0))
+            .andExpect(jsonPath("$.bancos.results.[*].id").value(not(hasItem(banco.getId().intValue()))));
+    }
+}
@@ -3,21 +3,44 @@ package br.org.rh.web.rest;
 import br.org.rh.RhApp;
 import br.org.rh.domain.Instituicao;
 import br.org.rh.repository.InstituicaoRepository;
+import br.org.rh.service.InstituicaoHierarchyService;
 import br.org.rh.service.InstituicaoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.SuggestService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.NaturalIdService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.InstituicaoSearchRepository;
 
+import com.hazelcast.core.HazelcastInstance;
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -25,7 +48,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -63,6 +89,27 @@ public class InstituicaoResourceIntTest {
     @Inject
     private InstituicaoSearchRepository instituicaoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private InstituicaoHierarchyService instituicaoHierarchyService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
+    @Inject
+    private SuggestService suggestService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -78,6 +125,11 @@ public class InstituicaoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         InstituicaoResource instituicaoResource = new InstituicaoResource();
         ReflectionTestUtils.setField(instituicaoResource, "instituicaoService", instituicaoService);
+        ReflectionTestUtils.setField(instituicaoResource, "instituicaoHierarchyService", instituicaoHierarchyService);
+        ReflectionTestUtils.setField(instituicaoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(instituicaoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(instituicaoResource, "structuredSearchService", structuredSearchService);
+        ReflectionTestUtils.setField(instituicaoResource, "suggestService", suggestService);
         this.restInstituicaoMockMvc = MockMvcBuilders.standaloneSetup(instituicaoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -105,6 +157,7 @@ public class InstituicaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(instituicao)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Instituicao in the database
         List<Instituicao> instituicaos = instituicaoRepository.findAll();
@@ -175,6 +228,27 @@ public class InstituicaoResourceIntTest {
         assertThat(instituicaos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveInstituicaos() throws Exception {
+        int databaseSizeBeforeCreate = instituicaoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid instituicao
+        restInstituicaoMockMvc.perform(post("/api/instituicaos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(instituicao, new Instituicao()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Instituicao was saved
+        List<Instituicao> instituicaos = instituicaoRepository.findAll();
+        assertThat(instituicaos).hasSize(databaseSizeBeforeCreate + 1);
+        Instituicao testInstituicao = instituicaos.get(instituicaos.size() - 1);
+        assertThat(instituicaoSearchRepository.exists(testInstituicao.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllInstituicaos() throws Exception {
@@ -193,6 +267,72 @@ public class InstituicaoResourceIntTest {
                 .andExpect(jsonPath("$.[*].endereco").value(hasItem(DEFAULT_ENDERECO.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllInstituicaosAfter() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Get the instituicaos following the cursor of the previous id
+        restInstituicaoMockMvc.perform(get("/api/instituicaos?after=" + PaginationUtil.encodeCursor(instituicao.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(instituicaoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(instituicao.getId().intValue()))
+                .andExpect(jsonPath("$.[0].sigla").value(DEFAULT_SIGLA.toString()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].email").value(DEFAULT_EMAIL.toString()))
+                .andExpect(jsonPath("$.[0].telefone").value(DEFAULT_TELEFONE.toString()))
+                .andExpect(jsonPath("$.[0].endereco").value(DEFAULT_ENDERECO.toString()));
+
+        // Get the instituicaos following the cursor of the instituicao
+        restInstituicaoMockMvc.perform(get("/api/instituicaos?after=" + PaginationUtil.encodeCursor(instituicao.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(instituicao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getInstituicaosByIds() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Get the instituicaos of a list of ids, skipping the unknown and repeated ones
+        restInstituicaoMockMvc.perform(get("/api/instituicaos?ids={ids}", Long.MAX_VALUE + "," + instituicao.getId() + "," + instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(instituicao.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, instituicao.getId().toString()));
+        restInstituicaoMockMvc.perform(get("/api/instituicaos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportInstituicaos() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Export the instituicaos as NDJSON
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + instituicao.getId() + ",")));
+
+        // Export the instituicaos as CSV
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + instituicao.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getInstituicao() throws Exception {
@@ -211,6 +351,181 @@ public class InstituicaoResourceIntTest {
             .andExpect(jsonPath("$.endereco").value(DEFAULT_ENDERECO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getInstituicaoHierarchy() throws Exception {
+        // Initialize the database with a root, a child and a grandchild
+        instituicaoService.save(instituicao);
+        Instituicao child = new Instituicao();
+        child.setSigla(UPDATED_SIGLA);
+        child.setNome(UPDATED_NOME);
+        child.setEmail(UPDATED_EMAIL);
+        child.setTelefone(UPDATED_TELEFONE);
+        child.setEndereco(UPDATED_ENDERECO);
+        child.setInstituicao(instituicao);
+        instituicaoService.save(child);
+        Instituicao grandchild = new Instituicao();
+        grandchild.setSigla("CCCCC");
+        grandchild.setNome(UPDATED_NOME);
+        grandchild.setEmail(UPDATED_EMAIL);
+        grandchild.setTelefone(UPDATED_TELEFONE);
+        grandchild.setEndereco(UPDATED_ENDERECO);
+        grandchild.setInstituicao(child);
+        instituicaoService.save(grandchild);
+
+        // Get the ancestors of the grandchild, root first
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/ancestors", grandchild.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].id").value(instituicao.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(child.getId().intValue()));
+
+        // Get the descendants of the root
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/descendants", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].id").value(child.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(grandchild.getId().intValue()));
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/descendants?maxDepth=1", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)));
+
+        // Get the subtree of the root
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/subtree", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(instituicao.getId().intValue()))
+            .andExpect(jsonPath("$.children.[0].id").value(child.getId().intValue()))
+            .andExpect(jsonPath("$.children.[0].children.[0].id").value(grandchild.getId().intValue()));
+
+        // The root cannot be moved under its grandchild
+        Instituicao movedInstituicao = new Instituicao();
+        movedInstituicao.setId(instituicao.getId());
+        movedInstituicao.setSigla(DEFAULT_SIGLA);
+        movedInstituicao.setNome(DEFAULT_NOME);
+        movedInstituicao.setEmail(DEFAULT_EMAIL);
+        movedInstituicao.setTelefone(DEFAULT_TELEFONE);
+        movedInstituicao.setEndereco(DEFAULT_ENDERECO);
+        Instituicao movedParent = new Instituicao();
+        movedParent.setId(grandchild.getId());
+        movedInstituicao.setInstituicao(movedParent);
+        restInstituicaoMockMvc.perform(put("/api/instituicaos")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(movedInstituicao)))
+            .andExpect(status().isBadRequest());
+
+        // Move the grandchild under the root
+        grandchild.setInstituicao(instituicao);
+        instituicaoService.save(grandchild);
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/descendants?maxDepth=1", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)));
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/ancestors", grandchild.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)));
+
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/subtree", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getInstituicaoSubtreeChangedWhileLoading() throws Exception {
+        instituicaoService.save(instituicao);
+        InstituicaoHierarchyService target = AopTestUtils.getTargetObject(instituicaoHierarchyService);
+        AtomicLong generation = (AtomicLong) ReflectionTestUtils.getField(target, "generation");
+        InstituicaoRepository loadingRepository = mock(InstituicaoRepository.class, delegatesTo(instituicaoRepository));
+        // Another node changes the hierarchy once the first snapshot is loaded, but before it is installed
+        doAnswer(invocation -> {
+            List<Instituicao> instituicaos = instituicaoRepository.findAll();
+            long loadedGeneration = generation.get();
+            hazelcastInstance.getTopic("instituicao-hierarchy").publish(System.currentTimeMillis());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (generation.get() == loadedGeneration && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return instituicaos;
+        }).doAnswer(invocation -> instituicaoRepository.findAll()).when(loadingRepository).findAll();
+        ReflectionTestUtils.setField(target, "instituicaoRepository", loadingRepository);
+        try {
+            ReflectionTestUtils.setField(target, "snapshot", null);
+            restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/subtree", instituicao.getId()))
+                .andExpect(status().isOk());
+
+            // The snapshot loaded before the change is not used
+            restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}/subtree", instituicao.getId()))
+                .andExpect(status().isOk());
+            verify(loadingRepository, times(2)).findAll();
+        } finally {
+            ReflectionTestUtils.setField(target, "instituicaoRepository", instituicaoRepository);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getInstituicaoNotModified() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Get the instituicao again with its ETag
+        String etag = restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}", instituicao.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the instituicaos again with the ETag of the list
+        etag = restInstituicaoMockMvc.perform(get("/api/instituicaos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restInstituicaoMockMvc.perform(get("/api/instituicaos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateInstituicaoPreconditionFailed() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+        int databaseSizeBeforeDelete = instituicaoRepository.findAll().size();
+
+        // Get the instituicao with its ETag
+        String etag = restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The instituicao is updated by someone else
+        instituicao.setSigla(UPDATED_SIGLA);
+        instituicaoRepository.flush();
+
+        // Update and delete the instituicao with the stale ETag
+        restInstituicaoMockMvc.perform(put("/api/instituicaos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(instituicao)))
+                .andExpect(status().isPreconditionFailed());
+        restInstituicaoMockMvc.perform(delete("/api/instituicaos/{id}", instituicao.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the instituicao with the current ETag
+        String currentEtag = restInstituicaoMockMvc.perform(get("/api/instituicaos/{id}", instituicao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restInstituicaoMockMvc.perform(delete("/api/instituicaos/{id}", instituicao.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Instituicao> instituicaos = instituicaoRepository.findAll();
+        assertThat(instituicaos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingInstituicao() throws Exception {
@@ -219,6 +534,45 @@ public class InstituicaoResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getInstituicaoBySigla() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Get the instituicao by its sigla
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/by-sigla/{sigla}", DEFAULT_SIGLA))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.id").value(instituicao.getId().intValue()))
+            .andExpect(jsonPath("$.sigla").value(DEFAULT_SIGLA.toString()))
+            .andExpect(jsonPath("$.nome").value(DEFAULT_NOME.toString()));
+
+        // Get an unknown sigla
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/by-sigla/{sigla}", UPDATED_SIGLA))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getInstituicaosBySigla() throws Exception {
+        // Initialize the database
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Get the instituicaos of a list of siglas, skipping the unknown and repeated ones
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/by-sigla?siglas={sigla},{unknown},{sigla}", DEFAULT_SIGLA, UPDATED_SIGLA, DEFAULT_SIGLA))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(instituicao.getId().intValue()))
+            .andExpect(jsonPath("$.[0].sigla").value(DEFAULT_SIGLA.toString()));
+
+        // Too many siglas are rejected
+        String siglas = String.join(",", Collections.nCopies(NaturalIdService.MAX_KEYS + 1, DEFAULT_SIGLA));
+        restInstituicaoMockMvc.perform(get("/api/instituicaos/by-sigla?siglas={siglas}", siglas))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateInstituicao() throws Exception {
@@ -240,6 +594,7 @@ public class InstituicaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedInstituicao)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Instituicao in the database
         List<Instituicao> instituicaos = instituicaoRepository.findAll();
@@ -268,6 +623,7 @@ public class InstituicaoResourceIntTest {
         restInstituicaoMockMvc.perform(delete("/api/instituicaos/{id}", instituicao.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean instituicaoExistsInEs = instituicaoSearchRepository.exists(instituicao.getId());
@@ -283,6 +639,7 @@ public class InstituicaoResourceIntTest {
     public void searchInstituicao() throws Exception {
         // Initialize the database
         instituicaoService.save(instituicao);
+        searchOutboxService.drain();
 
         // Search the instituicao
         restInstituicaoMockMvc.perform(get("/api/_search/instituicaos?query=id:" + instituicao.getId()))
@@ -295,4 +652,99 @@ public class InstituicaoResourceIntTest {
             .andExpect(jsonPath("$.[*].telefone").value(hasItem(DEFAULT_TELEFONE.toString())))
             .andExpect(jsonPath("$.[*].endereco").value(hasItem(DEFAULT_ENDERECO.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchInstituicaoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        instituicaoRepository.saveAndFlush(instituicao);
+
+        // Search the instituicao by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchInstituicao.circuitBreaker.forceOpen", true);
+        try {
+            restInstituicaoMockMvc.perform(get("/api/_search/instituicaos?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(instituicao.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchInstituicao.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchInstituicaoAfter() throws Exception {
+        // Initialize the database
+        instituicaoService.save(instituicao);
+        searchOutboxService.drain();
+
+        // Search the instituicaos following the cursor of the previous id
+        restInstituicaoMockMvc.perform(get("/api/_search/instituicaos?query=id:" + instituicao.getId() + "&after=" + PaginationUtil.encodeCursor(instituicao.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(instituicao.getId().intValue()));
+
+        // Search the instituicaos following the cursor of the instituicao
+        restInstituicaoMockMvc.perform(get("/api/_search/instituicaos?query=id:" + instituicao.getId() + "&after=" + PaginationUtil.encodeCursor(instituicao.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(instituicao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchInstituicaos() throws Exception {
+        // Initialize the database
+        instituicaoService.save(instituicao);
+        searchOutboxService.drain();
+
+        // Export the instituicaos found by the search as NDJSON
+        restInstituicaoMockMvc.perform(get("/api/_search/instituicaos/_export?query=id:" + instituicao.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + instituicao.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchInstituicao() throws Exception {
+        // Initialize the database
+        instituicaoService.save(instituicao);
+        searchOutboxService.drain();
+
+        // Search the instituicao by id and sigla, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", instituicao.getId().toString());
+        request.getMatch().put("sigla", DEFAULT_SIGLA);
+        request.getHighlight().add("sigla");
+        restInstituicaoMockMvc.perform(post("/api/_search/instituicaos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(instituicao.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.sigla").value(hasItem(DEFAULT_SIGLA.toString())))
+            .andExpect(jsonPath("$.[*].highlights.sigla.[*]").value(hasItem(containsString("<em>"))));
+    }
+
+    @Test
+    @Transactional
+    public void suggestInstituicao() throws Exception {
+        // Initialize the database
+        instituicaoService.save(instituicao);
+        searchOutboxService.drain();
+
+        // Suggest the instituicao from the start of its nome, whatever its case
+        restInstituicaoMockMvc.perform(get("/api/_suggest/instituicaos?prefix=" + DEFAULT_NOME.substring(0, 2).toLowerCase()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(instituicao.getId().intValue())))
+            .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())));
+
+        // A prefix which does not start the nome suggests nothing
+        restInstituicaoMockMvc.perform(get("/api/_suggest/instituicaos?prefix=" + UPDATED_NOME.substring(0, 2)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(instituicao.getId().intValue()))));
+    }
 }
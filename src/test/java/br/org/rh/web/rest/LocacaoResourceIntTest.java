@@ -4,15 +4,28 @@ import br.org.rh.RhApp;
 import br.org.rh.domain.Locacao;
 import br.org.rh.repository.LocacaoRepository;
 import br.org.rh.service.LocacaoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.LocacaoSearchRepository;
 
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +38,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +72,18 @@ public class LocacaoResourceIntTest {
     @Inject
     private LocacaoSearchRepository locacaoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,6 +99,9 @@ public class LocacaoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         LocacaoResource locacaoResource = new LocacaoResource();
         ReflectionTestUtils.setField(locacaoResource, "locacaoService", locacaoService);
+        ReflectionTestUtils.setField(locacaoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(locacaoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(locacaoResource, "structuredSearchService", structuredSearchService);
         this.restLocacaoMockMvc = MockMvcBuilders.standaloneSetup(locacaoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -96,6 +126,7 @@ public class LocacaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(locacao)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Locacao in the database
         List<Locacao> locacaos = locacaoRepository.findAll();
@@ -127,6 +158,27 @@ public class LocacaoResourceIntTest {
         assertThat(locacaos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveLocacaos() throws Exception {
+        int databaseSizeBeforeCreate = locacaoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid locacao
+        restLocacaoMockMvc.perform(post("/api/locacaos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(locacao, new Locacao()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Locacao was saved
+        List<Locacao> locacaos = locacaoRepository.findAll();
+        assertThat(locacaos).hasSize(databaseSizeBeforeCreate + 1);
+        Locacao testLocacao = locacaos.get(locacaos.size() - 1);
+        assertThat(locacaoSearchRepository.exists(testLocacao.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllLocacaos() throws Exception {
@@ -142,6 +194,69 @@ public class LocacaoResourceIntTest {
                 .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllLocacaosAfter() throws Exception {
+        // Initialize the database
+        locacaoRepository.saveAndFlush(locacao);
+
+        // Get the locacaos following the cursor of the previous id
+        restLocacaoMockMvc.perform(get("/api/locacaos?after=" + PaginationUtil.encodeCursor(locacao.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(locacaoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(locacao.getId().intValue()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].descricao").value(DEFAULT_DESCRICAO.toString()));
+
+        // Get the locacaos following the cursor of the locacao
+        restLocacaoMockMvc.perform(get("/api/locacaos?after=" + PaginationUtil.encodeCursor(locacao.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(locacao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getLocacaosByIds() throws Exception {
+        // Initialize the database
+        locacaoRepository.saveAndFlush(locacao);
+
+        // Get the locacaos of a list of ids, skipping the unknown and repeated ones
+        restLocacaoMockMvc.perform(get("/api/locacaos?ids={ids}", Long.MAX_VALUE + "," + locacao.getId() + "," + locacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(locacao.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, locacao.getId().toString()));
+        restLocacaoMockMvc.perform(get("/api/locacaos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportLocacaos() throws Exception {
+        // Initialize the database
+        locacaoRepository.saveAndFlush(locacao);
+
+        // Export the locacaos as NDJSON
+        restLocacaoMockMvc.perform(get("/api/locacaos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + locacao.getId() + ",")));
+
+        // Export the locacaos as CSV
+        restLocacaoMockMvc.perform(get("/api/locacaos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + locacao.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getLocacao() throws Exception {
@@ -157,6 +272,72 @@ public class LocacaoResourceIntTest {
             .andExpect(jsonPath("$.descricao").value(DEFAULT_DESCRICAO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getLocacaoNotModified() throws Exception {
+        // Initialize the database
+        locacaoRepository.saveAndFlush(locacao);
+
+        // Get the locacao again with its ETag
+        String etag = restLocacaoMockMvc.perform(get("/api/locacaos/{id}", locacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restLocacaoMockMvc.perform(get("/api/locacaos/{id}", locacao.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the locacaos again with the ETag of the list
+        etag = restLocacaoMockMvc.perform(get("/api/locacaos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restLocacaoMockMvc.perform(get("/api/locacaos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateLocacaoPreconditionFailed() throws Exception {
+        // Initialize the database
+        locacaoRepository.saveAndFlush(locacao);
+        int databaseSizeBeforeDelete = locacaoRepository.findAll().size();
+
+        // Get the locacao with its ETag
+        String etag = restLocacaoMockMvc.perform(get("/api/locacaos/{id}", locacao.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The locacao is updated by someone else
+        locacao.setNome(UPDATED_NOME);
+        locacaoRepository.flush();
+
+        // Update and delete the locacao with the stale ETag
+        restLocacaoMockMvc.perform(put("/api/locacaos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(locacao)))
+                .andExpect(status().isPreconditionFailed());
+        restLocacaoMockMvc.perform(delete("/api/locacaos/{id}", locacao.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the locacao with the current ETag
+        String currentEtag = restLocacaoMockMvc.perform(get("/api/locacaos/{id}", locacao.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restLocacaoMockMvc.perform(delete("/api/locacaos/{id}", locacao.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Locacao> locacaos = locacaoRepository.findAll();
+        assertThat(locacaos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingLocacao() throws Exception {
@@ -183,6 +364,7 @@ public class LocacaoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedLocacao)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Locacao in the database
         List<Locacao> locacaos = locacaoRepository.findAll();
@@ -208,6 +390,7 @@ public class LocacaoResourceIntTest {
         restLocacaoMockMvc.perform(delete("/api/locacaos/{id}", locacao.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean locacaoExistsInEs = locacaoSearchRepository.exists(locacao.getId());
@@ -223,6 +406,7 @@ public class LocacaoResourceIntTest {
     public void searchLocacao() throws Exception {
         // Initialize the database
         locacaoService.save(locacao);
+        searchOutboxService.drain();
 
         // Search the locacao
         restLocacaoMockMvc.perform(get("/api/_search/locacaos?query=id:" + locacao.getId()))
@@ -232,4 +416,79 @@ public class LocacaoResourceIntTest {
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())))
             .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchLocacaoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        locacaoRepository.saveAndFlush(locacao);
+
+        // Search the locacao by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchLocacao.circuitBreaker.forceOpen", true);
+        try {
+            restLocacaoMockMvc.perform(get("/api/_search/locacaos?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(locacao.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchLocacao.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchLocacaoAfter() throws Exception {
+        // Initialize the database
+        locacaoService.save(locacao);
+        searchOutboxService.drain();
+
+        // Search the locacaos following the cursor of the previous id
+        restLocacaoMockMvc.perform(get("/api/_search/locacaos?query=id:" + locacao.getId() + "&after=" + PaginationUtil.encodeCursor(locacao.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(locacao.getId().intValue()));
+
+        // Search the locacaos following the cursor of the locacao
+        restLocacaoMockMvc.perform(get("/api/_search/locacaos?query=id:" + locacao.getId() + "&after=" + PaginationUtil.encodeCursor(locacao.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(locacao.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchLocacaos() throws Exception {
+        // Initialize the database
+        locacaoService.save(locacao);
+        searchOutboxService.drain();
+
+        // Export the locacaos found by the search as NDJSON
+        restLocacaoMockMvc.perform(get("/api/_search/locacaos/_export?query=id:" + locacao.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + locacao.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchLocacao() throws Exception {
+        // Initialize the database
+        locacaoService.save(locacao);
+        searchOutboxService.drain();
+
+        // Search the locacao by id and nome, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", locacao.getId().toString());
+        request.getMatch().put("nome", DEFAULT_NOME);
+        request.getHighlight().add("nome");
+        restLocacaoMockMvc.perform(post("/api/_search/locacaos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(locacao.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.nome").value(hasItem(DEFAULT_NOME.toString())))
+            .andExpect(jsonPath("$.[*].highlights.nome.[*]").value(hasItem(containsString("<em>"))));
+    }
 }
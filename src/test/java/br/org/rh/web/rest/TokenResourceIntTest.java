@@ -0,0 +1,87 @@
+package br.org.rh.web.rest;
+
+import br.org.rh.RhApp;
+import br.org.rh.security.AuthoritiesConstants;
+import br.org.rh.security.jwt.TokenProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+/**
+ * Test class for the TokenResource REST controller.
+ *
+ * @see TokenResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = RhApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class TokenResourceIntTest {
+
+    @Inject
+    private TokenProvider tokenProvider;
+
+    private MockMvc restTokenMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        TokenResource tokenResource = new TokenResource();
+        ReflectionTestUtils.setField(tokenResource, "tokenProvider", tokenProvider);
+        this.restTokenMockMvc = MockMvcBuilders.standaloneSetup(tokenResource).build();
+    }
+
+    private String createToken(String login) {
+        return tokenProvider.createToken(new UsernamePasswordAuthenticationToken(login, "",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+    }
+
+    @Test
+    public void revokeCurrentToken() throws Exception {
+        String token = createToken("current");
+        assertThat(tokenProvider.getAuthentication(token)).isNotNull();
+
+        // Revoke the token of the request
+        restTokenMockMvc.perform(delete("/api/tokens/current").header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+
+        // Validate the token is rejected
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+    }
+
+    @Test
+    public void revokeTokens() throws Exception {
+        String token = createToken("revoked");
+        assertThat(tokenProvider.getAuthentication(token)).isNotNull();
+
+        // Revoke the token, and an invalid one
+        restTokenMockMvc.perform(post("/api/tokens/_revoke")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(token, "invalid"))))
+            .andExpect(status().isOk())
+            .andExpect(content().string("1"));
+
+        // Validate the token is rejected
+        assertThat(tokenProvider.getAuthentication(token)).isNull();
+    }
+}
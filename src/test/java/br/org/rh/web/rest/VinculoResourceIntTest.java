@@ -4,15 +4,28 @@ import br.org.rh.RhApp;
 import br.org.rh.domain.Vinculo;
 import br.org.rh.repository.VinculoRepository;
 import br.org.rh.service.VinculoService;
+import br.org.rh.service.EntityChangeTracker;
+import br.org.rh.service.StructuredSearchService;
+import br.org.rh.service.ExportService;
+import br.org.rh.service.MultiGetService;
+import br.org.rh.service.SearchOutboxService;
+import br.org.rh.web.rest.dto.SearchRequestDTO;
+import br.org.rh.web.rest.util.PaginationUtil;
 import br.org.rh.repository.search.VinculoSearchRepository;
 
+import com.netflix.config.ConfigurationManager;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +38,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +72,18 @@ public class VinculoResourceIntTest {
     @Inject
     private VinculoSearchRepository vinculoSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private EntityChangeTracker entityChangeTracker;
+
+    @Inject
+    private StructuredSearchService structuredSearchService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -72,6 +99,9 @@ public class VinculoResourceIntTest {
         MockitoAnnotations.initMocks(this);
         VinculoResource vinculoResource = new VinculoResource();
         ReflectionTestUtils.setField(vinculoResource, "vinculoService", vinculoService);
+        ReflectionTestUtils.setField(vinculoResource, "exportService", exportService);
+        ReflectionTestUtils.setField(vinculoResource, "entityChangeTracker", entityChangeTracker);
+        ReflectionTestUtils.setField(vinculoResource, "structuredSearchService", structuredSearchService);
         this.restVinculoMockMvc = MockMvcBuilders.standaloneSetup(vinculoResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -96,6 +126,7 @@ public class VinculoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(vinculo)))
                 .andExpect(status().isCreated());
+        searchOutboxService.drain();
 
         // Validate the Vinculo in the database
         List<Vinculo> vinculos = vinculoRepository.findAll();
@@ -127,6 +158,27 @@ public class VinculoResourceIntTest {
         assertThat(vinculos).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveVinculos() throws Exception {
+        int databaseSizeBeforeCreate = vinculoRepository.findAll().size();
+
+        // Bulk create a valid and an invalid vinculo
+        restVinculoMockMvc.perform(post("/api/vinculos/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(vinculo, new Vinculo()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+        searchOutboxService.drain();
+
+        // Validate only the valid Vinculo was saved
+        List<Vinculo> vinculos = vinculoRepository.findAll();
+        assertThat(vinculos).hasSize(databaseSizeBeforeCreate + 1);
+        Vinculo testVinculo = vinculos.get(vinculos.size() - 1);
+        assertThat(vinculoSearchRepository.exists(testVinculo.getId())).isTrue();
+    }
+
     @Test
     @Transactional
     public void getAllVinculos() throws Exception {
@@ -142,6 +194,69 @@ public class VinculoResourceIntTest {
                 .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllVinculosAfter() throws Exception {
+        // Initialize the database
+        vinculoRepository.saveAndFlush(vinculo);
+
+        // Get the vinculos following the cursor of the previous id
+        restVinculoMockMvc.perform(get("/api/vinculos?after=" + PaginationUtil.encodeCursor(vinculo.getId() - 1) + "&size=1&count=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("X-Total-Count", String.valueOf(vinculoRepository.count())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].id").value(vinculo.getId().intValue()))
+                .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()))
+                .andExpect(jsonPath("$.[0].descricao").value(DEFAULT_DESCRICAO.toString()));
+
+        // Get the vinculos following the cursor of the vinculo
+        restVinculoMockMvc.perform(get("/api/vinculos?after=" + PaginationUtil.encodeCursor(vinculo.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(vinculo.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getVinculosByIds() throws Exception {
+        // Initialize the database
+        vinculoRepository.saveAndFlush(vinculo);
+
+        // Get the vinculos of a list of ids, skipping the unknown and repeated ones
+        restVinculoMockMvc.perform(get("/api/vinculos?ids={ids}", Long.MAX_VALUE + "," + vinculo.getId() + "," + vinculo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(vinculo.getId().intValue()))
+            .andExpect(jsonPath("$.[0].nome").value(DEFAULT_NOME.toString()));
+
+        // Too many ids are rejected
+        String ids = String.join(",", Collections.nCopies(MultiGetService.MAX_IDS + 1, vinculo.getId().toString()));
+        restVinculoMockMvc.perform(get("/api/vinculos?ids={ids}", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportVinculos() throws Exception {
+        // Initialize the database
+        vinculoRepository.saveAndFlush(vinculo);
+
+        // Export the vinculos as NDJSON
+        restVinculoMockMvc.perform(get("/api/vinculos/_export?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(containsString("\"id\":" + vinculo.getId() + ",")));
+
+        // Export the vinculos as CSV
+        restVinculoMockMvc.perform(get("/api/vinculos/_export?format=csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString(",id,")))
+                .andExpect(content().string(containsString("," + vinculo.getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getVinculo() throws Exception {
@@ -157,6 +272,72 @@ public class VinculoResourceIntTest {
             .andExpect(jsonPath("$.descricao").value(DEFAULT_DESCRICAO.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getVinculoNotModified() throws Exception {
+        // Initialize the database
+        vinculoRepository.saveAndFlush(vinculo);
+
+        // Get the vinculo again with its ETag
+        String etag = restVinculoMockMvc.perform(get("/api/vinculos/{id}", vinculo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Last-Modified", notNullValue()))
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restVinculoMockMvc.perform(get("/api/vinculos/{id}", vinculo.getId()).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // Get the vinculos again with the ETag of the list
+        etag = restVinculoMockMvc.perform(get("/api/vinculos"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        restVinculoMockMvc.perform(get("/api/vinculos").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    public void updateVinculoPreconditionFailed() throws Exception {
+        // Initialize the database
+        vinculoRepository.saveAndFlush(vinculo);
+        int databaseSizeBeforeDelete = vinculoRepository.findAll().size();
+
+        // Get the vinculo with its ETag
+        String etag = restVinculoMockMvc.perform(get("/api/vinculos/{id}", vinculo.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        // The vinculo is updated by someone else
+        vinculo.setNome(UPDATED_NOME);
+        vinculoRepository.flush();
+
+        // Update and delete the vinculo with the stale ETag
+        restVinculoMockMvc.perform(put("/api/vinculos")
+                .header("If-Match", etag)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(vinculo)))
+                .andExpect(status().isPreconditionFailed());
+        restVinculoMockMvc.perform(delete("/api/vinculos/{id}", vinculo.getId())
+                .header("If-Match", etag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isPreconditionFailed());
+
+        // Delete the vinculo with the current ETag
+        String currentEtag = restVinculoMockMvc.perform(get("/api/vinculos/{id}", vinculo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andReturn().getResponse().getHeader("ETag");
+        restVinculoMockMvc.perform(delete("/api/vinculos/{id}", vinculo.getId())
+                .header("If-Match", currentEtag)
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        // Validate the database no longer contains it
+        List<Vinculo> vinculos = vinculoRepository.findAll();
+        assertThat(vinculos).hasSize(databaseSizeBeforeDelete - 1);
+    }
+
     @Test
     @Transactional
     public void getNonExistingVinculo() throws Exception {
@@ -183,6 +364,7 @@ public class VinculoResourceIntTest {
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(updatedVinculo)))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate the Vinculo in the database
         List<Vinculo> vinculos = vinculoRepository.findAll();
@@ -208,6 +390,7 @@ public class VinculoResourceIntTest {
         restVinculoMockMvc.perform(delete("/api/vinculos/{id}", vinculo.getId())
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
+        searchOutboxService.drain();
 
         // Validate ElasticSearch is empty
         boolean vinculoExistsInEs = vinculoSearchRepository.exists(vinculo.getId());
@@ -223,6 +406,7 @@ public class VinculoResourceIntTest {
     public void searchVinculo() throws Exception {
         // Initialize the database
         vinculoService.save(vinculo);
+        searchOutboxService.drain();
 
         // Search the vinculo
         restVinculoMockMvc.perform(get("/api/_search/vinculos?query=id:" + vinculo.getId()))
@@ -232,4 +416,105 @@ public class VinculoResourceIntTest {
             .andExpect(jsonPath("$.[*].nome").value(hasItem(DEFAULT_NOME.toString())))
             .andExpect(jsonPath("$.[*].descricao").value(hasItem(DEFAULT_DESCRICAO.toString())));
     }
+
+    @Test
+    public void searchVinculoEvictedByDrain() throws Exception {
+        // The cached search results are only put once the transactions are committed
+        try {
+            // Initialize the database, and cache a search which does not find the vinculo
+            vinculoService.save(vinculo);
+            searchOutboxService.drain();
+            restVinculoMockMvc.perform(get("/api/_search/vinculos?query=nome:" + UPDATED_NOME))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+            // Once the update is indexed, the cached search results are evicted
+            vinculo.setNome(UPDATED_NOME);
+            vinculoService.save(vinculo);
+            searchOutboxService.drain();
+            restVinculoMockMvc.perform(get("/api/_search/vinculos?query=nome:" + UPDATED_NOME))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(vinculo.getId().intValue())));
+        } finally {
+            if (vinculo.getId() != null) {
+                vinculoService.delete(vinculo.getId());
+                searchOutboxService.drain();
+            }
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchVinculoFallback() throws Exception {
+        // Initialize the database only, ElasticSearch is not searched
+        vinculoRepository.saveAndFlush(vinculo);
+
+        // Search the vinculo by prefix with the circuit breaker open
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.searchVinculo.circuitBreaker.forceOpen", true);
+        try {
+            restVinculoMockMvc.perform(get("/api/_search/vinculos?query=" + DEFAULT_NOME.substring(0, 3) + "*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(vinculo.getId().intValue())));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.searchVinculo.circuitBreaker.forceOpen");
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchVinculoAfter() throws Exception {
+        // Initialize the database
+        vinculoService.save(vinculo);
+        searchOutboxService.drain();
+
+        // Search the vinculos following the cursor of the previous id
+        restVinculoMockMvc.perform(get("/api/_search/vinculos?query=id:" + vinculo.getId() + "&after=" + PaginationUtil.encodeCursor(vinculo.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(vinculo.getId().intValue()));
+
+        // Search the vinculos following the cursor of the vinculo
+        restVinculoMockMvc.perform(get("/api/_search/vinculos?query=id:" + vinculo.getId() + "&after=" + PaginationUtil.encodeCursor(vinculo.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(vinculo.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSearchVinculos() throws Exception {
+        // Initialize the database
+        vinculoService.save(vinculo);
+        searchOutboxService.drain();
+
+        // Export the vinculos found by the search as NDJSON
+        restVinculoMockMvc.perform(get("/api/_search/vinculos/_export?query=id:" + vinculo.getId() + "&format=ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(containsString("\"id\":" + vinculo.getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void structuredSearchVinculo() throws Exception {
+        // Initialize the database
+        vinculoService.save(vinculo);
+        searchOutboxService.drain();
+
+        // Search the vinculo by id and nome, with highlights
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.getTerm().put("id", vinculo.getId().toString());
+        request.getMatch().put("nome", DEFAULT_NOME);
+        request.getHighlight().add("nome");
+        restVinculoMockMvc.perform(post("/api/_search/vinculos?sort=id,asc")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].entity.id").value(hasItem(vinculo.getId().intValue())))
+            .andExpect(jsonPath("$.[*].entity.nome").value(hasItem(DEFAULT_NOME.toString())))
+            .andExpect(jsonPath("$.[*].highlights.nome.[*]").value(hasItem(containsString("<em>"))));
+    }
 }